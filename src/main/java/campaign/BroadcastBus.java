@@ -0,0 +1,41 @@
+package campaign;
+
+/**
+ * Carries campaign broadcasts between application nodes, so every node can deliver them
+ * to the SSE clients connected to it, and messages the nodes apply to themselves. The implementation is chosen with
+ * {@code dicekeeper.sse.bus} ({@code local} or {@code postgres}).
+ */
+public interface BroadcastBus {
+
+    /** Publishes an already serialized event to all other nodes; must not block on I/O. */
+    void publish(Long campaignId, String eventName, String json);
+
+    /** Registers the receiver for events published by other nodes. */
+    void subscribe(Listener listener);
+
+    /** Publishes an event addressed to one player rather than a campaign, e.g. a notification. */
+    void publishToPlayer(Long playerId, String eventName, String json);
+
+    /** Registers the receiver for player events published by other nodes. */
+    void subscribePlayers(Listener listener);
+
+    /**
+     * Publishes a message to the other nodes themselves rather than their clients, e.g. to
+     * drop data they cached about a campaign.
+     */
+    void publishToNodes(String type, String json);
+
+    /** Registers a receiver for node messages published by other nodes; there may be several. */
+    void subscribeNodes(NodeListener listener);
+
+    @FunctionalInterface
+    interface Listener {
+        /** {@code targetId} is the campaign id, or the player id for player events. */
+        void onEvent(Long targetId, String eventName, String json);
+    }
+
+    @FunctionalInterface
+    interface NodeListener {
+        void onMessage(String type, String json);
+    }
+}
@@ -1,9 +1,16 @@
 package campaign;
 
+import io.quarkus.runtime.StartupEvent;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.inject.Instance;
 import jakarta.inject.Inject;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
 import notification.Notification;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
 
 import java.io.IOException;
 import java.nio.file.Files;
@@ -13,6 +20,11 @@ import java.util.Map;
 @ApplicationScoped
 public class CampaignDeletionService {
 
+    private static final Logger LOG = Logger.getLogger(CampaignDeletionService.class);
+    private static final String REMOVED_MESSAGE = "campaign_removed";
+    private static final String DELETE_SAVED_PLAYER_STATE = "delete from saved_player_state where campaign_id = ?1";
+    private static final String DELETE_SAVED_GAME_STATE = "delete from saved_game_state where campaign_id = ?1";
+
     @ConfigProperty(name = "dicekeeper.upload-dir")
     String uploadDir;
 
@@ -22,6 +34,25 @@ public class CampaignDeletionService {
     @Inject
     SseBroadcaster broadcaster;
 
+    @Inject
+    GameStateEvictor evictor;
+
+    @Inject
+    CampaignMembershipCache memberships;
+
+    @Inject
+    TransactionSynchronizationRegistry transactionRegistry;
+
+    @Inject
+    Instance<BroadcastBus> buses;
+
+    private BroadcastBus bus;
+
+    void onStart(@Observes StartupEvent event) {
+        bus = buses.get();
+        bus.subscribeNodes(this::onNodeMessage);
+    }
+
     public void deleteCampaign(Campaign campaign) {
         if (campaign == null || campaign.id == null) {
             return;
@@ -30,15 +61,70 @@ public class CampaignDeletionService {
         Long campaignId = campaign.id;
         broadcaster.broadcast(campaignId, "campaign_deleted", Map.of("campaignId", campaignId));
 
+        DecisionVote.deleteByCampaign(campaignId);
         GroupDecision.delete("campaignId", campaignId);
         Notification.delete("referenceId", campaignId);
         CampaignPlayer.delete("campaignId", campaignId);
+        memberships.invalidateCampaign(campaignId);
+        deleteSavedGameState(campaignId);
 
         for (String mapPath : getMapPaths(campaign)) {
             deleteUploadedFile(mapPath);
         }
         campaign.delete();
+        forgetAfterCommit(campaignId);
+    }
+
+    // Rows of the GameStatePersister, which writes them with JDBC and has no entities for them
+    private static void deleteSavedGameState(Long campaignId) {
+        Campaign.getEntityManager().createNativeQuery(DELETE_SAVED_PLAYER_STATE)
+                .setParameter(1, campaignId)
+                .executeUpdate();
+        Campaign.getEntityManager().createNativeQuery(DELETE_SAVED_GAME_STATE)
+                .setParameter(1, campaignId)
+                .executeUpdate();
+    }
+
+    // The game state, spilled state and replay buffer live on the campaign's owner, which is
+    // usually another node: every node drops its own once the deletion is committed, before
+    // the owner's write-behind could save the state again.
+    private void forgetAfterCommit(Long campaignId) {
+        forget(campaignId);
+        if (transactionRegistry.getTransactionStatus() != Status.STATUS_ACTIVE) {
+            bus.publishToNodes(REMOVED_MESSAGE, String.valueOf(campaignId));
+            return;
+        }
+        transactionRegistry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == Status.STATUS_COMMITTED) {
+                    forget(campaignId);
+                    bus.publishToNodes(REMOVED_MESSAGE, String.valueOf(campaignId));
+                }
+            }
+        });
+    }
+
+    private void forget(Long campaignId) {
         gameState.remove(campaignId);
+        evictor.forget(campaignId);
+        broadcaster.forget(campaignId);
+    }
+
+    // Another node deleted a campaign
+    private void onNodeMessage(String type, String json) {
+        if (!REMOVED_MESSAGE.equals(type)) {
+            return;
+        }
+        try {
+            forget(Long.valueOf(json));
+        } catch (NumberFormatException e) {
+            LOG.errorf("Ignoring malformed campaign removal: %s", json);
+        }
     }
 
     private java.util.List<String> getMapPaths(Campaign campaign) {
@@ -0,0 +1,127 @@
+package campaign;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.jboss.logging.Logger;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Single writer per campaign. Commands for one campaign run one at a time in the order they
+ * were submitted, so compound changes (an undo entry plus the markers it covers) and the
+ * events they broadcast never interleave. A campaign's mailbox exists only while it has
+ * work; it is drained on a virtual thread, taking everything queued at once per pass, so
+ * independent campaigns run in parallel without a global lock.
+ */
+@ApplicationScoped
+public class CampaignMailbox {
+
+    private static final Logger LOG = Logger.getLogger(CampaignMailbox.class);
+
+    private final ConcurrentHashMap<Long, ArrayDeque<Runnable>> mailboxes = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final AtomicInteger pending = new AtomicInteger();
+    // Campaign whose mailbox the current thread is draining, so nested calls run inline
+    private static final ThreadLocal<Long> CURRENT = new ThreadLocal<>();
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    void onStart(@Observes StartupEvent event) {
+        Gauge.builder("dicekeeper.campaign.mailbox.pending", pending, AtomicInteger::get)
+                .description("Game commands waiting for their campaign's mailbox")
+                .register(meterRegistry);
+        Gauge.builder("dicekeeper.campaign.mailbox.active", mailboxes, ConcurrentHashMap::size)
+                .description("Campaigns with queued or running game commands")
+                .register(meterRegistry);
+    }
+
+    /** Runs a command in the campaign's mailbox and waits for its result. */
+    public <T> T call(Long campaignId, Supplier<T> command) {
+        if (campaignId.equals(CURRENT.get())) {
+            return command.get();
+        }
+        CompletableFuture<T> result = new CompletableFuture<>();
+        submit(campaignId, () -> {
+            try {
+                result.complete(command.get());
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        });
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    /** Queues a command without waiting for it, e.g. from a timer on the event loop. */
+    public void post(Long campaignId, Runnable command) {
+        submit(campaignId, command);
+    }
+
+    private void submit(Long campaignId, Runnable command) {
+        pending.incrementAndGet();
+        mailboxes.compute(campaignId, (id, queue) -> {
+            if (queue == null) {
+                queue = new ArrayDeque<>();
+                executor.execute(() -> drain(id));
+            }
+            queue.add(command);
+            return queue;
+        });
+    }
+
+    private void drain(Long campaignId) {
+        CURRENT.set(campaignId);
+        try {
+            List<Runnable> batch;
+            while (!(batch = takeQueued(campaignId)).isEmpty()) {
+                for (Runnable command : batch) {
+                    pending.decrementAndGet();
+                    // Whatever a command throws, the drain goes on: the mailbox stays
+                    // registered until it is empty, and later commands would wait forever.
+                    try {
+                        command.run();
+                    } catch (Throwable e) {
+                        LOG.errorf(e, "Game command failed: campaign=%d", campaignId);
+                    }
+                }
+            }
+        } finally {
+            CURRENT.remove();
+        }
+    }
+
+    // Takes all queued commands; once there are none the mailbox is removed in the same step,
+    // so a command submitted afterwards starts a new drain instead of being missed.
+    private List<Runnable> takeQueued(Long campaignId) {
+        List<Runnable> batch = new ArrayList<>();
+        mailboxes.computeIfPresent(campaignId, (id, queue) -> {
+            batch.addAll(queue);
+            queue.clear();
+            return batch.isEmpty() ? null : queue;
+        });
+        return batch;
+    }
+}
@@ -0,0 +1,239 @@
+package campaign;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.runtime.StartupEvent;
+import io.vertx.core.Vertx;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.inject.Instance;
+import jakarta.inject.Inject;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+import player.Player;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Campaign memberships (role and login name) of the players active in game, so the game
+ * endpoints authorize without querying the database. Entries are invalidated by the code
+ * that changes memberships, on this node at once and on the other nodes through the
+ * {@link BroadcastBus} once the change is committed; the TTL only bounds how long a renamed
+ * player, or an invalidation the bus lost, stays invisible. Only memberships are cached: a
+ * non-member is looked up again every time. {@link InvalidationListener}s on every node hear
+ * about every committed invalidation, e.g. to close connections that were authorized with
+ * the old membership.
+ */
+@ApplicationScoped
+public class CampaignMembershipCache {
+
+    private static final Logger LOG = Logger.getLogger(CampaignMembershipCache.class);
+    private static final String INVALIDATED_MESSAGE = "membership_invalidated";
+
+    @Inject
+    TransactionSynchronizationRegistry transactionRegistry;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    @Inject
+    Vertx vertx;
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    @Inject
+    Instance<BroadcastBus> buses;
+
+    BroadcastBus bus;
+
+    @ConfigProperty(name = "dicekeeper.membership-cache.ttl-seconds", defaultValue = "300")
+    long ttlSeconds;
+
+    private final ConcurrentHashMap<Key, Entry> entries = new ConcurrentHashMap<>();
+    private final List<InvalidationListener> invalidationListeners = new CopyOnWriteArrayList<>();
+    private long sweepTimerId = -1;
+
+    private record Key(Long campaignId, Long playerId) {
+    }
+
+    private record Entry(Membership membership, long expiresAt) {
+    }
+
+    /** An invalidation sent to the other nodes; null stands for all campaigns or players. */
+    record Invalidation(Long campaignId, Long playerId) {
+    }
+
+    /** A player's membership in a campaign. */
+    public record Membership(Long campaignId, Long playerId, String role, String loginName) {
+        public boolean isDm() {
+            return "DM".equals(role);
+        }
+    }
+
+    /** Receives invalidated memberships; a null campaign or player stands for all of them. */
+    @FunctionalInterface
+    public interface InvalidationListener {
+        void invalidated(Long campaignId, Long playerId);
+    }
+
+    public void addInvalidationListener(InvalidationListener listener) {
+        invalidationListeners.add(listener);
+    }
+
+    void onStart(@Observes StartupEvent event) {
+        Gauge.builder("dicekeeper.membership-cache.size", entries, ConcurrentHashMap::size)
+                .description("Cached campaign memberships")
+                .register(meterRegistry);
+        bus = buses.get();
+        bus.subscribeNodes(this::onNodeMessage);
+        if (ttlSeconds > 0) {
+            sweepTimerId = vertx.setPeriodic(ttlSeconds * 1000, ignored -> sweep());
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        if (sweepTimerId >= 0) {
+            vertx.cancelTimer(sweepTimerId);
+        }
+    }
+
+    /** Returns the membership, or null if the player is not a member of the campaign. */
+    public Membership find(Long campaignId, Long playerId) {
+        if (campaignId == null || playerId == null) {
+            return null;
+        }
+        Key key = new Key(campaignId, playerId);
+        long now = System.currentTimeMillis();
+        Entry cached = entries.get(key);
+        if (cached != null && cached.expiresAt() > now) {
+            return cached.membership();
+        }
+
+        Membership loaded = load(campaignId, playerId);
+        if (loaded == null) {
+            entries.remove(key);
+            return null;
+        }
+        if (ttlSeconds > 0) {
+            entries.put(key, new Entry(loaded, now + ttlSeconds * 1000));
+        }
+        return loaded;
+    }
+
+    /** Drops a player's membership on every node; call wherever it is created, changed or deleted. */
+    public void invalidate(Long campaignId, Long playerId) {
+        invalidateAfterCommit(campaignId, playerId);
+    }
+
+    /** Drops all memberships of a campaign on every node, e.g. when it is deleted. */
+    public void invalidateCampaign(Long campaignId) {
+        invalidateAfterCommit(campaignId, null);
+    }
+
+    /** Drops all memberships of a player on every node, e.g. when the account is deleted. */
+    public void invalidatePlayer(Long playerId) {
+        invalidateAfterCommit(null, playerId);
+    }
+
+    // Removes now and again once the transaction completed, so a lookup running concurrently
+    // with the change cannot put the old membership back. Listeners and the other nodes hear
+    // about committed changes only.
+    private void invalidateAfterCommit(Long campaignId, Long playerId) {
+        remove(campaignId, playerId);
+        if (transactionRegistry.getTransactionStatus() != Status.STATUS_ACTIVE) {
+            committed(campaignId, playerId);
+            return;
+        }
+        transactionRegistry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                remove(campaignId, playerId);
+                if (status == Status.STATUS_COMMITTED) {
+                    committed(campaignId, playerId);
+                }
+            }
+        });
+    }
+
+    private void remove(Long campaignId, Long playerId) {
+        if (campaignId != null && playerId != null) {
+            entries.remove(new Key(campaignId, playerId));
+            return;
+        }
+        entries.keySet().removeIf(key -> (campaignId == null || key.campaignId().equals(campaignId))
+                && (playerId == null || key.playerId().equals(playerId)));
+    }
+
+    private void committed(Long campaignId, Long playerId) {
+        notifyListeners(campaignId, playerId);
+        try {
+            bus.publishToNodes(INVALIDATED_MESSAGE, objectMapper.writeValueAsString(new Invalidation(campaignId, playerId)));
+        } catch (JsonProcessingException e) {
+            LOG.errorf(e, "Could not publish membership invalidation: campaign=%s player=%s", campaignId, playerId);
+        }
+    }
+
+    // Another node committed a membership change
+    void onNodeMessage(String type, String json) {
+        if (!INVALIDATED_MESSAGE.equals(type)) {
+            return;
+        }
+        Invalidation invalidation;
+        try {
+            invalidation = objectMapper.readValue(json, Invalidation.class);
+        } catch (JsonProcessingException e) {
+            LOG.errorf(e, "Ignoring malformed membership invalidation: %s", json);
+            return;
+        }
+        remove(invalidation.campaignId(), invalidation.playerId());
+        notifyListeners(invalidation.campaignId(), invalidation.playerId());
+    }
+
+    private void notifyListeners(Long campaignId, Long playerId) {
+        for (InvalidationListener listener : invalidationListeners) {
+            try {
+                listener.invalidated(campaignId, playerId);
+            } catch (RuntimeException e) {
+                LOG.errorf(e, "Membership invalidation listener failed: campaign=%s player=%s", campaignId, playerId);
+            }
+        }
+    }
+
+    Membership load(Long campaignId, Long playerId) {
+        CampaignPlayer membership = CampaignPlayer.find("campaignId = ?1 and playerId = ?2", campaignId, playerId)
+                .firstResult();
+        return membership != null
+                ? new Membership(campaignId, playerId, membership.role, loginName(playerId))
+                : null;
+    }
+
+    private static String loginName(Long playerId) {
+        Player player = Player.findById(playerId);
+        if (player == null) {
+            return "Unknown";
+        }
+        if (player.username != null && !player.username.isBlank()) {
+            return player.username;
+        }
+        return "Player " + playerId;
+    }
+
+    void sweep() {
+        long now = System.currentTimeMillis();
+        entries.values().removeIf(entry -> entry.expiresAt() <= now);
+    }
+}
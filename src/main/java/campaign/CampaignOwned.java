@@ -0,0 +1,18 @@
+package campaign;
+
+import jakarta.ws.rs.NameBinding;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks resources whose requests must be served by the node owning the campaign in the
+ * {@code campaignId} path parameter; see {@link CampaignOwnerFilter}.
+ */
+@NameBinding
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE, ElementType.METHOD})
+public @interface CampaignOwned {
+}
@@ -0,0 +1,111 @@
+package campaign;
+
+import jakarta.inject.Inject;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerRequestFilter;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.ext.Provider;
+import org.jboss.logging.Logger;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpResponse;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Proxies requests for a campaign owned by another node to that node, so the game state is
+ * only ever read and changed in one place. Requests that were already forwarded are always
+ * served locally, which prevents loops while two nodes briefly disagree about the owner.
+ * A request only moves to another node if it never reached the owner and the health checks
+ * already consider the owner down; otherwise the client gets an error and may retry.
+ */
+@Provider
+@CampaignOwned
+public class CampaignOwnerFilter implements ContainerRequestFilter {
+
+    private static final Logger LOG = Logger.getLogger(CampaignOwnerFilter.class);
+    private static final List<String> FORWARDED_REQUEST_HEADERS = List.of(
+            HttpHeaders.COOKIE, HttpHeaders.AUTHORIZATION, HttpHeaders.CONTENT_TYPE, HttpHeaders.ACCEPT,
+            HttpHeaders.IF_NONE_MATCH, HttpHeaders.IF_MATCH,
+            HttpHeaders.IF_MODIFIED_SINCE, HttpHeaders.IF_UNMODIFIED_SINCE);
+    // Hop-by-hop headers and the ones the local response sets itself are not copied back
+    private static final Set<String> UNFORWARDED_RESPONSE_HEADERS = Set.of(
+            "connection", "keep-alive", "proxy-authenticate", "proxy-authorization", "te", "trailer",
+            "transfer-encoding", "upgrade", "content-length");
+
+    @Inject
+    CampaignShardRouter router;
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) throws IOException {
+        if (!router.clustered() || router.trusts(requestContext.getHeaderString(CampaignShardRouter.SECRET_HEADER))) {
+            return;
+        }
+        Long campaignId;
+        try {
+            campaignId = Long.valueOf(requestContext.getUriInfo().getPathParameters().getFirst("campaignId"));
+        } catch (NumberFormatException e) {
+            return;
+        }
+
+        String owner = router.remoteOwnerOf(campaignId);
+        if (owner == null) {
+            return;
+        }
+        byte[] body = requestContext.hasEntity() ? requestContext.getEntityStream().readAllBytes() : new byte[0];
+        Map<String, String> headers = new HashMap<>();
+        for (String name : FORWARDED_REQUEST_HEADERS) {
+            String value = requestContext.getHeaderString(name);
+            if (value != null) {
+                headers.put(name, value);
+            }
+        }
+        URI uri = requestContext.getUriInfo().getRequestUri();
+        String pathAndQuery = uri.getRawPath() + (uri.getRawQuery() != null ? "?" + uri.getRawQuery() : "");
+
+        while (owner != null) {
+            try {
+                HttpResponse<byte[]> response = router.send(owner, requestContext.getMethod(), pathAndQuery, headers, body);
+                requestContext.abortWith(relay(response));
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                requestContext.abortWith(Response.status(Response.Status.SERVICE_UNAVAILABLE).build());
+                return;
+            } catch (IOException e) {
+                LOG.warnv("Campaign {0} owner {1} unreachable: {2}", campaignId, owner, e.getMessage());
+                String next = CampaignShardRouter.notSent(e) ? router.remoteOwnerOf(campaignId) : owner;
+                if (owner.equals(next)) {
+                    requestContext.abortWith(Response.status(CampaignShardRouter.unreachableStatus(e)).build());
+                    return;
+                }
+                owner = next;
+            }
+        }
+        // This node took over the campaign; serve the request here.
+        requestContext.setEntityStream(new ByteArrayInputStream(body));
+    }
+
+    // Copies status, body and end-to-end headers (ETag, Cache-Control, ...) of the owner's response
+    private static Response relay(HttpResponse<byte[]> response) {
+        Response.ResponseBuilder forwarded = Response.status(response.statusCode());
+        if (response.body().length > 0) {
+            forwarded.entity(response.body());
+        }
+        response.headers().map().forEach((name, values) -> {
+            if (name.startsWith(":") || UNFORWARDED_RESPONSE_HEADERS.contains(name.toLowerCase(Locale.ROOT))) {
+                return;
+            }
+            for (String value : values) {
+                forwarded.header(name, value);
+            }
+        });
+        return forwarded.build();
+    }
+}
@@ -5,6 +5,7 @@ import io.quarkus.security.Authenticated;
 import io.quarkus.security.identity.SecurityIdentity;
 import jakarta.inject.Inject;
 import notification.Notification;
+import notification.NotificationBroadcaster;
 import player.Player;
 import jakarta.transaction.Transactional;
 import jakarta.ws.rs.*;
@@ -28,6 +29,12 @@ public class CampaignPlayerResource {
     @Inject
     SseBroadcaster broadcaster;
 
+    @Inject
+    CampaignMembershipCache memberships;
+
+    @Inject
+    NotificationBroadcaster notifications;
+
     @GET
     @Path("{campaignId}")
     public Response getCampaignPlayers(@PathParam("campaignId") Long campaignId) {
@@ -154,6 +161,7 @@ public class CampaignPlayerResource {
 
         CampaignPlayer cp = new CampaignPlayer(campaignId, playerId, "PLAYER");
         cp.persist();
+        memberships.invalidate(campaignId, playerId);
         broadcastRosterUpdate(campaignId, "joined", playerId);
 
         // Return with needsCharacter flag to redirect user to character creation
@@ -222,6 +230,7 @@ public class CampaignPlayerResource {
                 cp.id // CampaignPlayer ID for easy lookup
         );
         dmNotification.persist();
+        notifications.publish(dmNotification);
         broadcastRosterUpdate(campaignId, "character_submitted", playerId);
 
         return Response.ok(cp).build();
@@ -259,6 +268,7 @@ public class CampaignPlayerResource {
 
         playerCp.characterStatus = "APPROVED";
         playerCp.dmNotes = null;
+        memberships.invalidate(campaignId, playerCp.playerId);
 
         // Notify the player
         Campaign campaign = Campaign.findById(campaignId);
@@ -273,6 +283,7 @@ public class CampaignPlayerResource {
                 playerCp.characterId
         );
         playerNotification.persist();
+        notifications.publish(playerNotification);
         broadcastRosterUpdate(campaignId, "character_approved", playerCp.playerId);
 
         return Response.ok(playerCp).build();
@@ -312,6 +323,7 @@ public class CampaignPlayerResource {
 
         playerCp.characterStatus = "REJECTED";
         playerCp.dmNotes = rejectDTO.notes;
+        memberships.invalidate(campaignId, playerCp.playerId);
 
         // Notify the player
         Campaign campaign = Campaign.findById(campaignId);
@@ -326,6 +338,7 @@ public class CampaignPlayerResource {
                 playerCp.characterId
         );
         playerNotification.persist();
+        notifications.publish(playerNotification);
         broadcastRosterUpdate(campaignId, "character_rejected", playerCp.playerId);
 
         return Response.ok(playerCp).build();
@@ -369,6 +382,7 @@ public class CampaignPlayerResource {
                 cp.id
         );
         dmNotification.persist();
+        notifications.publish(dmNotification);
         broadcastRosterUpdate(campaignId, "character_resubmitted", playerId);
 
         return Response.ok(cp).build();
@@ -397,6 +411,7 @@ public class CampaignPlayerResource {
             }
 
             targetMembership.delete();
+            memberships.invalidate(campaignId, playerId);
             broadcastRosterUpdate(campaignId, "left", playerId);
             return Response.noContent().build();
         }
@@ -414,6 +429,7 @@ public class CampaignPlayerResource {
         }
 
         targetMembership.delete();
+        memberships.invalidate(campaignId, playerId);
         broadcastRosterUpdate(campaignId, "removed", playerId);
         return Response.noContent().build();
     }
@@ -0,0 +1,284 @@
+package campaign;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import io.vertx.core.Vertx;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decides which node owns the authoritative game state of a campaign. Members are listed in
+ * {@code dicekeeper.cluster.members}; without that list every campaign is local and nothing
+ * is forwarded. When a member leaves, its campaigns move to the next member on the ring and
+ * the leaving node hands their state over; when it comes back, they are handed back.
+ * A member that did not announce its departure is only considered down after
+ * {@code dicekeeper.cluster.down-after-failures} failed health checks in a row, and stays
+ * down only while the checks keep failing, at most {@code dicekeeper.cluster.down-ttl-seconds}
+ * after the last failure. A single failed request never moves a campaign.
+ */
+@ApplicationScoped
+public class CampaignShardRouter {
+
+    private static final Logger LOG = Logger.getLogger(CampaignShardRouter.class);
+    public static final String SECRET_HEADER = "X-Dicekeeper-Cluster-Secret";
+    public static final String FORWARDED_HEADER = "X-Dicekeeper-Forwarded-By";
+
+    @Inject
+    GameState gameState;
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    @Inject
+    Vertx vertx;
+
+    @ConfigProperty(name = "dicekeeper.cluster.self")
+    Optional<String> self;
+
+    @ConfigProperty(name = "dicekeeper.cluster.members")
+    Optional<List<String>> members;
+
+    @ConfigProperty(name = "dicekeeper.cluster.secret")
+    Optional<String> secret;
+
+    @ConfigProperty(name = "dicekeeper.cluster.virtual-nodes", defaultValue = "64")
+    int virtualNodes;
+
+    @ConfigProperty(name = "dicekeeper.cluster.health-check-interval-seconds", defaultValue = "5")
+    long healthCheckIntervalSeconds;
+
+    @ConfigProperty(name = "dicekeeper.cluster.down-after-failures", defaultValue = "3")
+    int downAfterFailures;
+
+    @ConfigProperty(name = "dicekeeper.cluster.down-ttl-seconds", defaultValue = "60")
+    long downTtlSeconds;
+
+    // member → time its down state expires
+    private final Map<String, Long> downMembers = new ConcurrentHashMap<>();
+    // member → health checks failed in a row
+    private final Map<String, Integer> healthFailures = new ConcurrentHashMap<>();
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(2))
+            .build();
+    private ConsistentHashRing ring;
+
+    void onStart(@Observes StartupEvent event) {
+        if (!clustered()) {
+            return;
+        }
+        ring = new ConsistentHashRing(members.get(), virtualNodes);
+        LOG.infov("Campaign sharding enabled: self={0} members={1}", self.get(), members.get());
+        Thread.ofVirtual().name("campaign-shard-join").start(() -> announce("up"));
+        vertx.setPeriodic(healthCheckIntervalSeconds * 1000, id -> vertx.executeBlocking(() -> {
+            checkHealth();
+            return null;
+        }, true));
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        if (!clustered()) {
+            return;
+        }
+        downMembers.put(self.get(), Long.MAX_VALUE);
+        announce("down");
+        rebalance();
+    }
+
+    public boolean clustered() {
+        return self.isPresent() && members.isPresent() && members.get().size() > 1
+                && secret.isPresent() && members.get().contains(self.get());
+    }
+
+    public String self() {
+        return self.orElse(null);
+    }
+
+    /** Returns the owning member, or {@code null} when the campaign is served locally. */
+    public String remoteOwnerOf(Long campaignId) {
+        if (!clustered()) {
+            return null;
+        }
+        String owner = ring.owner(campaignId, downMembers.keySet());
+        return owner == null || owner.equals(self.get()) ? null : owner;
+    }
+
+    public boolean trusts(String presentedSecret) {
+        return secret.isPresent() && presentedSecret != null && MessageDigest.isEqual(
+                secret.get().getBytes(StandardCharsets.UTF_8),
+                presentedSecret.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** Marks a member down until {@code dicekeeper.cluster.down-ttl-seconds} from now. */
+    public void markDown(String member) {
+        if (member == null || member.equals(self.orElse(null))) {
+            return;
+        }
+        if (downMembers.put(member, System.currentTimeMillis() + downTtlSeconds * 1000) == null) {
+            LOG.warnv("Cluster member {0} marked down", member);
+        }
+    }
+
+    public void markUp(String member) {
+        if (member != null) {
+            healthFailures.remove(member);
+        }
+        if (member != null && downMembers.remove(member) != null) {
+            LOG.infov("Cluster member {0} is back", member);
+        }
+    }
+
+    /**
+     * Whether a failed {@link #send} never reached the member, so the request was not
+     * executed there. Only then may it be retried on another node.
+     */
+    public static boolean notSent(IOException e) {
+        return e instanceof HttpConnectTimeoutException || e instanceof ConnectException
+                || e.getCause() instanceof ConnectException;
+    }
+
+    /** HTTP status for a request whose owner could not be reached or did not answer. */
+    public static int unreachableStatus(IOException e) {
+        if (notSent(e)) {
+            return 503;
+        }
+        return e instanceof HttpTimeoutException ? 504 : 502;
+    }
+
+    /**
+     * Probes every other member; one that failed {@code down-after-failures} checks in a row
+     * is marked down, one that answers again is marked up, and expired down states lapse.
+     */
+    void checkHealth() {
+        boolean changed = false;
+        for (String member : members.get()) {
+            if (member.equals(self.get())) {
+                continue;
+            }
+            if (healthy(member)) {
+                healthFailures.remove(member);
+                if (downMembers.remove(member) != null) {
+                    LOG.infov("Cluster member {0} is back", member);
+                    changed = true;
+                }
+            } else if (healthFailures.merge(member, 1, Integer::sum) >= downAfterFailures) {
+                markDown(member);
+            }
+        }
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, Long> down : downMembers.entrySet()) {
+            if (down.getValue() < now && downMembers.remove(down.getKey(), down.getValue())) {
+                LOG.infov("Down state of cluster member {0} expired", down.getKey());
+                changed = true;
+            }
+        }
+        if (changed) {
+            rebalance();
+        }
+    }
+
+    private boolean healthy(String member) {
+        try {
+            return send(member, "GET", "/internal/cluster/health", Map.of(), new byte[0], Duration.ofSeconds(2))
+                    .statusCode() == 204;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (IOException e) {
+            LOG.debugv("Health check of {0} failed: {1}", member, e.getMessage());
+            return false;
+        }
+    }
+
+    /** Sends a request to another member, adding the cluster secret and loop-prevention header. */
+    public HttpResponse<byte[]> send(String member, String method, String pathAndQuery,
+                                     Map<String, String> headers, byte[] body)
+            throws IOException, InterruptedException {
+        return send(member, method, pathAndQuery, headers, body, Duration.ofSeconds(10));
+    }
+
+    private HttpResponse<byte[]> send(String member, String method, String pathAndQuery,
+                                      Map<String, String> headers, byte[] body, Duration timeout)
+            throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(member + pathAndQuery))
+                .timeout(timeout)
+                .header(SECRET_HEADER, secret.orElse(""))
+                .header(FORWARDED_HEADER, self.orElse(""))
+                .method(method, body.length == 0
+                        ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofByteArray(body));
+        headers.forEach(request::header);
+        return httpClient.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    /** Hands every campaign held here but owned elsewhere over to its owner. */
+    public void rebalance() {
+        for (Long campaignId : gameState.campaignIds()) {
+            String owner = remoteOwnerOf(campaignId);
+            GameState.CampaignGameState state = gameState.find(campaignId);
+            if (owner == null || state == null) {
+                continue;
+            }
+            try {
+                byte[] body = objectMapper.writeValueAsBytes(state.export());
+                HttpResponse<byte[]> response = send(owner, "PUT",
+                        "/internal/cluster/campaigns/" + campaignId + "/state",
+                        Map.of("Content-Type", "application/json"), body);
+                if (response.statusCode() / 100 == 2) {
+                    gameState.remove(campaignId);
+                    LOG.infov("Handed campaign {0} over to {1}", campaignId, owner);
+                } else {
+                    LOG.warnv("Handover of campaign {0} to {1} failed with status {2}",
+                            campaignId, owner, response.statusCode());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                LOG.warnv("Handover of campaign {0} to {1} failed: {2}", campaignId, owner, e.getMessage());
+            }
+        }
+    }
+
+    private void announce(String status) {
+        byte[] body;
+        try {
+            body = objectMapper.writeValueAsBytes(Map.of("member", self.get()));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        for (String member : members.get()) {
+            if (member.equals(self.get())) {
+                continue;
+            }
+            try {
+                send(member, "POST", "/internal/cluster/members/" + status,
+                        Map.of("Content-Type", "application/json"), body);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                LOG.debugv("Could not announce {0} to {1}: {2}", status, member, e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package campaign;
+
+import jakarta.annotation.security.PermitAll;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+
+import java.util.Map;
+
+/**
+ * Node-to-node endpoints for campaign handover. Not for browsers: every call must carry the
+ * shared cluster secret.
+ */
+@Path("/internal/cluster")
+@Produces(MediaType.APPLICATION_JSON)
+@Consumes(MediaType.APPLICATION_JSON)
+@PermitAll
+public class ClusterResource {
+
+    @Inject
+    CampaignShardRouter router;
+
+    @Inject
+    GameState gameState;
+
+    @PUT
+    @Path("campaigns/{campaignId}/state")
+    public Response receiveCampaign(@HeaderParam(CampaignShardRouter.SECRET_HEADER) String secret,
+                                    @PathParam("campaignId") Long campaignId,
+                                    GameState.StateTransfer transfer) {
+        if (!router.trusts(secret)) {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+        if (transfer == null) {
+            return Response.status(Response.Status.BAD_REQUEST).entity("state required").build();
+        }
+        gameState.install(campaignId, GameState.CampaignGameState.restore(transfer));
+        return Response.noContent().build();
+    }
+
+    @GET
+    @Path("health")
+    public Response health(@HeaderParam(CampaignShardRouter.SECRET_HEADER) String secret) {
+        if (!router.trusts(secret)) {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+        return Response.noContent().build();
+    }
+
+    @POST
+    @Path("members/down")
+    public Response memberDown(@HeaderParam(CampaignShardRouter.SECRET_HEADER) String secret,
+                               Map<String, String> body) {
+        if (!router.trusts(secret)) {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+        router.markDown(body != null ? body.get("member") : null);
+        return Response.noContent().build();
+    }
+
+    @POST
+    @Path("members/up")
+    public Response memberUp(@HeaderParam(CampaignShardRouter.SECRET_HEADER) String secret,
+                             Map<String, String> body) {
+        if (!router.trusts(secret)) {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+        router.markUp(body != null ? body.get("member") : null);
+        router.rebalance();
+        return Response.noContent().build();
+    }
+}
@@ -0,0 +1,58 @@
+package campaign;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Consistent-hash ring over the cluster members. Each member gets several virtual nodes, so
+ * removing one member only moves the campaigns it owned.
+ */
+final class ConsistentHashRing {
+
+    private final TreeMap<Long, String> ring = new TreeMap<>();
+
+    ConsistentHashRing(Collection<String> members, int virtualNodes) {
+        for (String member : members) {
+            for (int i = 0; i < virtualNodes; i++) {
+                ring.put(hash(member + "#" + i), member);
+            }
+        }
+    }
+
+    /** Returns the first member clockwise from the campaign's hash that is not excluded. */
+    String owner(Long campaignId, Set<String> excluded) {
+        if (ring.isEmpty()) {
+            return null;
+        }
+        long point = hash("campaign:" + campaignId);
+        for (Map.Entry<Long, String> entry : ring.tailMap(point, true).entrySet()) {
+            if (!excluded.contains(entry.getValue())) {
+                return entry.getValue();
+            }
+        }
+        for (Map.Entry<Long, String> entry : ring.headMap(point, false).entrySet()) {
+            if (!excluded.contains(entry.getValue())) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
+    private static long hash(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(key.getBytes(StandardCharsets.UTF_8));
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value = (value << 8) | (digest[i] & 0xff);
+            }
+            return value;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 not available", e);
+        }
+    }
+}
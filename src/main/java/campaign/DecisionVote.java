@@ -0,0 +1,50 @@
+package campaign;
+
+import io.quarkus.hibernate.orm.panache.PanacheEntity;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Table;
+
+/** One player's vote on a {@link GroupDecision}; a player votes at most once per decision. */
+@Entity
+@Table(name = "decision_vote")
+public class DecisionVote extends PanacheEntity {
+
+    // The unique (decision_id, player_id) index decides which of two concurrent votes counts.
+    private static final String INSERT_VOTE = """
+            insert into decision_vote (id, decision_id, player_id, option_index, created_at)
+            values (nextval('decision_vote_seq'), ?1, ?2, ?3, ?4)
+            on conflict (decision_id, player_id) do nothing""";
+
+    @Column(name = "decision_id", nullable = false)
+    public Long decisionId;
+
+    @Column(name = "player_id", nullable = false)
+    public Long playerId;
+
+    // Index into the decision's options; null for votes from before votes were stored, whose choice is unknown
+    @Column(name = "option_index")
+    public Integer optionIndex;
+
+    @Column(name = "created_at", nullable = false)
+    public Long createdAt;
+
+    /**
+     * Stores the vote unless the player already voted on the decision; returns false if there
+     * already was a vote. The nextval takes the last id of a block reserved for Hibernate's
+     * pooled optimizer, so it never collides with ids Hibernate hands out.
+     */
+    public static boolean record(Long decisionId, Long playerId, int optionIndex) {
+        return getEntityManager().createNativeQuery(INSERT_VOTE)
+                .setParameter(1, decisionId)
+                .setParameter(2, playerId)
+                .setParameter(3, optionIndex)
+                .setParameter(4, System.currentTimeMillis())
+                .executeUpdate() > 0;
+    }
+
+    /** Deletes the votes on all decisions of a campaign. */
+    public static void deleteByCampaign(Long campaignId) {
+        delete("decisionId in (select d.id from GroupDecision d where d.campaignId = ?1)", campaignId);
+    }
+}
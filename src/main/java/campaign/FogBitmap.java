@@ -0,0 +1,188 @@
+package campaign;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+import java.awt.image.WritableRaster;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Base64;
+import java.util.Iterator;
+
+/**
+ * Explored cells of a campaign map: a 256×256 grid at one bit per cell (8 KiB), row-major,
+ * most significant bit first. Instances are immutable, so undo entries can share them.
+ * Clients draw explored cells with soft edges themselves; the server only keeps the
+ * explored/unexplored decision.
+ */
+public final class FogBitmap {
+
+    public static final int SIZE = 256;
+    public static final int BYTES = SIZE * SIZE / 8;
+    /** Canvas alpha from which a cell of an uploaded PNG counts as explored. */
+    private static final int EXPLORED_ALPHA = 128;
+    private static final String PNG_DATA_URL_PREFIX = "data:image/png;base64,";
+    /** Largest uploaded PNG that is decoded; older clients sent fog at the map canvas size. */
+    static final int MAX_PNG_SIDE = 8192;
+    static final long MAX_PNG_PIXELS = 16L * 1024 * 1024;
+
+    private final byte[] bits;
+    // Rendered on first use; the bitmap never changes, so the PNG is shared by every reader
+    private volatile String pngDataUrl;
+
+    private FogBitmap(byte[] bits) {
+        this.bits = bits;
+    }
+
+    public static FogBitmap empty() {
+        return new FogBitmap(new byte[BYTES]);
+    }
+
+    public static FogBitmap fromBytes(byte[] bytes) {
+        if (bytes.length != BYTES) {
+            throw new IllegalArgumentException("Fog bitmap must be " + BYTES + " bytes, got " + bytes.length);
+        }
+        return new FogBitmap(bytes.clone());
+    }
+
+    /**
+     * Reads a PNG up to {@link #MAX_PNG_SIDE} pixels per side; cells are explored where the
+     * scaled image is mostly opaque. The size is checked from the header before decoding, so
+     * a small file cannot claim a huge image.
+     */
+    public static FogBitmap fromPng(byte[] png) {
+        BufferedImage image;
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(png))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReadersByFormatName("png");
+            if (input == null || !readers.hasNext()) {
+                throw new IllegalArgumentException("Invalid fog image");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if (width > MAX_PNG_SIDE || height > MAX_PNG_SIDE || (long) width * height > MAX_PNG_PIXELS) {
+                    throw new IllegalArgumentException("Fog image too large: " + width + "x" + height);
+                }
+                image = reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid fog image", e);
+        }
+        if (image.getWidth() != SIZE || image.getHeight() != SIZE) {
+            BufferedImage scaled = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D graphics = scaled.createGraphics();
+            graphics.drawImage(image, 0, 0, SIZE, SIZE, null);
+            graphics.dispose();
+            image = scaled;
+        }
+        byte[] bits = new byte[BYTES];
+        for (int y = 0; y < SIZE; y++) {
+            for (int x = 0; x < SIZE; x++) {
+                if ((image.getRGB(x, y) >>> 24) >= EXPLORED_ALPHA) {
+                    int cell = y * SIZE + x;
+                    bits[cell >> 3] |= (byte) (0x80 >>> (cell & 7));
+                }
+            }
+        }
+        return new FogBitmap(bits);
+    }
+
+    /** Accepts both {@link #encode()} output and the PNG data URLs stored by older versions. */
+    public static FogBitmap decode(String value) {
+        if (value.startsWith("data:")) {
+            int comma = value.indexOf(',');
+            return fromPng(Base64.getDecoder().decode(value.substring(comma + 1)));
+        }
+        return fromBytes(Base64.getDecoder().decode(value));
+    }
+
+    /**
+     * Returns a bitmap with the given horizontal runs explored, or this instance when all of
+     * them were explored already. Runs are flattened {@code (y, x, length)} triples.
+     */
+    public FogBitmap reveal(int[] runs) {
+        validateRuns(runs);
+        byte[] merged = null;
+        for (int i = 0; i < runs.length; i += 3) {
+            int start = runs[i] * SIZE + runs[i + 1];
+            for (int cell = start; cell < start + runs[i + 2]; cell++) {
+                byte mask = (byte) (0x80 >>> (cell & 7));
+                if ((bits[cell >> 3] & mask) == 0) {
+                    if (merged == null) {
+                        merged = bits.clone();
+                    }
+                    merged[cell >> 3] |= mask;
+                }
+            }
+        }
+        return merged != null ? new FogBitmap(merged) : this;
+    }
+
+    static void validateRuns(int[] runs) {
+        if (runs.length % 3 != 0) {
+            throw new IllegalArgumentException("Fog runs must be (y, x, length) triples");
+        }
+        for (int i = 0; i < runs.length; i += 3) {
+            int y = runs[i];
+            int x = runs[i + 1];
+            int length = runs[i + 2];
+            if (y < 0 || y >= SIZE || x < 0 || x >= SIZE || length < 1 || x + length > SIZE) {
+                throw new IllegalArgumentException("Fog run out of bounds: " + y + "," + x + "," + length);
+            }
+        }
+    }
+
+    public String encode() {
+        return Base64.getEncoder().encodeToString(bits);
+    }
+
+    public byte[] toBytes() {
+        return bits.clone();
+    }
+
+    public boolean isExplored(int x, int y) {
+        int cell = y * SIZE + x;
+        return (bits[cell >> 3] & (0x80 >>> (cell & 7))) != 0;
+    }
+
+    /** Renders explored cells as opaque white on transparent, as a 1-bit indexed PNG. */
+    public String toPngDataUrl() {
+        String rendered = pngDataUrl;
+        if (rendered == null) {
+            rendered = renderPng();
+            pngDataUrl = rendered;
+        }
+        return rendered;
+    }
+
+    private String renderPng() {
+        byte[] transparentWhite = {(byte) 255, (byte) 255};
+        IndexColorModel palette = new IndexColorModel(1, 2, transparentWhite, transparentWhite, transparentWhite,
+                new byte[]{0, (byte) 255});
+        BufferedImage image = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_BYTE_BINARY, palette);
+        WritableRaster raster = image.getRaster();
+        for (int y = 0; y < SIZE; y++) {
+            for (int x = 0; x < SIZE; x++) {
+                if (isExplored(x, y)) {
+                    raster.setSample(x, y, 0, 1);
+                }
+            }
+        }
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        try {
+            ImageIO.write(image, "png", png);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return PNG_DATA_URL_PREFIX + Base64.getEncoder().encodeToString(png.toByteArray());
+    }
+}
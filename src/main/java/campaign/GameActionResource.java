@@ -1,15 +1,26 @@
 package campaign;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import jakarta.inject.Inject;
 import io.quarkus.security.Authenticated;
 import io.quarkus.security.identity.SecurityIdentity;
+import io.quarkus.narayana.jta.QuarkusTransaction;
 import jakarta.transaction.Transactional;
 import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.CacheControl;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.EntityTag;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
-import player.Player;
 import security.SecurityIdentityService;
 
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -17,11 +28,15 @@ import java.util.stream.Collectors;
 /**
  * REST endpoints for game actions: turn management, dice rolls, HP changes.
  * All actions broadcast via SSE to all connected clients.
+ * Requests are served by the node owning the campaign's game state (see {@link CampaignOwned}).
+ * Authorization runs on the request thread; state changes and their broadcasts run in the
+ * campaign's {@link CampaignMailbox}, one command at a time.
  */
 @Path("/api/campaign/{campaignId}/game")
 @Produces(MediaType.APPLICATION_JSON)
 @Consumes(MediaType.APPLICATION_JSON)
 @Authenticated
+@CampaignOwned
 public class GameActionResource {
 
     @Inject
@@ -30,12 +45,27 @@ public class GameActionResource {
     @Inject
     SseBroadcaster broadcaster;
 
+    @Inject
+    CampaignMailbox mailbox;
+
+    @Inject
+    MarkerMoveCoalescer markerMoves;
+
+    @Inject
+    GameCommands commands;
+
+    @Inject
+    CampaignMembershipCache memberships;
+
     @Inject
     SecurityIdentityService securityIdentityService;
 
     @Inject
     SecurityIdentity securityIdentity;
 
+    @Inject
+    ObjectMapper objectMapper;
+
     // ===== FULL STATE SNAPSHOT (for reconnect) =====
 
     @GET
@@ -50,6 +80,65 @@ public class GameActionResource {
         return Response.ok(state.snapshot()).build();
     }
 
+    // ===== DASHBOARD =====
+
+    /**
+     * Everything the campaign view loads, in one response: the campaign, its members, the
+     * decisions and the game state (which includes the markers and the fog). One membership
+     * check and three queries. The ETag is a hash of the body, so a client revalidating
+     * an unchanged campaign gets a 304 without the body.
+     */
+    @GET
+    @Path("dashboard")
+    public Response getDashboard(@PathParam("campaignId") Long campaignId,
+                                 @Context Request request) throws JsonProcessingException {
+        CampaignMembershipCache.Membership membership = findMembership(campaignId, currentPlayerId());
+        if (membership == null) {
+            return requireCampaignMember(campaignId);
+        }
+        Campaign campaign = Campaign.findById(campaignId);
+        if (campaign == null) {
+            return Response.status(Response.Status.NOT_FOUND).entity("Campaign not found").build();
+        }
+
+        GameState.CampaignGameState state = gameState.getOrCreate(campaignId);
+        Map<String, Object> dashboard = new LinkedHashMap<>();
+        dashboard.put("campaign", new CampaignDTO(campaign, membership.isDm()));
+        dashboard.put("players", CampaignPlayer.list("campaignId", campaignId));
+        dashboard.put("decisions", GroupDecision.<GroupDecision>list("campaignId = ?1 order by createdAt desc", campaignId)
+                .stream()
+                .map(GameActionResource::decisionPayload)
+                .collect(Collectors.toList()));
+        dashboard.put("state", state.snapshot());
+
+        // Sorted map keys keep the body, and so the ETag, stable for the same content
+        byte[] body = objectMapper.writer()
+                .with(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)
+                .writeValueAsBytes(dashboard);
+        EntityTag etag = new EntityTag(contentHash(body));
+        CacheControl cacheControl = new CacheControl();
+        cacheControl.setPrivate(true);
+        cacheControl.setNoCache(true);
+
+        Response.ResponseBuilder notModified = request.evaluatePreconditions(etag);
+        if (notModified != null) {
+            return notModified.cacheControl(cacheControl).build();
+        }
+        return Response.ok(body, MediaType.APPLICATION_JSON_TYPE)
+                .tag(etag)
+                .cacheControl(cacheControl)
+                .build();
+    }
+
+    private static String contentHash(byte[] body) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+            return HexFormat.of().formatHex(digest, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
     // ===== TURN MANAGEMENT =====
 
     @POST
@@ -65,20 +154,12 @@ public class GameActionResource {
         if (playerId == null) {
             return Response.status(Response.Status.BAD_REQUEST).entity("playerId required").build();
         }
-        if (findMembership(campaignId, playerId) == null) {
+        CampaignMembershipCache.Membership target = findMembership(campaignId, playerId);
+        if (target == null) {
             return Response.status(Response.Status.NOT_FOUND).entity("Player not in campaign").build();
         }
-        String playerName = resolvePlayerLoginName(playerId);
 
-        GameState.CampaignGameState state = gameState.getOrCreate(campaignId);
-        state.setTurn(playerId);
-
-        broadcaster.broadcast(campaignId, "turn", Map.of(
-                "playerId", playerId,
-                "playerName", playerName
-        ));
-
-        return Response.ok(Map.of("currentTurnPlayerId", playerId)).build();
+        return Response.ok(commands.setTurn(campaignId, playerId, target.loginName())).build();
     }
 
     // ===== DICE ROLL =====
@@ -88,15 +169,14 @@ public class GameActionResource {
     public Response rollDice(@PathParam("campaignId") Long campaignId,
                              Map<String, Object> body) {
         Long currentPlayerId = currentPlayerId();
-        CampaignPlayer membership = findMembership(campaignId, currentPlayerId);
+        CampaignMembershipCache.Membership membership = findMembership(campaignId, currentPlayerId);
         if (membership == null) {
             return campaignAccessDenied();
         }
 
-        boolean isDm = "DM".equals(membership.role);
         Long submittedPlayerId = toLong(body.get("playerId"));
-        Long playerId = isDm && submittedPlayerId == null ? null : currentPlayerId;
-        String playerName = resolvePlayerLoginName(currentPlayerId);
+        Long playerId = membership.isDm() && submittedPlayerId == null ? null : currentPlayerId;
+        String playerName = membership.loginName();
         String diceType = (String) body.getOrDefault("diceType", "d20");
         Integer result = toInt(body.get("result"));
 
@@ -104,18 +184,7 @@ public class GameActionResource {
             return Response.status(Response.Status.BAD_REQUEST).entity("result required").build();
         }
 
-        GameState.CampaignGameState state = gameState.getOrCreate(campaignId);
-        state.recordDiceRoll(playerId, playerName, diceType, result);
-
-        broadcaster.broadcast(campaignId, "dice", Map.of(
-                "playerId", playerId != null ? playerId : -1,
-                "playerName", playerName,
-                "diceType", diceType,
-                "result", result,
-                "timestamp", System.currentTimeMillis()
-        ));
-
-        return Response.ok(Map.of("result", result)).build();
+        return Response.ok(commands.rollDice(campaignId, playerId, playerName, diceType, result)).build();
     }
 
     // ===== HP MANAGEMENT =====
@@ -139,18 +208,7 @@ public class GameActionResource {
             return Response.status(Response.Status.NOT_FOUND).entity("Player not in campaign").build();
         }
 
-        GameState.CampaignGameState state = gameState.getOrCreate(campaignId);
-        int newHp = state.updateHp(playerId, delta);
-        int maxHp = state.playerMaxHp.getOrDefault(playerId, 0);
-
-        broadcaster.broadcast(campaignId, "hp", Map.of(
-                "playerId", playerId,
-                "currentHp", newHp,
-                "maxHp", maxHp,
-                "delta", delta
-        ));
-
-        return Response.ok(Map.of("playerId", playerId, "currentHp", newHp, "maxHp", maxHp)).build();
+        return Response.ok(commands.updateHp(campaignId, playerId, delta)).build();
     }
 
     // ===== INIT HP (called once per player on game load) =====
@@ -176,16 +234,18 @@ public class GameActionResource {
             return campaignAccessDenied();
         }
 
-        GameState.CampaignGameState state = gameState.getOrCreate(campaignId);
-        state.initializeHp(playerId, hp, maxHp);
-        // Also initialize active state if not set
-        state.playerActive.putIfAbsent(playerId, true);
+        return mailbox.call(campaignId, () -> {
+            GameState.CampaignGameState state = gameState.getOrCreate(campaignId);
+            state.initializeHp(playerId, hp, maxHp);
+            // Also initialize active state if not set
+            state.initializePlayerActive(playerId);
 
-        return Response.ok(Map.of(
-                "playerId", playerId,
-                "hp", state.playerHp.get(playerId),
-                "maxHp", state.playerMaxHp.get(playerId)
-        )).build();
+            return Response.ok(Map.of(
+                    "playerId", playerId,
+                    "hp", state.playerHp.get(playerId),
+                    "maxHp", state.playerMaxHp.get(playerId)
+            )).build();
+        });
     }
 
     // ===== PLAYER ACTIVE STATE =====
@@ -209,15 +269,7 @@ public class GameActionResource {
             return Response.status(Response.Status.NOT_FOUND).entity("Player not in campaign").build();
         }
 
-        GameState.CampaignGameState state = gameState.getOrCreate(campaignId);
-        state.playerActive.put(playerId, active);
-
-        broadcaster.broadcast(campaignId, "player_active", Map.of(
-                "playerId", playerId,
-                "active", active
-        ));
-
-        return Response.ok(Map.of("playerId", playerId, "active", active)).build();
+        return Response.ok(commands.setPlayerActive(campaignId, playerId, active)).build();
     }
 
     // ===== GROUP DECISION =====
@@ -232,16 +284,7 @@ public class GameActionResource {
 
         List<GroupDecision> list = GroupDecision.find(
                 "campaignId = ?1 order by createdAt desc", campaignId).list();
-        return Response.ok(list.stream().map(d -> Map.of(
-                "id", d.id,
-                "title", d.title != null ? d.title : "",
-                "text", d.description != null ? d.description : "",
-                "yes", d.yesVotes,
-                "no", d.noVotes,
-                "totalPlayers", d.totalPlayers,
-                "status", d.status != null ? d.status : "PENDING",
-                "createdAt", d.createdAt != null ? d.createdAt : 0
-        )).collect(Collectors.toList())).build();
+        return Response.ok(list.stream().map(GameActionResource::decisionPayload).collect(Collectors.toList())).build();
     }
 
     @POST
@@ -261,31 +304,49 @@ public class GameActionResource {
             return Response.status(Response.Status.BAD_REQUEST).entity("title and text required").build();
         }
 
+        // Optional option labels; without them the decision is a yes/no vote
+        List<String> options = null;
+        if (body.get("options") != null) {
+            options = GroupDecision.parseOptions(body.get("options"));
+            if (options == null) {
+                return Response.status(Response.Status.BAD_REQUEST).entity(GroupDecision.INVALID_OPTIONS).build();
+            }
+        }
+
         // Count how many PLAYER entries are in this campaign (not DM)
         long playerCount = CampaignPlayer.find(
                 "campaignId = ?1 and role = 'PLAYER'", campaignId).count();
 
         GroupDecision decision = new GroupDecision(campaignId, title, text, (int) playerCount);
+        if (options != null) {
+            decision.setOptions(options);
+        }
         decision.persist();
 
-        Map<String, Object> payload = Map.of(
-                "id", decision.id,
-                "title", title,
-                "text", text,
-                "yes", 0,
-                "no", 0,
-                "totalPlayers", (int) playerCount,
-                "status", "PENDING",
-                "createdAt", decision.createdAt
-        );
-
+        Map<String, Object> payload = decisionPayload(decision);
         broadcaster.broadcast(campaignId, "decision", payload);
 
         return Response.ok(payload).build();
     }
 
+    private static Map<String, Object> decisionPayload(GroupDecision decision) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("id", decision.id);
+        payload.put("title", decision.title != null ? decision.title : "");
+        payload.put("text", decision.description != null ? decision.description : "");
+        payload.putAll(GroupDecision.tallyFields(decision.options, decision.optionVotes));
+        payload.put("totalPlayers", decision.totalPlayers);
+        payload.put("status", decision.status != null ? decision.status : "PENDING");
+        payload.put("createdAt", decision.createdAt != null ? decision.createdAt : 0);
+        return payload;
+    }
+
     // ===== VOTE =====
 
+    /**
+     * Votes for {@code option}, an index into the decision's options; a yes/no decision also
+     * accepts {@code vote} "yes" or "no" for its first and second option.
+     */
     @POST
     @Path("vote")
     @Transactional
@@ -295,61 +356,82 @@ public class GameActionResource {
         if (authorizationError != null) {
             return authorizationError;
         }
-
-        Long decisionId = toLong(body.get("decisionId"));
-        String voteType = (String) body.get("vote"); // "yes" or "no"
         Long playerId = currentPlayerId();
-        String playerName = resolvePlayerLoginName(playerId);
-
-        if (decisionId == null || voteType == null) {
-            return Response.status(Response.Status.BAD_REQUEST).entity("decisionId and vote required").build();
+        CampaignMembershipCache.Membership membership = findMembership(campaignId, playerId);
+        if (membership == null) {
+            return campaignAccessDenied();
         }
 
-        GroupDecision decision = GroupDecision.findById(decisionId);
-        if (decision == null || !decision.campaignId.equals(campaignId)) {
-            return Response.status(Response.Status.NOT_FOUND).entity("Decision not found").build();
+        Long decisionId = toLong(body.get("decisionId"));
+        String voteType = (String) body.get("vote"); // "yes" or "no"
+        Integer option = toInt(body.get("option"));
+        if (option == null && voteType != null) {
+            option = switch (voteType) {
+                case "yes" -> 0;
+                case "no" -> 1;
+                default -> null;
+            };
         }
+        String playerName = membership.loginName();
 
-        if ("RESOLVED".equals(decision.status)) {
-            return Response.status(Response.Status.BAD_REQUEST).entity("Decision already resolved").build();
+        if (decisionId == null || option == null) {
+            return Response.status(Response.Status.BAD_REQUEST).entity("decisionId and option required").build();
         }
 
-        if (playerId != null && decision.hasPlayerVoted(playerId)) {
+        // Two statements and no read: the vote row, then the option's count, which resolves the
+        // decision once every player voted. Concurrent votes serialize on the decision row.
+        if (!DecisionVote.record(decisionId, playerId, option)) {
             return Response.status(Response.Status.CONFLICT).entity("Already voted").build();
         }
+        GroupDecision.Tally tally = GroupDecision.countVote(decisionId, campaignId, option);
+        if (tally == null) {
+            QuarkusTransaction.setRollbackOnly();
+            GroupDecision decision = GroupDecision.findById(decisionId);
+            if (decision == null || !decision.campaignId.equals(campaignId)) {
+                return Response.status(Response.Status.NOT_FOUND).entity("Decision not found").build();
+            }
+            if ("RESOLVED".equals(decision.status)) {
+                return Response.status(Response.Status.BAD_REQUEST).entity("Decision already resolved").build();
+            }
+            return Response.status(Response.Status.BAD_REQUEST).entity("Unknown option").build();
+        }
 
-        decision.addVote(playerId, voteType);
+        // Only the option labels are read, and only by the vote that resolves the decision
+        String[] options = null;
+        String decisionMade = null;
+        if (tally.resolved()) {
+            options = GroupDecision.<GroupDecision>findById(decisionId).options;
+            decisionMade = GroupDecision.describeResult(options, tally.optionVotes());
+            GroupDecision.update("decisionMade = ?1 where id = ?2", decisionMade, decisionId);
+        }
 
         // Broadcast the vote
-        broadcaster.broadcast(campaignId, "vote", Map.of(
-                "decisionId", decisionId,
-                "vote", voteType,
-                "playerName", playerName,
-                "yes", decision.yesVotes,
-                "no", decision.noVotes
-        ));
-
-        // Auto-close if all players voted
-        if (decision.allVoted()) {
-            decision.status = "RESOLVED";
-            decision.resolvedAt = System.currentTimeMillis();
-            String result = decision.yesVotes >= decision.noVotes ? "Ja" : "Nein";
-            decision.decisionMade = result + " (" + decision.yesVotes + " Ja / " + decision.noVotes + " Nein)";
-
-            broadcaster.broadcast(campaignId, "decision_resolved", Map.of(
-                    "decisionId", decisionId,
-                    "status", "RESOLVED",
-                    "result", result,
-                    "yes", decision.yesVotes,
-                    "no", decision.noVotes,
-                    "decisionMade", decision.decisionMade
-            ));
+        Map<String, Object> voteEvent = new LinkedHashMap<>();
+        voteEvent.put("decisionId", decisionId);
+        voteEvent.put("vote", voteType != null ? voteType : "");
+        voteEvent.put("option", option);
+        voteEvent.put("playerName", playerName);
+        voteEvent.put("yes", tally.optionVotes()[0]);
+        voteEvent.put("no", tally.optionVotes().length > 1 ? tally.optionVotes()[1] : 0);
+        voteEvent.put("votes", tally.optionVotes());
+        broadcaster.broadcast(campaignId, "vote", voteEvent);
+
+        // Auto-closed if all players voted
+        if (tally.resolved()) {
+            Map<String, Object> resolved = new LinkedHashMap<>();
+            resolved.put("decisionId", decisionId);
+            resolved.put("status", "RESOLVED");
+            resolved.put("result", options[GroupDecision.winningOption(tally.optionVotes())]);
+            resolved.putAll(GroupDecision.tallyFields(options, tally.optionVotes()));
+            resolved.put("decisionMade", decisionMade);
+            broadcaster.broadcast(campaignId, "decision_resolved", resolved);
         }
 
         return Response.ok(Map.of(
-                "status", decision.status,
-                "yes", decision.yesVotes,
-                "no", decision.noVotes
+                "status", tally.resolved() ? "RESOLVED" : "PENDING",
+                "yes", tally.optionVotes()[0],
+                "no", tally.optionVotes().length > 1 ? tally.optionVotes()[1] : 0,
+                "votes", tally.optionVotes()
         )).build();
     }
 
@@ -387,32 +469,15 @@ public class GameActionResource {
         String groupId = (String) body.get("groupId");
         String playerIds = (String) body.get("playerIds");
         String icon = (String) body.getOrDefault("icon", "📌");
+        // Sent while the DM still holds the marker; the drop comes without it
+        boolean drag = Boolean.TRUE.equals(body.get("drag"));
 
         if (x == null || y == null) {
             return Response.status(Response.Status.BAD_REQUEST).entity("x and y required").build();
         }
 
-        GameState.CampaignGameState state = gameState.getOrCreate(campaignId);
-        state.pushUndo();
-
-        if (markerId != null && state.mapMarkers.containsKey(markerId)) {
-            // Move existing marker
-            GameState.MapMarker marker = state.mapMarkers.get(markerId);
-            marker.x = x;
-            marker.y = y;
-            if (label != null && !label.isEmpty()) marker.label = label;
-
-            broadcaster.broadcast(campaignId, "marker_move", marker.toMap());
-            return Response.ok(marker.toMap()).build();
-        } else {
-            // Add new marker
-            String newId = state.nextMarkerId();
-            GameState.MapMarker marker = new GameState.MapMarker(newId, type, label, x, y, groupId, playerIds, icon);
-            state.mapMarkers.put(newId, marker);
-
-            broadcaster.broadcast(campaignId, "marker_add", marker.toMap());
-            return Response.ok(marker.toMap()).build();
-        }
+        return Response.ok(commands.placeMarker(campaignId, markerId, type, label, x, y, groupId, playerIds, icon, drag))
+                .build();
     }
 
     @DELETE
@@ -424,15 +489,18 @@ public class GameActionResource {
             return authorizationError;
         }
 
-        GameState.CampaignGameState state = gameState.getOrCreate(campaignId);
-        state.pushUndo();
-        GameState.MapMarker removed = state.mapMarkers.remove(markerId);
-        if (removed == null) {
-            return Response.status(Response.Status.NOT_FOUND).entity("Marker not found").build();
-        }
+        return mailbox.call(campaignId, () -> {
+            GameState.CampaignGameState state = gameState.getOrCreate(campaignId);
+            markerMoves.flush(campaignId);
+            state.pushUndo();
+            GameState.MapMarker removed = state.removeMarker(markerId);
+            if (removed == null) {
+                return Response.status(Response.Status.NOT_FOUND).entity("Marker not found").build();
+            }
 
-        broadcaster.broadcast(campaignId, "marker_remove", Map.of("id", markerId));
-        return Response.ok(Map.of("id", markerId)).build();
+            broadcaster.broadcast(campaignId, "marker_remove", Map.of("id", markerId));
+            return Response.ok(Map.of("id", markerId)).build();
+        });
     }
 
     /**
@@ -456,7 +524,12 @@ public class GameActionResource {
             return Response.status(Response.Status.BAD_REQUEST).entity("action and markerIds required").build();
         }
 
+        return mailbox.call(campaignId, () -> applyGroupSplit(campaignId, action, markerIds, body));
+    }
+
+    private Response applyGroupSplit(Long campaignId, String action, List<String> markerIds, Map<String, Object> body) {
         GameState.CampaignGameState state = gameState.getOrCreate(campaignId);
+        markerMoves.flush(campaignId);
         state.pushUndo();
 
         if ("group".equals(action)) {
@@ -501,7 +574,7 @@ public class GameActionResource {
 
             // Remove old markers
             for (String mid : markerIds) {
-                state.mapMarkers.remove(mid);
+                state.removeMarker(mid);
             }
 
             // Create group marker
@@ -510,7 +583,7 @@ public class GameActionResource {
                     groupMarkerId, "player-group", allLabels.toString(),
                     avgX, avgY, groupMarkerId, allPlayerIds.toString(), "👥"
             );
-            state.mapMarkers.put(groupMarkerId, groupMarker);
+            state.putMarker(groupMarker);
 
             List<Map<String, Object>> allMarkers = state.mapMarkers.values().stream()
                     .map(GameState.MapMarker::toMap).collect(Collectors.toList());
@@ -553,7 +626,7 @@ public class GameActionResource {
             }
 
             // Remove old group
-            state.mapMarkers.remove(groupId);
+            state.removeMarker(groupId);
 
             // If remaining > 1, recreate group; if 1, make single player marker
             double baseX = group.x;
@@ -566,14 +639,14 @@ public class GameActionResource {
                         baseX, baseY, newGroupId,
                         String.join(",", remaining), "👥"
                 );
-                state.mapMarkers.put(newGroupId, newGroup);
+                state.putMarker(newGroup);
             } else if (remaining.size() == 1) {
                 String soloId = state.nextMarkerId();
                 GameState.MapMarker solo = new GameState.MapMarker(
                         soloId, "player", remaining.get(0),
                         baseX, baseY, null, remaining.get(0), "🧙"
                 );
-                state.mapMarkers.put(soloId, solo);
+                state.putMarker(solo);
             }
 
             // Create markers for split players: group if >1, solo if 1
@@ -588,7 +661,7 @@ public class GameActionResource {
                         Math.max(0, Math.min(1, baseY + offset)),
                         newSplitGroupId, splitPids, "👥"
                 );
-                state.mapMarkers.put(newSplitGroupId, splitGroup);
+                state.putMarker(splitGroup);
             } else if (toSplit.size() == 1) {
                 String pid = toSplit.get(0).trim();
                 String soloId = state.nextMarkerId();
@@ -598,7 +671,7 @@ public class GameActionResource {
                         Math.max(0, Math.min(1, baseY + offset)),
                         null, pid, "🧙"
                 );
-                state.mapMarkers.put(soloId, solo);
+                state.putMarker(solo);
             }
 
             List<Map<String, Object>> allMarkers = state.mapMarkers.values().stream()
@@ -628,11 +701,30 @@ public class GameActionResource {
         }
 
         GameState.CampaignGameState state = gameState.getOrCreate(campaignId);
-        String data = state.fogExploration;
-        if (data == null) {
+        FogBitmap fog = state.fog;
+        if (fog == null) {
             return Response.ok(Map.of("data", "")).build();
         }
-        return Response.ok(Map.of("data", data)).build();
+        return Response.ok(Map.of("data", fog.toPngDataUrl())).build();
+    }
+
+    /**
+     * Explored cells as raw bits: 256×256, row-major, most significant bit first.
+     * All zero while nothing has been explored.
+     */
+    @GET
+    @Path("fog-exploration/bitmap")
+    @Produces(MediaType.APPLICATION_OCTET_STREAM)
+    public Response getFogBitmap(@PathParam("campaignId") Long campaignId) {
+        Response authorizationError = requireCampaignMember(campaignId);
+        if (authorizationError != null) {
+            return authorizationError;
+        }
+
+        FogBitmap fog = gameState.getOrCreate(campaignId).fog;
+        return Response.ok(fog != null ? fog.toBytes() : new byte[FogBitmap.BYTES])
+                .header("X-Fog-Size", FogBitmap.SIZE)
+                .build();
     }
 
     @PUT
@@ -648,10 +740,55 @@ public class GameActionResource {
         if (data == null) {
             return Response.status(Response.Status.BAD_REQUEST).entity("data required").build();
         }
-        GameState.CampaignGameState state = gameState.getOrCreate(campaignId);
-        state.fogExploration = data;
-        broadcaster.broadcast(campaignId, "fog_updated", Map.of("data", data));
-        return Response.ok(Map.of("saved", true)).build();
+        FogBitmap fog;
+        try {
+            fog = data.isEmpty() ? null : FogBitmap.decode(data);
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST).entity("data must be a PNG data URL").build();
+        }
+        return mailbox.call(campaignId, () -> {
+            GameState.CampaignGameState state = gameState.getOrCreate(campaignId);
+            state.setFog(fog);
+            broadcaster.broadcast(campaignId, "fog_updated", Map.of("data", fog != null ? fog.toPngDataUrl() : ""));
+            return Response.ok(Map.of("saved", true)).build();
+        });
+    }
+
+    /**
+     * Merges revealed cells into the fog. Body: {@code {"runs": [y, x, length, ...]}}, one
+     * triple per horizontal strip of cells. Other clients receive only the runs as fog_delta,
+     * except for periodic fog_updated keyframes carrying the whole fog.
+     */
+    @POST
+    @Path("fog-exploration/reveal")
+    public Response revealFog(@PathParam("campaignId") Long campaignId,
+                              Map<String, Object> body) {
+        Response authorizationError = requireCampaignMember(campaignId);
+        if (authorizationError != null) {
+            return authorizationError;
+        }
+
+        int[] runs;
+        try {
+            runs = parseFogRuns(body.get("runs"));
+            FogBitmap.validateRuns(runs);
+        } catch (IllegalArgumentException | ClassCastException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("runs must be [y, x, length] triples within the fog grid").build();
+        }
+
+        return Response.ok(commands.revealFog(campaignId, runs)).build();
+    }
+
+    static int[] parseFogRuns(Object value) {
+        if (!(value instanceof List<?> list) || list.isEmpty()) {
+            throw new IllegalArgumentException("runs required");
+        }
+        int[] runs = new int[list.size()];
+        for (int i = 0; i < runs.length; i++) {
+            runs[i] = ((Number) list.get(i)).intValue();
+        }
+        return runs;
     }
 
     // ===== UNDO LAST MAP CHANGE =====
@@ -664,22 +801,53 @@ public class GameActionResource {
             return authorizationError;
         }
 
-        GameState.CampaignGameState state = gameState.getOrCreate(campaignId);
-        GameState.MapUndoSnapshot snap = state.popUndo();
-        if (snap == null) {
-            return Response.status(Response.Status.BAD_REQUEST).entity("Nothing to undo").build();
-        }
+        return mailbox.call(campaignId, () -> {
+            GameState.CampaignGameState state = gameState.getOrCreate(campaignId);
+            markerMoves.flush(campaignId);
+            GameState.MapUndoEntry snap = state.popUndo();
+            if (snap == null) {
+                return Response.status(Response.Status.BAD_REQUEST).entity("Nothing to undo").build();
+            }
 
-        List<Map<String, Object>> allMarkers = state.mapMarkers.values().stream()
-                .map(GameState.MapMarker::toMap)
-                .collect(Collectors.toList());
+            List<Map<String, Object>> allMarkers = state.mapMarkers.values().stream()
+                    .map(GameState.MapMarker::toMap)
+                    .collect(Collectors.toList());
 
-        Map<String, Object> payload = new java.util.HashMap<>();
-        payload.put("allMarkers", allMarkers);
-        payload.put("fogExploration", snap.fogExploration != null ? snap.fogExploration : "");
+            Map<String, Object> payload = new java.util.HashMap<>();
+            payload.put("allMarkers", allMarkers);
+            payload.put("fogExploration", snap.fog != null ? snap.fog.toPngDataUrl() : "");
 
-        broadcaster.broadcast(campaignId, "undo", payload);
-        return Response.ok(payload).build();
+            broadcaster.broadcast(campaignId, "undo", payload);
+            return Response.ok(payload).build();
+        });
+    }
+
+    /**
+     * Sets how many map changes this campaign can undo. Body: {@code {"depth": n}}, or
+     * {@code {"depth": null}} for the configured default.
+     */
+    @PUT
+    @Path("undo-depth")
+    public Response setUndoDepth(@PathParam("campaignId") Long campaignId,
+                                 Map<String, Object> body) {
+        Response authorizationError = requireDm(campaignId);
+        if (authorizationError != null) {
+            return authorizationError;
+        }
+
+        Integer depth = toInt(body.get("depth"));
+        if (body.get("depth") != null && depth == null) {
+            return Response.status(Response.Status.BAD_REQUEST).entity("depth must be a number").build();
+        }
+        return mailbox.call(campaignId, () -> {
+            GameState.CampaignGameState state = gameState.getOrCreate(campaignId);
+            try {
+                state.setUndoDepth(depth);
+            } catch (IllegalArgumentException e) {
+                return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+            }
+            return Response.ok(Map.of("depth", state.undoDepth())).build();
+        });
     }
 
     // ===== RESET GAME STATE =====
@@ -692,16 +860,14 @@ public class GameActionResource {
             return authorizationError;
         }
 
-        GameState.CampaignGameState state = gameState.getOrCreate(campaignId);
-        state.fogExploration = null;
-        state.currentTurnPlayerId = null;
-        state.playerHp.clear();
-        state.playerMaxHp.clear();
-        state.playerActive.clear();
-        state.lastDiceRoll = null;
-        // Keep map markers (they are placed before the game starts)
-        broadcaster.broadcast(campaignId, "state_reset", state.snapshot());
-        return Response.ok(Map.of("reset", true)).build();
+        return mailbox.call(campaignId, () -> {
+            GameState.CampaignGameState state = gameState.getOrCreate(campaignId);
+            markerMoves.flush(campaignId);
+            // Keeps map markers (they are placed before the game starts)
+            state.reset();
+            broadcaster.broadcast(campaignId, "state_reset", state.snapshot());
+            return Response.ok(Map.of("reset", true)).build();
+        });
     }
 
     // ===== HELPER =====
@@ -728,47 +894,36 @@ public class GameActionResource {
         return securityIdentityService.getCurrentPlayerId(securityIdentity);
     }
 
-    private String resolvePlayerLoginName(Long playerId) {
-        if (playerId == null) {
-            return "Unknown";
-        }
-        Player player = Player.findById(playerId);
-        if (player == null) {
-            return "Unknown";
-        }
-        if (player.username != null && !player.username.isBlank()) {
-            return player.username;
-        }
-        return "Player " + playerId;
-    }
-
+    // A membership implies the campaign exists; only without one is the campaign looked up,
+    // to tell a missing campaign from a foreign one.
     private Response requireCampaignMember(Long campaignId) {
+        if (findMembership(campaignId, currentPlayerId()) != null) {
+            return null;
+        }
         if (Campaign.findById(campaignId) == null) {
             return Response.status(Response.Status.NOT_FOUND).entity("Campaign not found").build();
         }
-        if (findMembership(campaignId, currentPlayerId()) == null) {
-            return campaignAccessDenied();
-        }
-        return null;
+        return campaignAccessDenied();
     }
 
     private Response requireDm(Long campaignId) {
-        if (Campaign.findById(campaignId) == null) {
-            return Response.status(Response.Status.NOT_FOUND).entity("Campaign not found").build();
+        CampaignMembershipCache.Membership membership = findMembership(campaignId, currentPlayerId());
+        if (membership != null && membership.isDm()) {
+            return null;
         }
-        if (!isDm(campaignId, currentPlayerId())) {
-            return Response.status(Response.Status.FORBIDDEN).entity("Only the DM can do this").build();
+        if (membership == null && Campaign.findById(campaignId) == null) {
+            return Response.status(Response.Status.NOT_FOUND).entity("Campaign not found").build();
         }
-        return null;
+        return Response.status(Response.Status.FORBIDDEN).entity("Only the DM can do this").build();
     }
 
-    private CampaignPlayer findMembership(Long campaignId, Long playerId) {
-        return CampaignPlayer.find("campaignId = ?1 and playerId = ?2", campaignId, playerId).firstResult();
+    private CampaignMembershipCache.Membership findMembership(Long campaignId, Long playerId) {
+        return memberships.find(campaignId, playerId);
     }
 
     private boolean isDm(Long campaignId, Long playerId) {
-        CampaignPlayer membership = findMembership(campaignId, playerId);
-        return membership != null && "DM".equals(membership.role);
+        CampaignMembershipCache.Membership membership = findMembership(campaignId, playerId);
+        return membership != null && membership.isDm();
     }
 
     private Response campaignAccessDenied() {
@@ -0,0 +1,132 @@
+package campaign;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.util.Map;
+
+/**
+ * Game commands shared by the REST endpoints and the WebSocket channel. Callers check
+ * membership and roles first; each command then changes the state and broadcasts the
+ * resulting event in the campaign's {@link CampaignMailbox} and returns the response body.
+ */
+@ApplicationScoped
+public class GameCommands {
+
+    @Inject
+    GameState gameState;
+
+    @Inject
+    SseBroadcaster broadcaster;
+
+    @Inject
+    CampaignMailbox mailbox;
+
+    @Inject
+    MarkerMoveCoalescer markerMoves;
+
+    /** Every n-th fog reveal is broadcast as the full fog instead of a delta. */
+    @ConfigProperty(name = "dicekeeper.fog.keyframe-interval", defaultValue = "50")
+    int fogKeyframeInterval;
+
+    public Map<String, Object> setTurn(Long campaignId, Long playerId, String playerName) {
+        return mailbox.call(campaignId, () -> {
+            gameState.getOrCreate(campaignId).setTurn(playerId);
+            broadcaster.broadcast(campaignId, "turn", Map.of(
+                    "playerId", playerId,
+                    "playerName", playerName
+            ));
+            return Map.of("currentTurnPlayerId", playerId);
+        });
+    }
+
+    /** {@code playerId} is null for a roll the DM makes without a player. */
+    public Map<String, Object> rollDice(Long campaignId, Long playerId, String playerName, String diceType, int result) {
+        return mailbox.call(campaignId, () -> {
+            gameState.getOrCreate(campaignId).recordDiceRoll(playerId, playerName, diceType, result);
+            broadcaster.broadcast(campaignId, "dice", Map.of(
+                    "playerId", playerId != null ? playerId : -1,
+                    "playerName", playerName,
+                    "diceType", diceType,
+                    "result", result,
+                    "timestamp", System.currentTimeMillis()
+            ));
+            return Map.of("result", result);
+        });
+    }
+
+    public Map<String, Object> updateHp(Long campaignId, Long playerId, int delta) {
+        return mailbox.call(campaignId, () -> {
+            GameState.CampaignGameState state = gameState.getOrCreate(campaignId);
+            int newHp = state.updateHp(playerId, delta);
+            int maxHp = state.playerMaxHp.getOrDefault(playerId, 0);
+
+            broadcaster.broadcast(campaignId, "hp", Map.of(
+                    "playerId", playerId,
+                    "currentHp", newHp,
+                    "maxHp", maxHp,
+                    "delta", delta
+            ));
+            return Map.of("playerId", playerId, "currentHp", newHp, "maxHp", maxHp);
+        });
+    }
+
+    public Map<String, Object> setPlayerActive(Long campaignId, Long playerId, boolean active) {
+        return mailbox.call(campaignId, () -> {
+            gameState.getOrCreate(campaignId).setPlayerActive(playerId, active);
+            broadcaster.broadcast(campaignId, "player_active", Map.of(
+                    "playerId", playerId,
+                    "active", active
+            ));
+            return Map.of("playerId", playerId, "active", active);
+        });
+    }
+
+    /**
+     * Moves the marker {@code markerId}, or adds a new one if there is no such marker.
+     * {@code drag} marks a move while the DM still holds the marker (see {@link MarkerMoveCoalescer}).
+     */
+    public Map<String, Object> placeMarker(Long campaignId, String markerId, String type, String label,
+                                           double x, double y, String groupId, String playerIds, String icon,
+                                           boolean drag) {
+        return mailbox.call(campaignId, () -> {
+            GameState.CampaignGameState state = gameState.getOrCreate(campaignId);
+            if (!markerMoves.continuesDrag(campaignId, markerId)) {
+                state.pushUndo();
+            }
+
+            // Move existing marker
+            GameState.MapMarker moved = markerId != null ? state.moveMarker(markerId, x, y, label) : null;
+            if (moved != null) {
+                markerMoves.moved(campaignId, moved, drag);
+                return moved.toMap();
+            }
+            // Add new marker; it took a new undo entry, which ends any open drag
+            markerMoves.flush(campaignId);
+            String newId = state.nextMarkerId();
+            GameState.MapMarker marker = new GameState.MapMarker(newId, type, label, x, y, groupId, playerIds, icon);
+            state.putMarker(marker);
+
+            broadcaster.broadcast(campaignId, "marker_add", marker.toMap());
+            return marker.toMap();
+        });
+    }
+
+    /** Merges revealed cells, already validated by {@link FogBitmap#validateRuns}. */
+    public Map<String, Object> revealFog(Long campaignId, int[] runs) {
+        return mailbox.call(campaignId, () -> {
+            GameState.CampaignGameState state = gameState.getOrCreate(campaignId);
+            if (!state.revealFog(runs)) {
+                return Map.of("changed", false);
+            }
+            if (state.fogKeyframeDue(fogKeyframeInterval)) {
+                FogBitmap fog = state.fog;
+                broadcaster.broadcast(campaignId, "fog_updated", Map.of("data", fog != null ? fog.toPngDataUrl() : ""));
+            } else {
+                broadcaster.broadcast(campaignId, "fog_delta", Map.of("runs", runs));
+            }
+            return Map.of("changed", true);
+        });
+    }
+}
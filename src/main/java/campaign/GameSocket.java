@@ -0,0 +1,569 @@
+package campaign;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.security.Authenticated;
+import io.quarkus.security.identity.SecurityIdentity;
+import io.quarkus.websockets.next.CloseReason;
+import io.quarkus.websockets.next.OnBinaryMessage;
+import io.quarkus.websockets.next.OnClose;
+import io.quarkus.websockets.next.OnOpen;
+import io.quarkus.websockets.next.WebSocket;
+import io.quarkus.websockets.next.WebSocketConnection;
+import io.vertx.core.buffer.Buffer;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.core.HttpHeaders;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+import security.SecurityIdentityService;
+
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bidirectional game channel: the commands of {@link GameActionResource} and the events of
+ * {@link GameSseResource} over one WebSocket, as binary CBOR frames. Membership is checked
+ * when the socket opens and again, through the {@link CampaignMembershipCache}, for every
+ * command. When a membership changes, the player's sockets are closed with
+ * {@code 4001}, so the client reconnects and is authorized anew.
+ * <ul>
+ *   <li>Event: {@code {"e": name, "id": eventId, "d": data}}, the same names, ids and data
+ *       as on SSE. The first event is always a {@code snapshot} with the full game state.</li>
+ *   <li>Command: {@code {"c": command, "r": requestId, "d": {...}}}, where command is one of
+ *       {@code turn, dice, hp, player-active, map-marker, fog-reveal} and the data is the
+ *       body of the matching REST request.</li>
+ *   <li>Reply: {@code {"r": requestId, "ok": true, "d": result}} or
+ *       {@code {"r": requestId, "ok": false, "status": httpStatus, "error": message}}.</li>
+ * </ul>
+ * Each event is encoded once per campaign and node and written to all its sockets without
+ * waiting; a socket with more than {@code dicekeeper.ws.max-pending-frames} unfinished
+ * writes is closed with {@code 1013}, and the client reconnects for a new snapshot. Commands for a campaign owned by another node are forwarded to that node's REST
+ * endpoint with the credentials of the handshake.
+ */
+@WebSocket(path = "/api/campaign/{campaignId}/ws")
+@Authenticated
+public class GameSocket {
+
+    private static final Logger LOG = Logger.getLogger(GameSocket.class);
+    private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<>() {
+    };
+    private static final List<String> FORWARDED_HANDSHAKE_HEADERS = List.of(HttpHeaders.COOKIE, HttpHeaders.AUTHORIZATION);
+    /** Policy violation: not a member, or no such campaign. */
+    private static final int CLOSE_FORBIDDEN = 1008;
+    /** Try again later: the owning node could not provide the game state, or the client fell behind. */
+    private static final int CLOSE_UNAVAILABLE = 1013;
+    /** Reconnect: the player's membership changed and is checked again at the next handshake. */
+    private static final int CLOSE_MEMBERSHIP_CHANGED = 4001;
+
+    private final CBORMapper cbor = new CBORMapper();
+    // connectionId -> what was established at the handshake
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    // campaignId -> sockets of the campaign on this node, sharing one encoded frame per event
+    private final Map<Long, CampaignChannel> channels = new ConcurrentHashMap<>();
+
+    @Inject
+    GameCommands commands;
+
+    @Inject
+    SseBroadcaster broadcaster;
+
+    @Inject
+    CampaignMembershipCache memberships;
+
+    @Inject
+    CampaignShardRouter router;
+
+    @Inject
+    GameState gameState;
+
+    @Inject
+    CampaignMailbox mailbox;
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    @Inject
+    SecurityIdentityService securityIdentityService;
+
+    @Inject
+    SecurityIdentity securityIdentity;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    @ConfigProperty(name = "dicekeeper.ws.max-pending-frames", defaultValue = "64")
+    int maxPendingFrames;
+
+    private Counter slowDisconnects;
+
+    /** Role and name are not kept here: they are looked up again for every command. */
+    private record Session(WebSocketConnection connection, Long campaignId, Long playerId,
+                           Map<String, String> forwardHeaders, AtomicInteger pendingFrames,
+                           AtomicBoolean closing) {
+    }
+
+    /** A command's failure, answered with an HTTP-like status as the REST endpoint would. */
+    private static final class CommandException extends RuntimeException {
+        final int status;
+
+        CommandException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    private final class CampaignChannel implements SseBroadcaster.EventListener {
+        final Set<WebSocketConnection> connections = new CopyOnWriteArraySet<>();
+        // Sockets waiting for their snapshot from the owner, with the frames broadcast meanwhile
+        private final Map<WebSocketConnection, List<Buffer>> waiting = new HashMap<>();
+
+        @Override
+        public synchronized void onEvent(String eventId, String eventName, String json) {
+            Buffer frame = encodeEvent(eventId, eventName, json);
+            if (frame == null) {
+                return;
+            }
+            for (WebSocketConnection connection : connections) {
+                send(connection, frame);
+            }
+            for (List<Buffer> frames : waiting.values()) {
+                frames.add(frame);
+            }
+        }
+
+        synchronized void await(WebSocketConnection connection) {
+            waiting.put(connection, new ArrayList<>());
+        }
+
+        /** Sends the snapshot and the frames held back for it, then the socket gets events directly. */
+        synchronized void release(WebSocketConnection connection, Buffer snapshot) {
+            List<Buffer> frames = waiting.remove(connection);
+            if (frames == null) {
+                return;
+            }
+            send(connection, snapshot);
+            for (Buffer frame : frames) {
+                send(connection, frame);
+            }
+            connections.add(connection);
+        }
+
+        synchronized boolean remove(WebSocketConnection connection) {
+            waiting.remove(connection);
+            connections.remove(connection);
+            return connections.isEmpty() && waiting.isEmpty();
+        }
+    }
+
+    void onStart(@Observes StartupEvent event) {
+        Gauge.builder("dicekeeper.ws.connections", sessions, Map::size)
+                .description("Open game WebSocket connections")
+                .register(meterRegistry);
+        slowDisconnects = Counter.builder("dicekeeper.ws.slow.disconnects")
+                .description("Game WebSockets closed for falling behind")
+                .register(meterRegistry);
+        memberships.addInvalidationListener(this::membershipInvalidated);
+    }
+
+    @OnOpen
+    public void onOpen(WebSocketConnection connection) {
+        Long campaignId;
+        try {
+            campaignId = Long.valueOf(connection.pathParam("campaignId"));
+        } catch (NumberFormatException e) {
+            connection.closeAndAwait(new CloseReason(CLOSE_FORBIDDEN, "Campaign not found"));
+            return;
+        }
+        Long playerId = securityIdentityService.getCurrentPlayerId(securityIdentity);
+        CampaignMembershipCache.Membership membership = memberships.find(campaignId, playerId);
+        if (membership == null) {
+            connection.closeAndAwait(new CloseReason(CLOSE_FORBIDDEN, "You are not a member of this campaign"));
+            return;
+        }
+
+        Map<String, String> forwardHeaders = new HashMap<>();
+        for (String name : FORWARDED_HANDSHAKE_HEADERS) {
+            String value = connection.handshakeRequest().header(name);
+            if (value != null) {
+                forwardHeaders.put(name, value);
+            }
+        }
+        Session session = new Session(connection, campaignId, playerId, forwardHeaders,
+                new AtomicInteger(), new AtomicBoolean());
+
+        sessions.put(connection.id(), session);
+        // This node only holds the state of the campaigns it owns; take others' from the owner
+        String owner = router.remoteOwnerOf(campaignId);
+        if (owner == null) {
+            mailbox.call(campaignId, () -> gameState.getOrCreate(campaignId));
+            join(connection, campaignId);
+        } else if (!joinRemote(session, owner)) {
+            leave(connection, campaignId);
+            sessions.remove(connection.id());
+            connection.closeAndAwait(new CloseReason(CLOSE_UNAVAILABLE, "Game state unavailable"));
+            return;
+        }
+        LOG.debugv("Game socket connected: campaign={0} player={1}", campaignId, playerId);
+    }
+
+    @OnClose
+    public void onClose(WebSocketConnection connection) {
+        Session session = sessions.remove(connection.id());
+        if (session == null) {
+            return;
+        }
+        leave(connection, session.campaignId());
+        LOG.debugv("Game socket disconnected: campaign={0} player={1}", session.campaignId(), session.playerId());
+    }
+
+    @OnBinaryMessage
+    public Buffer onCommand(Buffer message, WebSocketConnection connection) {
+        Session session = sessions.get(connection.id());
+        if (session == null) {
+            return encodeReply(null, 403, "You are not a member of this campaign", null);
+        }
+        Map<String, Object> command;
+        try {
+            command = cbor.readValue(message.getBytes(), MAP_TYPE);
+        } catch (IOException e) {
+            return encodeReply(null, 400, "Malformed command", null);
+        }
+        Object requestId = command.get("r");
+        String name = command.get("c") instanceof String c ? c : "";
+        @SuppressWarnings("unchecked")
+        Map<String, Object> data = command.get("d") instanceof Map<?, ?> map ? (Map<String, Object>) map : Map.of();
+
+        // The handshake's membership may have been revoked or changed since
+        CampaignMembershipCache.Membership membership = memberships.find(session.campaignId(), session.playerId());
+        if (membership == null) {
+            close(session, CLOSE_FORBIDDEN, "You are not a member of this campaign");
+            return encodeReply(requestId, 403, "You are not a member of this campaign", null);
+        }
+
+        String owner = router.remoteOwnerOf(session.campaignId());
+        while (owner != null) {
+            try {
+                return forward(session, owner, requestId, name, data);
+            } catch (IOException e) {
+                LOG.warnv("Campaign {0} owner {1} unreachable: {2}", session.campaignId(), owner, e.getMessage());
+                String next = CampaignShardRouter.notSent(e) ? router.remoteOwnerOf(session.campaignId()) : owner;
+                if (owner.equals(next)) {
+                    return encodeReply(requestId, CampaignShardRouter.unreachableStatus(e), "Campaign owner unreachable", null);
+                }
+                owner = next;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return encodeReply(requestId, 503, "Interrupted", null);
+            }
+        }
+        try {
+            return encodeReply(requestId, 200, null, execute(session, membership, name, data));
+        } catch (CommandException e) {
+            return encodeReply(requestId, e.status, e.getMessage(), null);
+        }
+    }
+
+    // Adds the socket to its campaign's channel after its snapshot, under the stream lock, so
+    // it receives exactly the events that follow the snapshot.
+    private void join(WebSocketConnection connection, Long campaignId) {
+        channels.compute(campaignId, (id, channel) -> {
+            CampaignChannel joined = channel != null ? channel : listen(id);
+            broadcaster.snapshot(id, (eventId, eventName, json) -> {
+                Buffer frame = encodeEvent(eventId, eventName, json);
+                if (frame != null) {
+                    send(connection, frame);
+                }
+                joined.connections.add(connection);
+            });
+            return joined;
+        });
+    }
+
+    // Joins before the owner's state is fetched and holds back the events broadcast meanwhile,
+    // so none is lost; events the fetched state already contains are sent again, which the
+    // client applies idempotently. False if the owner could not provide the state.
+    private boolean joinRemote(Session session, String owner) {
+        WebSocketConnection connection = session.connection();
+        String[] joinedAt = new String[1];
+        CampaignChannel channel = channels.compute(session.campaignId(), (id, existing) -> {
+            CampaignChannel joined = existing != null ? existing : listen(id);
+            broadcaster.atCurrentEvent(id, eventId -> {
+                joinedAt[0] = eventId;
+                joined.await(connection);
+            });
+            return joined;
+        });
+
+        String remoteState = fetchRemoteState(session, owner);
+        if (remoteState == null) {
+            if (router.remoteOwnerOf(session.campaignId()) != null) {
+                return false;
+            }
+            // This node took over the campaign meanwhile; its own state is current.
+            leave(connection, session.campaignId());
+            mailbox.call(session.campaignId(), () -> gameState.getOrCreate(session.campaignId()));
+            join(connection, session.campaignId());
+            return true;
+        }
+        Buffer snapshot = encodeEvent(joinedAt[0], "snapshot", remoteState);
+        if (snapshot == null) {
+            return false;
+        }
+        channel.release(connection, snapshot);
+        return true;
+    }
+
+    private CampaignChannel listen(Long campaignId) {
+        CampaignChannel channel = new CampaignChannel();
+        broadcaster.addListener(campaignId, channel);
+        return channel;
+    }
+
+    private void leave(WebSocketConnection connection, Long campaignId) {
+        channels.computeIfPresent(campaignId, (id, channel) -> {
+            if (!channel.remove(connection)) {
+                return channel;
+            }
+            broadcaster.removeListener(id, channel);
+            return null;
+        });
+    }
+
+    private Map<String, Object> execute(Session session, CampaignMembershipCache.Membership membership,
+                                        String name, Map<String, Object> data) {
+        Long campaignId = session.campaignId();
+        switch (name) {
+            case "turn" -> {
+                requireDm(membership);
+                CampaignMembershipCache.Membership target = requireMember(campaignId, toLong(data.get("playerId")),
+                        "playerId required");
+                return commands.setTurn(campaignId, target.playerId(), target.loginName());
+            }
+            case "dice" -> {
+                Long playerId = membership.isDm() && data.get("playerId") == null ? null : session.playerId();
+                Integer result = toInt(data.get("result"));
+                if (result == null) {
+                    throw new CommandException(400, "result required");
+                }
+                String diceType = data.get("diceType") instanceof String type ? type : "d20";
+                return commands.rollDice(campaignId, playerId, membership.loginName(), diceType, result);
+            }
+            case "hp" -> {
+                requireDm(membership);
+                Integer delta = toInt(data.get("delta"));
+                if (delta == null) {
+                    throw new CommandException(400, "playerId and delta required");
+                }
+                Long playerId = requireMember(campaignId, toLong(data.get("playerId")), "playerId and delta required")
+                        .playerId();
+                return commands.updateHp(campaignId, playerId, delta);
+            }
+            case "player-active" -> {
+                requireDm(membership);
+                if (!(data.get("active") instanceof Boolean active)) {
+                    throw new CommandException(400, "playerId and active required");
+                }
+                Long playerId = requireMember(campaignId, toLong(data.get("playerId")), "playerId and active required")
+                        .playerId();
+                return commands.setPlayerActive(campaignId, playerId, active);
+            }
+            case "map-marker" -> {
+                requireDm(membership);
+                Double x = toDouble(data.get("x"));
+                Double y = toDouble(data.get("y"));
+                if (x == null || y == null) {
+                    throw new CommandException(400, "x and y required");
+                }
+                return commands.placeMarker(campaignId, (String) data.get("id"),
+                        (String) data.getOrDefault("type", "structure"), (String) data.getOrDefault("label", ""),
+                        x, y, (String) data.get("groupId"), (String) data.get("playerIds"),
+                        (String) data.getOrDefault("icon", "📌"), Boolean.TRUE.equals(data.get("drag")));
+            }
+            case "fog-reveal" -> {
+                int[] runs;
+                try {
+                    runs = GameActionResource.parseFogRuns(data.get("runs"));
+                    FogBitmap.validateRuns(runs);
+                } catch (IllegalArgumentException | ClassCastException e) {
+                    throw new CommandException(400, "runs must be [y, x, length] triples within the fog grid");
+                }
+                return commands.revealFog(campaignId, runs);
+            }
+            default -> throw new CommandException(400, "Unknown command: " + name);
+        }
+    }
+
+    private Buffer forward(Session session, String owner, Object requestId, String name, Map<String, Object> data)
+            throws IOException, InterruptedException {
+        String method = "POST";
+        String path = switch (name) {
+            case "turn" -> "turn";
+            case "dice" -> "dice";
+            case "hp" -> {
+                method = "PATCH";
+                yield "hp";
+            }
+            case "player-active" -> "player-active";
+            case "map-marker" -> "map-marker";
+            case "fog-reveal" -> "fog-exploration/reveal";
+            default -> null;
+        };
+        if (path == null) {
+            return encodeReply(requestId, 400, "Unknown command: " + name, null);
+        }
+        Map<String, String> headers = new HashMap<>(session.forwardHeaders());
+        headers.put(HttpHeaders.CONTENT_TYPE, "application/json");
+        headers.put(HttpHeaders.ACCEPT, "application/json");
+        HttpResponse<byte[]> response = router.send(owner, method,
+                "/api/campaign/" + session.campaignId() + "/game/" + path, headers, objectMapper.writeValueAsBytes(data));
+        if (response.statusCode() >= 300) {
+            return encodeReply(requestId, response.statusCode(), new String(response.body(), StandardCharsets.UTF_8), null);
+        }
+        return encodeReply(requestId, response.statusCode(), null, objectMapper.readTree(response.body()));
+    }
+
+    private String fetchRemoteState(Session session, String owner) {
+        Map<String, String> headers = new HashMap<>(session.forwardHeaders());
+        headers.put(HttpHeaders.ACCEPT, "application/json");
+        while (owner != null) {
+            try {
+                HttpResponse<byte[]> response = router.send(owner, "GET",
+                        "/api/campaign/" + session.campaignId() + "/game/state", headers, new byte[0]);
+                return response.statusCode() == 200 ? new String(response.body(), StandardCharsets.UTF_8) : null;
+            } catch (IOException e) {
+                LOG.warnv("Campaign {0} owner {1} unreachable: {2}", session.campaignId(), owner, e.getMessage());
+                String next = CampaignShardRouter.notSent(e) ? router.remoteOwnerOf(session.campaignId()) : owner;
+                if (owner.equals(next)) {
+                    return null;
+                }
+                owner = next;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+        }
+        // This node took over the campaign meanwhile; its own snapshot is current.
+        return null;
+    }
+
+    private Buffer encodeEvent(String eventId, String eventName, String json) {
+        try {
+            Map<String, Object> frame = new LinkedHashMap<>();
+            frame.put("e", eventName);
+            frame.put("id", eventId);
+            frame.put("d", objectMapper.readTree(json));
+            return Buffer.buffer(cbor.writeValueAsBytes(frame));
+        } catch (IOException e) {
+            LOG.errorf(e, "Could not encode game socket event: event=%s", eventName);
+            return null;
+        }
+    }
+
+    private Buffer encodeReply(Object requestId, int status, String error, Object result) {
+        Map<String, Object> reply = new LinkedHashMap<>();
+        reply.put("r", requestId);
+        reply.put("ok", error == null);
+        if (error == null) {
+            reply.put("d", result);
+        } else {
+            reply.put("status", status);
+            reply.put("error", error);
+        }
+        try {
+            return Buffer.buffer(cbor.writeValueAsBytes(reply));
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not encode game socket reply", e);
+        }
+    }
+
+    // Writes without waiting, but closes sockets whose unfinished writes pile up
+    private void send(WebSocketConnection connection, Buffer frame) {
+        Session session = sessions.get(connection.id());
+        if (session == null || connection.isClosed()) {
+            return;
+        }
+        if (session.pendingFrames().incrementAndGet() > maxPendingFrames) {
+            session.pendingFrames().decrementAndGet();
+            if (!session.closing().get()) {
+                slowDisconnects.increment();
+                LOG.warnv("Disconnecting slow game socket: campaign={0} player={1}",
+                        session.campaignId(), session.playerId());
+            }
+            close(session, CLOSE_UNAVAILABLE, "Too far behind");
+            return;
+        }
+        connection.sendBinary(frame).subscribe().with(
+                ignored -> session.pendingFrames().decrementAndGet(),
+                failure -> {
+                    session.pendingFrames().decrementAndGet();
+                    LOG.debugv(failure, "Game socket send failed: connection={0}", connection.id());
+                });
+    }
+
+    private void membershipInvalidated(Long campaignId, Long playerId) {
+        for (Session session : sessions.values()) {
+            if ((campaignId == null || campaignId.equals(session.campaignId()))
+                    && (playerId == null || playerId.equals(session.playerId()))) {
+                close(session, CLOSE_MEMBERSHIP_CHANGED, "Membership changed");
+            }
+        }
+    }
+
+    // Closes without blocking, at most once per socket; may run on the event loop
+    private static void close(Session session, int code, String reason) {
+        if (!session.closing().compareAndSet(false, true)) {
+            return;
+        }
+        WebSocketConnection connection = session.connection();
+        connection.close(new CloseReason(code, reason)).subscribe().with(
+                ignored -> {
+                },
+                failure -> LOG.debugv(failure, "Could not close game socket: connection={0}", connection.id()));
+    }
+
+    private static void requireDm(CampaignMembershipCache.Membership membership) {
+        if (!membership.isDm()) {
+            throw new CommandException(403, "Only the DM can do this");
+        }
+    }
+
+    private CampaignMembershipCache.Membership requireMember(Long campaignId, Long playerId, String missingMessage) {
+        if (playerId == null) {
+            throw new CommandException(400, missingMessage);
+        }
+        CampaignMembershipCache.Membership membership = memberships.find(campaignId, playerId);
+        if (membership == null) {
+            throw new CommandException(404, "Player not in campaign");
+        }
+        return membership;
+    }
+
+    private static Long toLong(Object obj) {
+        return obj instanceof Number number ? number.longValue() : null;
+    }
+
+    private static Integer toInt(Object obj) {
+        return obj instanceof Number number ? number.intValue() : null;
+    }
+
+    private static Double toDouble(Object obj) {
+        return obj instanceof Number number ? number.doubleValue() : null;
+    }
+}
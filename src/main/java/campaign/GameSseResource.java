@@ -3,6 +3,7 @@ package campaign;
 import jakarta.inject.Inject;
 import io.quarkus.security.Authenticated;
 import io.quarkus.security.identity.SecurityIdentity;
+import io.vertx.core.http.HttpServerResponse;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.Context;
 import jakarta.ws.rs.core.MediaType;
@@ -10,6 +11,8 @@ import jakarta.ws.rs.sse.Sse;
 import jakarta.ws.rs.sse.SseEventSink;
 import security.SecurityIdentityService;
 
+import java.util.Map;
+
 /**
  * SSE endpoint: clients connect here to receive real-time game updates.
  */
@@ -20,6 +23,9 @@ public class GameSseResource {
     @Inject
     SseBroadcaster broadcaster;
 
+    @Inject
+    CampaignMembershipCache memberships;
+
     @Inject
     SecurityIdentityService securityIdentityService;
 
@@ -29,32 +35,63 @@ public class GameSseResource {
     @GET
     @Produces(MediaType.SERVER_SENT_EVENTS)
     public void subscribe(@PathParam("campaignId") Long campaignId,
+                          @HeaderParam("Last-Event-ID") String lastEventId,
                           @Context SseEventSink sink,
-                          @Context Sse sse) {
-        if (Campaign.findById(campaignId) == null) {
-            throw new NotFoundException("Campaign not found");
-        }
+                          @Context Sse sse,
+                          @Context HttpServerResponse response) {
+        requireCampaignMember(campaignId);
 
-        Long currentPlayerId = securityIdentityService.getCurrentPlayerId(securityIdentity);
-        CampaignPlayer membership = CampaignPlayer.find(
-                "campaignId = ?1 and playerId = ?2",
-                campaignId,
-                currentPlayerId
-        ).firstResult();
-        if (membership == null) {
-            throw new ForbiddenException("You are not a member of this campaign");
-        }
+        // "resumed" tells a reconnecting client that missed events will be replayed,
+        // so it does not need to reload the game state; "lastEventId" is where a client that
+        // reloads continues from.
+        SseBroadcaster.SseConnection connection = broadcaster.open(campaignId, sink, response, lastEventId);
 
-        broadcaster.register(campaignId, sink, sse);
-
-        // Send a welcome event so the client knows connection is established
+        // Send a welcome event so the client knows connection is established. It also commits
+        // the SSE headers, after which the broadcaster appends pre-encoded frames to the response.
         try {
             sink.send(sse.newEventBuilder()
                     .name("connected")
-                    .data(String.class, "{\"status\":\"connected\",\"campaignId\":" + campaignId + "}")
-                    .build());
+                    .data(String.class, "{\"status\":\"connected\",\"campaignId\":" + campaignId
+                            + ",\"resumed\":" + connection.resumed()
+                            + ",\"lastEventId\":\"" + connection.openedAtEventId() + "\"}")
+                    .build())
+                    .whenComplete((ignored, failure) -> {
+                        if (failure == null) {
+                            broadcaster.start(campaignId, connection);
+                        } else {
+                            broadcaster.discard(campaignId, connection);
+                        }
+                    });
         } catch (Exception e) {
             // sink already closed
+            broadcaster.discard(campaignId, connection);
+        }
+    }
+
+    /**
+     * Current position of the campaign's event stream. A client whose last received event id
+     * differs has missed events and can reload state without keeping a stream open.
+     */
+    @GET
+    @Path("sequence")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Map<String, Object> getSequence(@PathParam("campaignId") Long campaignId) {
+        requireCampaignMember(campaignId);
+        return Map.of(
+                "campaignId", campaignId,
+                "sequence", broadcaster.currentSequence(campaignId),
+                "lastEventId", broadcaster.currentEventId(campaignId)
+        );
+    }
+
+    private void requireCampaignMember(Long campaignId) {
+        Long currentPlayerId = securityIdentityService.getCurrentPlayerId(securityIdentity);
+        if (memberships.find(campaignId, currentPlayerId) != null) {
+            return;
+        }
+        if (Campaign.findById(campaignId) == null) {
+            throw new NotFoundException("Campaign not found");
         }
+        throw new ForbiddenException("You are not a member of this campaign");
     }
 }
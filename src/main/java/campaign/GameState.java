@@ -1,38 +1,264 @@
 package campaign;
 
 import jakarta.enterprise.context.ApplicationScoped;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * In-memory per-campaign game state for real-time synchronization.
+ * Every mutation goes through a {@link CampaignGameState} method and is reported to the
+ * registered {@link MutationListener}s, e.g. the {@link GameStateJournal}.
  */
 @ApplicationScoped
 public class GameState {
 
+    /** Upper bound for a campaign's own undo depth. */
+    public static final int MAX_UNDO_DEPTH = 500;
+
     private final ConcurrentHashMap<Long, CampaignGameState> states = new ConcurrentHashMap<>();
+    private final List<MutationListener> listeners = new CopyOnWriteArrayList<>();
+    // campaignId → load in progress; concurrent callers wait for it instead of loading again
+    private final ConcurrentHashMap<Long, CompletableFuture<CampaignGameState>> loading = new ConcurrentHashMap<>();
+
+    /** Undo entries kept for campaigns that do not set their own depth. */
+    @ConfigProperty(name = "dicekeeper.game-state.undo-depth", defaultValue = "20")
+    int defaultUndoDepth = 20;
+
+    /** Receives every mutation together with the campaign's journal sequence number. */
+    @FunctionalInterface
+    public interface MutationListener {
+        void onMutation(Long campaignId, long sequence, GameStateOp op);
+    }
+
+    /** Loads the state of a campaign that is not in memory, or returns null if there is none. */
+    @FunctionalInterface
+    public interface StateLoader {
+        CampaignGameState load(Long campaignId);
+    }
+
+    private volatile StateLoader loader;
+
+    public void addMutationListener(MutationListener listener) {
+        listeners.add(listener);
+    }
+
+    public void setLoader(StateLoader loader) {
+        this.loader = loader;
+    }
 
+    /**
+     * Returns the campaign's state, loading or creating it if it is not in memory. The loader
+     * reads files or the database, so it runs outside the map's locks; one caller loads while
+     * the others wait for its result.
+     */
     public CampaignGameState getOrCreate(Long campaignId) {
-        return states.computeIfAbsent(campaignId, id -> new CampaignGameState());
+        while (true) {
+            CampaignGameState existing = touch(campaignId);
+            if (existing != null) {
+                return existing;
+            }
+            CompletableFuture<CampaignGameState> load = new CompletableFuture<>();
+            CompletableFuture<CampaignGameState> running = loading.putIfAbsent(campaignId, load);
+            if (running != null) {
+                // A failed load is retried by the next caller
+                running.handle((state, failure) -> state).join();
+                continue;
+            }
+            try {
+                CampaignGameState state = load(campaignId);
+                load.complete(state);
+                return state;
+            } catch (RuntimeException | Error e) {
+                load.completeExceptionally(e);
+                throw e;
+            } finally {
+                loading.remove(campaignId, load);
+            }
+        }
+    }
+
+    // Atomic with evict(), so a campaign is never evicted between being looked up and used
+    private CampaignGameState touch(Long campaignId) {
+        return states.computeIfPresent(campaignId, (id, state) -> {
+            state.touch();
+            return state;
+        });
+    }
+
+    private CampaignGameState load(Long campaignId) {
+        CampaignGameState existing = touch(campaignId);
+        if (existing != null) {
+            return existing;
+        }
+        StateLoader stateLoader = loader;
+        CampaignGameState loaded = stateLoader != null ? stateLoader.load(campaignId) : null;
+        CampaignGameState state = loaded != null ? loaded : new CampaignGameState();
+        synchronized (state) {
+            state.attach(campaignId, this::notifyListeners, defaultUndoDepth);
+            CampaignGameState current = states.putIfAbsent(campaignId, state);
+            if (current != null) {
+                // Installed meanwhile, e.g. handed over by another node
+                state.detach();
+                current.touch();
+                return current;
+            }
+            if (loaded != null) {
+                state.emit(GameStateOp.install(state.export()));
+            }
+        }
+        return state;
+    }
+
+    /**
+     * Removes a campaign from memory if it is still idle, after {@code spill} has stored it.
+     * The spill writes files, so it runs outside the map's locks; a campaign looked up or
+     * changed meanwhile stays in memory, so a campaign in use is never evicted.
+     */
+    public boolean evict(Long campaignId, java.util.function.Predicate<CampaignGameState> idle,
+                         java.util.function.Consumer<CampaignGameState> spill) {
+        CampaignGameState candidate = states.computeIfPresent(campaignId, (id, state) -> {
+            state.evicting = idle.test(state);
+            return state;
+        });
+        if (candidate == null || !candidate.evicting) {
+            return false;
+        }
+        spill.accept(candidate);
+        CampaignGameState[] evicted = new CampaignGameState[1];
+        states.computeIfPresent(campaignId, (id, state) -> {
+            if (state != candidate || !state.evicting || !idle.test(state)) {
+                return state;
+            }
+            evicted[0] = state;
+            return null;
+        });
+        CampaignGameState state = evicted[0];
+        if (state == null) {
+            return false;
+        }
+        synchronized (state) {
+            state.emit(GameStateOp.of(GameStateOp.Type.EVICT));
+            state.detach();
+        }
+        return true;
+    }
+
+    public int residentCount() {
+        return states.size();
+    }
+
+    public long residentBytes() {
+        long bytes = 0;
+        for (CampaignGameState state : states.values()) {
+            bytes += state.estimatedBytes();
+        }
+        return bytes;
+    }
+
+    /** Returns the state of a campaign held by this node, without creating one. */
+    public CampaignGameState find(Long campaignId) {
+        return states.get(campaignId);
+    }
+
+    /** Replaces the state of a campaign, e.g. with one handed over by another node. */
+    public void install(Long campaignId, CampaignGameState state) {
+        synchronized (state) {
+            state.attach(campaignId, this::notifyListeners, defaultUndoDepth);
+            CampaignGameState previous = states.put(campaignId, state);
+            if (previous != null) {
+                previous.detach();
+            }
+            state.emit(GameStateOp.install(state.export()));
+        }
+    }
+
+    public Set<Long> campaignIds() {
+        return new HashSet<>(states.keySet());
     }
 
     public void remove(Long campaignId) {
-        if (campaignId != null) {
-            states.remove(campaignId);
+        if (campaignId == null) {
+            return;
+        }
+        CampaignGameState state = states.remove(campaignId);
+        if (state != null) {
+            synchronized (state) {
+                state.emit(GameStateOp.of(GameStateOp.Type.REMOVE));
+                state.detach();
+            }
         }
     }
 
-    public static class MapUndoSnapshot {
-        public final Map<String, MapMarker> markers;
-        public final String fogExploration;
+    /** Puts a state back without reporting it, used when restoring from the journal. */
+    void restore(Long campaignId, CampaignGameState state) {
+        state.attach(campaignId, this::notifyListeners, defaultUndoDepth);
+        states.put(campaignId, state);
+    }
+
+    /** Drops a state without reporting it, used when restoring from the journal. */
+    void discard(Long campaignId) {
+        CampaignGameState state = states.remove(campaignId);
+        if (state != null) {
+            state.detach();
+        }
+    }
+
+    private void notifyListeners(Long campaignId, long sequence, GameStateOp op) {
+        for (MutationListener listener : listeners) {
+            listener.onMutation(campaignId, sequence, op);
+        }
+    }
+
+    /** Serializable copy of a campaign's state, used for handover and journal snapshots. */
+    public record StateTransfer(Long currentTurnPlayerId,
+                                Map<Long, Integer> playerHp,
+                                Map<Long, Integer> playerMaxHp,
+                                Map<Long, Boolean> playerActive,
+                                DiceRollInfo lastDiceRoll,
+                                String fogExploration,
+                                List<MapMarker> mapMarkers,
+                                long markerSeq,
+                                List<UndoTransfer> undo,
+                                long journalSeq,
+                                Integer undoDepth) {
+    }
+
+    /**
+     * One undo entry: the markers to put back and the ids to remove. Entries written before
+     * undo entries were recorded as inverses have no {@code removed} list and hold every marker.
+     */
+    public record UndoTransfer(List<MapMarker> markers, List<String> removed, String fogExploration) {
+    }
+
+    /**
+     * Inverse of the map changes made since one {@code pushUndo}: the previous version of each
+     * marker changed since then (null if it did not exist yet) and the fog at that time. Only
+     * changed markers are held, so an entry costs nothing for untouched markers.
+     */
+    public static class MapUndoEntry {
+        public final Map<String, MapMarker> markers = new HashMap<>();
+        public final FogBitmap fog;
 
-        public MapUndoSnapshot(Map<String, MapMarker> markers, String fogExploration) {
-            this.markers = markers;
-            this.fogExploration = fogExploration;
+        MapUndoEntry(FogBitmap fog) {
+            this.fog = fog;
+        }
+
+        void record(String markerId, MapMarker previous) {
+            if (!markers.containsKey(markerId)) {
+                markers.put(markerId, previous);
+            }
         }
     }
 
+    /**
+     * State of one campaign. The maps are safe to read at any time; changes must use the
+     * methods below, which are synchronized so each change and its journal entry stay in order.
+     */
     public static class CampaignGameState {
         public volatile Long currentTurnPlayerId;
         public final ConcurrentHashMap<Long, Integer> playerHp = new ConcurrentHashMap<>();
@@ -41,40 +267,150 @@ public class GameState {
         public final ConcurrentHashMap<Long, Boolean> playerActive = new ConcurrentHashMap<>();
         public volatile DiceRollInfo lastDiceRoll;
 
-        /** Base64-encoded PNG of the 256×256 fog exploration memory canvas (nullable). */
-        public volatile String fogExploration;
+        /** Explored cells of the map (nullable until something was explored). */
+        public volatile FogBitmap fog;
 
-        // Map markers: markerId -> MapMarker
+        // Map markers: markerId -> MapMarker. Stored markers are never modified, changes replace
+        // them, so undo entries can keep the previous instances without copying.
         public final ConcurrentHashMap<String, MapMarker> mapMarkers = new ConcurrentHashMap<>();
         private final AtomicLong markerSeq = new AtomicLong(1);
 
-        private static final int MAX_UNDO = 20;
-        private final java.util.Deque<MapUndoSnapshot> undoStack = new java.util.ArrayDeque<>();
+        private final java.util.Deque<MapUndoEntry> undoStack = new java.util.ArrayDeque<>();
+        // Depth set for this campaign, or null for the configured default
+        private Integer undoDepth;
+        private int defaultUndoDepth = 20;
+
+        // Fog deltas broadcast since the last full fog keyframe; not persisted
+        private int fogDeltas;
+
+        private Long campaignId;
+        private MutationListener listener;
+        private long journalSeq;
+        private volatile long lastUsedAt = System.currentTimeMillis();
+        // Set while an eviction spills the state; any access or mutation clears it and keeps the state
+        private volatile boolean evicting;
+
+        void attach(Long campaignId, MutationListener listener, int defaultUndoDepth) {
+            this.campaignId = campaignId;
+            this.listener = listener;
+            this.defaultUndoDepth = defaultUndoDepth;
+        }
+
+        synchronized void detach() {
+            this.listener = null;
+        }
 
-        /** Save a snapshot of current markers + fog before a map mutation. */
-        public void pushUndo() {
-            Map<String, MapMarker> snap = new HashMap<>();
-            for (Map.Entry<String, MapMarker> e : mapMarkers.entrySet()) {
-                MapMarker m = e.getValue();
-                snap.put(e.getKey(), new MapMarker(m.id, m.type, m.label, m.x, m.y, m.groupId, m.playerIds, m.icon));
+        synchronized void emit(GameStateOp op) {
+            touch();
+            journalSeq++;
+            if (listener != null) {
+                listener.onMutation(campaignId, journalSeq, op);
             }
-            undoStack.push(new MapUndoSnapshot(snap, fogExploration));
-            while (undoStack.size() > MAX_UNDO) {
-                undoStack.removeLast();
+        }
+
+        public synchronized long journalSeq() {
+            return journalSeq;
+        }
+
+        synchronized void markJournaled(long sequence) {
+            journalSeq = sequence;
+        }
+
+        void touch() {
+            lastUsedAt = System.currentTimeMillis();
+            evicting = false;
+        }
+
+        /** Time of the last access or mutation. */
+        public long lastUsedAt() {
+            return lastUsedAt;
+        }
+
+        /** Rough heap footprint: strings at two bytes per char, a fixed cost per marker and entry. */
+        public synchronized long estimatedBytes() {
+            long bytes = 256 + (playerHp.size() + playerMaxHp.size() + playerActive.size()) * 64L;
+            bytes += mapMarkers.size() * 256L;
+            bytes += fog != null ? FogBitmap.BYTES : 0;
+            FogBitmap counted = fog;
+            for (MapUndoEntry snap : undoStack) {
+                bytes += snap.markers.size() * 256L;
+                // Consecutive undo entries share the bitmap unless the fog changed in between
+                if (snap.fog != null && snap.fog != counted) {
+                    bytes += FogBitmap.BYTES;
+                    counted = snap.fog;
+                }
+            }
+            return bytes;
+        }
+
+        /** Starts a new undo entry before a map mutation; it records the markers changed next. */
+        public synchronized void pushUndo() {
+            captureUndo();
+            emit(GameStateOp.of(GameStateOp.Type.UNDO_PUSH));
+        }
+
+        /** Reverts the changes of the last undo entry. Returns null if nothing to undo. */
+        public synchronized MapUndoEntry popUndo() {
+            MapUndoEntry snap = restoreUndo();
+            if (snap != null) {
+                emit(GameStateOp.of(GameStateOp.Type.UNDO_POP));
+            }
+            return snap;
+        }
+
+        private void captureUndo() {
+            int depth = undoDepth();
+            if (depth == 0) {
+                return;
             }
+            undoStack.push(new MapUndoEntry(fog));
+            trimUndo(depth);
         }
 
-        /** Pop and restore the last snapshot. Returns null if nothing to undo. */
-        public MapUndoSnapshot popUndo() {
-            MapUndoSnapshot snap = undoStack.poll();
+        private MapUndoEntry restoreUndo() {
+            MapUndoEntry snap = undoStack.poll();
             if (snap == null) return null;
-            mapMarkers.clear();
-            mapMarkers.putAll(snap.markers);
-            fogExploration = snap.fogExploration;
+            snap.markers.forEach((markerId, previous) -> {
+                if (previous != null) {
+                    mapMarkers.put(markerId, previous);
+                } else {
+                    mapMarkers.remove(markerId);
+                }
+            });
+            fog = snap.fog;
             return snap;
         }
 
-        public boolean hasUndo() {
+        private void trimUndo(int depth) {
+            while (undoStack.size() > depth) {
+                undoStack.removeLast();
+            }
+        }
+
+        // Every marker change goes through here, so the open undo entry can record its inverse
+        private void storeMarker(String markerId, MapMarker marker) {
+            MapMarker previous = marker != null ? mapMarkers.put(markerId, marker) : mapMarkers.remove(markerId);
+            MapUndoEntry open = undoStack.peek();
+            if (open != null) {
+                open.record(markerId, previous);
+            }
+        }
+
+        public synchronized int undoDepth() {
+            return undoDepth != null ? undoDepth : defaultUndoDepth;
+        }
+
+        /** Sets this campaign's undo depth, or restores the default for null; drops older entries. */
+        public synchronized void setUndoDepth(Integer depth) {
+            if (depth != null && (depth < 0 || depth > MAX_UNDO_DEPTH)) {
+                throw new IllegalArgumentException("Undo depth must be between 0 and " + MAX_UNDO_DEPTH);
+            }
+            undoDepth = depth;
+            trimUndo(undoDepth());
+            emit(GameStateOp.undoDepth(depth));
+        }
+
+        public synchronized boolean hasUndo() {
             return !undoStack.isEmpty();
         }
 
@@ -82,32 +418,234 @@ public class GameState {
             return "m" + markerSeq.getAndIncrement();
         }
 
-        public void setTurn(Long playerId) {
+        public synchronized void setTurn(Long playerId) {
             this.currentTurnPlayerId = playerId;
+            emit(GameStateOp.turn(playerId));
         }
 
-        public int updateHp(Long playerId, int delta) {
+        public synchronized int updateHp(Long playerId, int delta) {
             Integer maxHp = playerMaxHp.getOrDefault(playerId, 999);
-            return playerHp.merge(playerId, delta, (current, d) -> {
+            int hp = playerHp.merge(playerId, delta, (current, d) -> {
                 int newHp = current + d;
                 if (newHp < 0) newHp = 0;
                 if (newHp > maxHp) newHp = maxHp;
                 return newHp;
             });
+            emit(GameStateOp.hp(playerId, hp, null));
+            return hp;
         }
 
-        public void setHp(Long playerId, int hp, int max) {
+        public synchronized void setHp(Long playerId, int hp, int max) {
             playerHp.put(playerId, hp);
             playerMaxHp.put(playerId, max);
+            emit(GameStateOp.hp(playerId, hp, max));
         }
 
-        public void initializeHp(Long playerId, int hp, int max) {
-            playerMaxHp.putIfAbsent(playerId, max);
-            playerHp.putIfAbsent(playerId, hp);
+        public synchronized void initializeHp(Long playerId, int hp, int max) {
+            boolean changed = playerMaxHp.putIfAbsent(playerId, max) == null;
+            changed |= playerHp.putIfAbsent(playerId, hp) == null;
+            if (changed) {
+                emit(GameStateOp.hp(playerId, playerHp.get(playerId), playerMaxHp.get(playerId)));
+            }
+        }
+
+        public synchronized void setPlayerActive(Long playerId, boolean active) {
+            playerActive.put(playerId, active);
+            emit(GameStateOp.active(playerId, active));
         }
 
-        public void recordDiceRoll(Long playerId, String playerName, String diceType, int result) {
+        /** Marks a player active unless their active state is already known. */
+        public synchronized void initializePlayerActive(Long playerId) {
+            if (playerActive.putIfAbsent(playerId, true) == null) {
+                emit(GameStateOp.active(playerId, true));
+            }
+        }
+
+        public synchronized void recordDiceRoll(Long playerId, String playerName, String diceType, int result) {
             this.lastDiceRoll = new DiceRollInfo(playerId, playerName, diceType, result, System.currentTimeMillis());
+            emit(GameStateOp.dice(lastDiceRoll));
+        }
+
+        public synchronized void setFog(FogBitmap data) {
+            this.fog = data;
+            fogDeltas = 0;
+            emit(GameStateOp.fog(data != null ? data.encode() : null));
+        }
+
+        /**
+         * Merges revealed cells, given as flattened {@code (y, x, length)} runs, into the fog.
+         * Returns false without recording anything when they were all explored already.
+         */
+        public synchronized boolean revealFog(int[] runs) {
+            FogBitmap current = fog != null ? fog : FogBitmap.empty();
+            FogBitmap revealed = current.reveal(runs);
+            if (revealed == current) {
+                return false;
+            }
+            fog = revealed;
+            emit(GameStateOp.fogReveal(runs));
+            return true;
+        }
+
+        /** Counts one broadcast fog delta; returns true when a full keyframe is due instead. */
+        public synchronized boolean fogKeyframeDue(int interval) {
+            if (++fogDeltas >= interval) {
+                fogDeltas = 0;
+                return true;
+            }
+            return false;
+        }
+
+        public synchronized void putMarker(MapMarker marker) {
+            storeMarker(marker.id, marker);
+            emit(GameStateOp.markerPut(marker));
+        }
+
+        /** Moves a marker and optionally relabels it. Returns null if there is no such marker. */
+        public synchronized MapMarker moveMarker(String markerId, double x, double y, String label) {
+            MapMarker current = mapMarkers.get(markerId);
+            if (current == null) {
+                return null;
+            }
+            MapMarker marker = current.copy();
+            marker.x = x;
+            marker.y = y;
+            if (label != null && !label.isEmpty()) marker.label = label;
+            storeMarker(markerId, marker);
+            emit(GameStateOp.markerPut(marker));
+            return marker;
+        }
+
+        public synchronized MapMarker removeMarker(String markerId) {
+            if (!mapMarkers.containsKey(markerId)) {
+                return null;
+            }
+            MapMarker removed = mapMarkers.get(markerId);
+            storeMarker(markerId, null);
+            emit(GameStateOp.markerRemove(markerId));
+            return removed;
+        }
+
+        /** Clears fog, turn, HP, active flags and the last roll. Map markers are kept. */
+        public synchronized void reset() {
+            clearSession();
+            emit(GameStateOp.of(GameStateOp.Type.RESET));
+        }
+
+        private void clearSession() {
+            fog = null;
+            currentTurnPlayerId = null;
+            playerHp.clear();
+            playerMaxHp.clear();
+            playerActive.clear();
+            lastDiceRoll = null;
+        }
+
+        /** Re-applies a journaled op without reporting it again. */
+        synchronized void apply(long sequence, GameStateOp op) {
+            switch (op.type()) {
+                case TURN -> currentTurnPlayerId = op.playerId();
+                case HP -> {
+                    if (op.hp() != null) playerHp.put(op.playerId(), op.hp());
+                    if (op.maxHp() != null) playerMaxHp.put(op.playerId(), op.maxHp());
+                }
+                case ACTIVE -> playerActive.put(op.playerId(), op.active());
+                case DICE -> lastDiceRoll = op.dice();
+                case FOG -> fog = decodeFog(op.data());
+                case FOG_REVEAL -> fog = (fog != null ? fog : FogBitmap.empty()).reveal(op.runs());
+                case MARKER_PUT -> {
+                    storeMarker(op.marker().id, op.marker());
+                    reserveMarkerId(op.marker().id);
+                }
+                case MARKER_REMOVE -> storeMarker(op.markerId(), null);
+                case UNDO_PUSH -> captureUndo();
+                case UNDO_POP -> restoreUndo();
+                case UNDO_DEPTH -> {
+                    undoDepth = op.undoDepth();
+                    trimUndo(undoDepth());
+                }
+                case RESET -> clearSession();
+                case INSTALL, REMOVE, EVICT -> throw new IllegalArgumentException("Not a state op: " + op.type());
+            }
+            journalSeq = sequence;
+        }
+
+        private void reserveMarkerId(String markerId) {
+            if (markerId != null && markerId.startsWith("m")) {
+                try {
+                    long used = Long.parseLong(markerId.substring(1));
+                    markerSeq.accumulateAndGet(used + 1, Math::max);
+                } catch (NumberFormatException ignored) {
+                    // ids not issued by nextMarkerId() do not affect the sequence
+                }
+            }
+        }
+
+        public synchronized StateTransfer export() {
+            List<UndoTransfer> undo = new ArrayList<>();
+            for (MapUndoEntry snap : undoStack) {
+                List<MapMarker> markers = new ArrayList<>();
+                List<String> removed = new ArrayList<>();
+                snap.markers.forEach((markerId, previous) -> {
+                    if (previous != null) {
+                        markers.add(previous);
+                    } else {
+                        removed.add(markerId);
+                    }
+                });
+                undo.add(new UndoTransfer(markers, removed, encodeFog(snap.fog)));
+            }
+            return new StateTransfer(currentTurnPlayerId, new HashMap<>(playerHp), new HashMap<>(playerMaxHp),
+                    new HashMap<>(playerActive), lastDiceRoll, encodeFog(fog),
+                    new ArrayList<>(mapMarkers.values()), markerSeq.get(), undo, journalSeq, undoDepth);
+        }
+
+        private static String encodeFog(FogBitmap fog) {
+            return fog != null ? fog.encode() : null;
+        }
+
+        private static FogBitmap decodeFog(String value) {
+            return value != null && !value.isEmpty() ? FogBitmap.decode(value) : null;
+        }
+
+        public static CampaignGameState restore(StateTransfer transfer) {
+            CampaignGameState state = new CampaignGameState();
+            state.currentTurnPlayerId = transfer.currentTurnPlayerId();
+            if (transfer.playerHp() != null) state.playerHp.putAll(transfer.playerHp());
+            if (transfer.playerMaxHp() != null) state.playerMaxHp.putAll(transfer.playerMaxHp());
+            if (transfer.playerActive() != null) state.playerActive.putAll(transfer.playerActive());
+            state.lastDiceRoll = transfer.lastDiceRoll();
+            state.fog = decodeFog(transfer.fogExploration());
+            if (transfer.mapMarkers() != null) {
+                for (MapMarker marker : transfer.mapMarkers()) {
+                    state.mapMarkers.put(marker.id, marker);
+                }
+            }
+            state.markerSeq.set(Math.max(1, transfer.markerSeq()));
+            if (transfer.undo() != null) {
+                // Older full-copy entries: each one removes the markers the next newer state added
+                Set<String> newer = new HashSet<>(state.mapMarkers.keySet());
+                for (UndoTransfer transferred : transfer.undo()) {
+                    MapUndoEntry entry = new MapUndoEntry(decodeFog(transferred.fogExploration()));
+                    Set<String> ids = new HashSet<>();
+                    for (MapMarker marker : transferred.markers()) {
+                        entry.markers.put(marker.id, marker);
+                        ids.add(marker.id);
+                    }
+                    List<String> removed = transferred.removed();
+                    if (removed == null) {
+                        removed = newer.stream().filter(id -> !ids.contains(id)).toList();
+                        newer = ids;
+                    }
+                    for (String markerId : removed) {
+                        entry.markers.put(markerId, null);
+                    }
+                    state.undoStack.addLast(entry);
+                }
+            }
+            state.undoDepth = transfer.undoDepth();
+            state.journalSeq = transfer.journalSeq();
+            return state;
         }
 
         /** Returns a snapshot for initial state load */
@@ -121,8 +659,9 @@ public class GameState {
                 snap.put("lastDiceRoll", lastDiceRoll);
             }
             snap.put("mapMarkers", new ArrayList<>(mapMarkers.values()));
-            if (fogExploration != null) {
-                snap.put("fogExploration", fogExploration);
+            snap.put("undoDepth", undoDepth());
+            if (fog != null) {
+                snap.put("fogExploration", fog.toPngDataUrl());
             }
             return snap;
         }
@@ -153,6 +692,10 @@ public class GameState {
             this.icon = icon;
         }
 
+        public MapMarker copy() {
+            return new MapMarker(id, type, label, x, y, groupId, playerIds, icon);
+        }
+
         public Map<String, Object> toMap() {
             Map<String, Object> m = new HashMap<>();
             m.put("id", id);
@@ -0,0 +1,194 @@
+package campaign;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.runtime.StartupEvent;
+import io.vertx.core.Vertx;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keeps only campaigns in use in memory. A campaign without SSE subscribers that has not
+ * been used for {@code dicekeeper.game-state.idle-ttl-minutes} is spilled to a gzipped file
+ * and dropped; above {@code dicekeeper.game-state.max-resident} the least recently used idle
+ * campaigns go first. The next {@link GameState#getOrCreate} loads the spilled file, or the
+ * write-behind copy in the database if there is none. The SSE replay buffers of evicted and
+ * otherwise idle campaigns are retired at the same time.
+ */
+@ApplicationScoped
+public class GameStateEvictor {
+
+    private static final Logger LOG = Logger.getLogger(GameStateEvictor.class);
+
+    @Inject
+    GameState gameState;
+
+    @Inject
+    SseBroadcaster broadcaster;
+
+    @Inject
+    GameStatePersister persister;
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    @Inject
+    Vertx vertx;
+
+    @ConfigProperty(name = "dicekeeper.game-state.dir", defaultValue = "target/game-state")
+    String directory;
+
+    @ConfigProperty(name = "dicekeeper.game-state.idle-ttl-minutes", defaultValue = "30")
+    long idleTtlMinutes;
+
+    @ConfigProperty(name = "dicekeeper.game-state.max-resident", defaultValue = "200")
+    int maxResident;
+
+    private Path spillDir;
+    private Counter evictions;
+    private Counter rehydrations;
+
+    void onStart(@Observes StartupEvent event) throws IOException {
+        spillDir = Path.of(directory, "spill");
+        Files.createDirectories(spillDir);
+        gameState.setLoader(this::load);
+
+        evictions = Counter.builder("dicekeeper.game-state.evictions")
+                .description("Campaigns spilled out of memory")
+                .register(meterRegistry);
+        rehydrations = Counter.builder("dicekeeper.game-state.rehydrations")
+                .description("Campaigns loaded back into memory")
+                .register(meterRegistry);
+        Gauge.builder("dicekeeper.game-state.resident.campaigns", gameState, GameState::residentCount)
+                .description("Campaigns whose game state is in memory")
+                .register(meterRegistry);
+        Gauge.builder("dicekeeper.game-state.resident.bytes", gameState, GameState::residentBytes)
+                .description("Estimated heap used by in-memory game state")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+
+        vertx.setPeriodic(60_000, id -> vertx.executeBlocking(() -> {
+            sweep();
+            return null;
+        }, false));
+    }
+
+    /** Evicts idle campaigns, then the least recently used ones while above the limit. */
+    void sweep() {
+        long now = System.currentTimeMillis();
+        long idleBefore = now - idleTtlMinutes * 60_000;
+        List<Long> candidates = new ArrayList<>();
+        for (Long campaignId : gameState.campaignIds()) {
+            GameState.CampaignGameState state = gameState.find(campaignId);
+            if (state != null && evictable(campaignId, state)) {
+                candidates.add(campaignId);
+            }
+        }
+        candidates.sort(Comparator.comparingLong(id -> lastUsedAt(id)));
+
+        int resident = gameState.residentCount();
+        int evicted = 0;
+        for (Long campaignId : candidates) {
+            boolean expired = lastUsedAt(campaignId) < idleBefore;
+            if (!expired && resident - evicted <= maxResident) {
+                break;
+            }
+            long seenAt = lastUsedAt(campaignId);
+            try {
+                if (gameState.evict(campaignId,
+                        state -> state.lastUsedAt() == seenAt && evictable(campaignId, state),
+                        state -> spill(campaignId, state))) {
+                    broadcaster.retire(campaignId);
+                    evicted++;
+                    evictions.increment();
+                }
+            } catch (UncheckedIOException e) {
+                LOG.error("Could not evict campaign, keeping it in memory", e);
+            }
+        }
+        if (evicted > 0) {
+            LOG.debugv("Evicted {0} idle campaigns, {1} resident", evicted, gameState.residentCount());
+        }
+        // Also covers campaigns owned by another node, whose events only pass through here
+        int retired = broadcaster.retireIdle(idleBefore);
+        if (retired > 0) {
+            LOG.debugv("Retired {0} idle SSE streams", retired);
+        }
+    }
+
+    private boolean evictable(Long campaignId, GameState.CampaignGameState state) {
+        return broadcaster.subscriberCount(campaignId) == 0 && !persister.hasPending(campaignId);
+    }
+
+    private long lastUsedAt(Long campaignId) {
+        GameState.CampaignGameState state = gameState.find(campaignId);
+        return state != null ? state.lastUsedAt() : Long.MAX_VALUE;
+    }
+
+    private void spill(Long campaignId, GameState.CampaignGameState state) {
+        Path tmp = spillFile(campaignId).resolveSibling(campaignId + ".json.gz.tmp");
+        try {
+            try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(tmp))) {
+                objectMapper.writeValue(out, state.export());
+            }
+            Files.move(tmp, spillFile(campaignId), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not spill game state of campaign " + campaignId, e);
+        }
+    }
+
+    GameState.CampaignGameState load(Long campaignId) {
+        Path file = spillFile(campaignId);
+        GameState.StateTransfer transfer = null;
+        if (Files.exists(file)) {
+            try (InputStream in = new GZIPInputStream(Files.newInputStream(file))) {
+                transfer = objectMapper.readValue(in, GameState.StateTransfer.class);
+                Files.delete(file);
+            } catch (IOException e) {
+                LOG.errorf(e, "Could not read spilled game state: campaign=%d", campaignId);
+            }
+        }
+        if (transfer == null) {
+            transfer = persister.load(campaignId);
+        }
+        if (transfer == null) {
+            return null;
+        }
+        rehydrations.increment();
+        return GameState.CampaignGameState.restore(transfer);
+    }
+
+    /** Deletes the spilled state of a deleted campaign. */
+    public void forget(Long campaignId) {
+        try {
+            Files.deleteIfExists(spillFile(campaignId));
+        } catch (IOException e) {
+            LOG.warnv("Could not delete spilled game state of campaign {0}: {1}", campaignId, e.getMessage());
+        }
+    }
+
+    private Path spillFile(Long campaignId) {
+        return spillDir.resolve(campaignId + ".json.gz");
+    }
+}
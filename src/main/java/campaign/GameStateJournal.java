@@ -0,0 +1,310 @@
+package campaign;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import io.vertx.core.Vertx;
+import jakarta.annotation.Priority;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Write-ahead log of game state mutations on local disk, so a restart restores every
+ * campaign without touching the database. Each mutation is appended as one JSON line to the
+ * current segment; segments are fsynced every second and periodically compacted into
+ * {@code snapshot.json}. At startup the snapshot is loaded and the remaining segments are
+ * replayed, skipping ops the snapshot already contains.
+ */
+@ApplicationScoped
+public class GameStateJournal {
+
+    private static final Logger LOG = Logger.getLogger(GameStateJournal.class);
+    private static final String SNAPSHOT_FILE = "snapshot.json";
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    @Inject
+    GameState gameState;
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    @Inject
+    Vertx vertx;
+
+    @ConfigProperty(name = "dicekeeper.game-state.journal.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @ConfigProperty(name = "dicekeeper.game-state.dir", defaultValue = "target/game-state")
+    String directory;
+
+    @ConfigProperty(name = "dicekeeper.game-state.snapshot-interval-seconds", defaultValue = "300")
+    long snapshotIntervalSeconds;
+
+    @ConfigProperty(name = "dicekeeper.game-state.journal.max-segment-bytes", defaultValue = "16777216")
+    long maxSegmentBytes;
+
+    /** One journal line. */
+    record Entry(Long campaignId, long seq, GameStateOp op) {
+    }
+
+    private ObjectMapper journalMapper;
+    private Path dir;
+    private FileChannel segment;
+    private long segmentIndex;
+    private long segmentBytes;
+    private long lastCompaction;
+    private volatile boolean compacting;
+
+    // Runs before the shard router announces this node, so handed-over campaigns are journaled.
+    void onStart(@Observes @Priority(100) StartupEvent event) throws IOException {
+        if (!enabled) {
+            return;
+        }
+        open();
+        vertx.setPeriodic(1_000, id -> vertx.executeBlocking(() -> {
+            maintain();
+            return null;
+        }, false));
+    }
+
+    // Runs after the shard router has handed campaigns over.
+    void onStop(@Observes @Priority(5000) ShutdownEvent event) {
+        if (enabled) {
+            close();
+        }
+    }
+
+    /** Restores all campaigns from disk, then starts journaling new mutations. */
+    void open() throws IOException {
+        journalMapper = objectMapper.copy().setSerializationInclusion(JsonInclude.Include.NON_NULL);
+        dir = Path.of(directory);
+        Files.createDirectories(dir);
+
+        long started = System.currentTimeMillis();
+        int campaigns = loadSnapshot();
+        List<Long> segments = segmentIndexes();
+        long ops = 0;
+        for (long index : segments) {
+            ops += replaySegment(segmentPath(index));
+        }
+        segmentIndex = segments.isEmpty() ? 1 : segments.get(segments.size() - 1) + 1;
+        segment = openSegment(segmentIndex);
+        lastCompaction = System.currentTimeMillis();
+        gameState.addMutationListener(this::append);
+        LOG.infov("Game state restored: {0} campaigns from snapshot, {1} journal ops replayed in {2} ms",
+                campaigns, ops, System.currentTimeMillis() - started);
+    }
+
+    void close() {
+        try {
+            compact();
+        } catch (IOException e) {
+            LOG.error("Could not write game state snapshot on shutdown", e);
+        }
+        synchronized (this) {
+            try {
+                if (segment != null) {
+                    segment.force(false);
+                    segment.close();
+                }
+            } catch (IOException e) {
+                LOG.error("Could not close game state journal", e);
+            }
+            segment = null;
+        }
+    }
+
+    private synchronized void append(Long campaignId, long seq, GameStateOp op) {
+        if (segment == null) {
+            return;
+        }
+        try {
+            byte[] line = journalMapper.writeValueAsBytes(new Entry(campaignId, seq, op));
+            ByteBuffer buffer = ByteBuffer.allocate(line.length + 1).put(line).put((byte) '\n').flip();
+            while (buffer.hasRemaining()) {
+                segmentBytes += segment.write(buffer);
+            }
+        } catch (IOException e) {
+            LOG.errorf(e, "Could not journal game state op: campaign=%d op=%s", campaignId, op.type());
+        }
+    }
+
+    /** Flushes the current segment and compacts when it is due. */
+    void maintain() {
+        try {
+            synchronized (this) {
+                if (segment == null) {
+                    return;
+                }
+                segment.force(false);
+            }
+            boolean due = System.currentTimeMillis() - lastCompaction >= snapshotIntervalSeconds * 1000;
+            if (!compacting && (segmentBytes >= maxSegmentBytes || (due && segmentBytes > 0))) {
+                compact();
+            }
+        } catch (IOException e) {
+            LOG.error("Game state journal maintenance failed", e);
+        }
+    }
+
+    /**
+     * Starts a new segment, writes every campaign to a fresh snapshot and deletes the older
+     * segments. Ops that land in the new segment while the snapshot is taken carry sequence
+     * numbers the snapshot already covers and are skipped on replay.
+     */
+    void compact() throws IOException {
+        compacting = true;
+        try {
+            long firstKept;
+            synchronized (this) {
+                if (segment == null) {
+                    return;
+                }
+                segment.force(false);
+                segment.close();
+                firstKept = ++segmentIndex;
+                segment = openSegment(firstKept);
+                segmentBytes = 0;
+            }
+
+            Map<Long, GameState.StateTransfer> snapshot = new HashMap<>();
+            for (Long campaignId : gameState.campaignIds()) {
+                GameState.CampaignGameState state = gameState.find(campaignId);
+                if (state != null) {
+                    snapshot.put(campaignId, state.export());
+                }
+            }
+            Path tmp = dir.resolve(SNAPSHOT_FILE + ".tmp");
+            try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.wrap(journalMapper.writeValueAsBytes(snapshot));
+                while (buffer.hasRemaining()) {
+                    out.write(buffer);
+                }
+                out.force(true);
+            }
+            Files.move(tmp, dir.resolve(SNAPSHOT_FILE),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            for (long index : segmentIndexes()) {
+                if (index < firstKept) {
+                    Files.deleteIfExists(segmentPath(index));
+                }
+            }
+            lastCompaction = System.currentTimeMillis();
+            LOG.debugv("Game state snapshot written: {0} campaigns", snapshot.size());
+        } finally {
+            compacting = false;
+        }
+    }
+
+    private int loadSnapshot() throws IOException {
+        Path file = dir.resolve(SNAPSHOT_FILE);
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        Map<Long, GameState.StateTransfer> snapshot = objectMapper.readValue(file.toFile(),
+                new TypeReference<Map<Long, GameState.StateTransfer>>() {});
+        snapshot.forEach((campaignId, transfer) ->
+                gameState.restore(campaignId, GameState.CampaignGameState.restore(transfer)));
+        return snapshot.size();
+    }
+
+    private long replaySegment(Path file) throws IOException {
+        long ops = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                Entry entry;
+                try {
+                    entry = objectMapper.readValue(line, Entry.class);
+                } catch (IOException e) {
+                    // A torn write at the end of the last segment before a crash
+                    LOG.warnv("Stopping replay of {0} at an unreadable entry", file.getFileName());
+                    break;
+                }
+                if (replay(entry)) {
+                    ops++;
+                }
+            }
+        }
+        return ops;
+    }
+
+    /** Applies one journal entry unless the restored state already contains it. */
+    boolean replay(Entry entry) {
+        GameState.CampaignGameState state = gameState.find(entry.campaignId());
+        GameStateOp op = entry.op();
+        switch (op.type()) {
+            case INSTALL -> {
+                GameState.CampaignGameState installed = GameState.CampaignGameState.restore(op.state());
+                installed.markJournaled(entry.seq());
+                gameState.restore(entry.campaignId(), installed);
+                return true;
+            }
+            case REMOVE, EVICT -> {
+                if (state != null && entry.seq() > state.journalSeq()) {
+                    gameState.discard(entry.campaignId());
+                    return true;
+                }
+                return false;
+            }
+            default -> {
+                if (state == null) {
+                    state = gameState.getOrCreate(entry.campaignId());
+                }
+                if (entry.seq() <= state.journalSeq()) {
+                    return false;
+                }
+                state.apply(entry.seq(), op);
+                return true;
+            }
+        }
+    }
+
+    private FileChannel openSegment(long index) throws IOException {
+        segmentBytes = 0;
+        return FileChannel.open(segmentPath(index), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private Path segmentPath(long index) {
+        return dir.resolve(SEGMENT_PREFIX + String.format("%012d", index) + SEGMENT_SUFFIX);
+    }
+
+    private List<Long> segmentIndexes() throws IOException {
+        List<Long> indexes = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                    .forEach(name -> indexes.add(Long.parseLong(
+                            name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()))));
+        }
+        indexes.sort(null);
+        return indexes;
+    }
+}
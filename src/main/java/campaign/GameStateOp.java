@@ -0,0 +1,69 @@
+package campaign;
+
+/**
+ * One mutation of a campaign's game state, as recorded in the {@link GameStateJournal}.
+ * Ops carry resulting values rather than deltas, so applying one twice is harmless for all
+ * types except the undo stack ops. Fog reveals are the one delta, but they only ever set
+ * cells, so replaying them is harmless as well.
+ */
+public record GameStateOp(Type type,
+                          Long playerId,
+                          Integer hp,
+                          Integer maxHp,
+                          Boolean active,
+                          GameState.DiceRollInfo dice,
+                          String data,
+                          int[] runs,
+                          GameState.MapMarker marker,
+                          String markerId,
+                          GameState.StateTransfer state,
+                          Integer undoDepth) {
+
+    public enum Type {
+        TURN, HP, ACTIVE, DICE, FOG, FOG_REVEAL, MARKER_PUT, MARKER_REMOVE, UNDO_PUSH, UNDO_POP, UNDO_DEPTH, RESET, INSTALL, REMOVE, EVICT
+    }
+
+    static GameStateOp turn(Long playerId) {
+        return new GameStateOp(Type.TURN, playerId, null, null, null, null, null, null, null, null, null, null);
+    }
+
+    static GameStateOp hp(Long playerId, Integer hp, Integer maxHp) {
+        return new GameStateOp(Type.HP, playerId, hp, maxHp, null, null, null, null, null, null, null, null);
+    }
+
+    static GameStateOp active(Long playerId, boolean active) {
+        return new GameStateOp(Type.ACTIVE, playerId, null, null, active, null, null, null, null, null, null, null);
+    }
+
+    static GameStateOp dice(GameState.DiceRollInfo dice) {
+        return new GameStateOp(Type.DICE, null, null, null, null, dice, null, null, null, null, null, null);
+    }
+
+    static GameStateOp fog(String data) {
+        return new GameStateOp(Type.FOG, null, null, null, null, null, data, null, null, null, null, null);
+    }
+
+    static GameStateOp fogReveal(int[] runs) {
+        return new GameStateOp(Type.FOG_REVEAL, null, null, null, null, null, null, runs, null, null, null, null);
+    }
+
+    static GameStateOp markerPut(GameState.MapMarker marker) {
+        return new GameStateOp(Type.MARKER_PUT, null, null, null, null, null, null, null, marker, null, null, null);
+    }
+
+    static GameStateOp markerRemove(String markerId) {
+        return new GameStateOp(Type.MARKER_REMOVE, null, null, null, null, null, null, null, null, markerId, null, null);
+    }
+
+    static GameStateOp of(Type type) {
+        return new GameStateOp(type, null, null, null, null, null, null, null, null, null, null, null);
+    }
+
+    static GameStateOp undoDepth(Integer depth) {
+        return new GameStateOp(Type.UNDO_DEPTH, null, null, null, null, null, null, null, null, null, null, depth);
+    }
+
+    static GameStateOp install(GameState.StateTransfer state) {
+        return new GameStateOp(Type.INSTALL, null, null, null, null, null, null, null, null, null, state, null);
+    }
+}
@@ -0,0 +1,382 @@
+package campaign;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.agroal.api.AgroalDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import io.vertx.core.Vertx;
+import jakarta.annotation.Priority;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes live game state to PostgreSQL behind the request path. Mutations only mark a
+ * campaign or player row dirty; a timer (or a full dirty set) flushes the current values in
+ * one transaction of batched upserts. Repeated HP changes of a player between two flushes
+ * therefore cost a single row write. The undo stack is not persisted.
+ */
+@ApplicationScoped
+public class GameStatePersister {
+
+    private static final Logger LOG = Logger.getLogger(GameStatePersister.class);
+
+    private static final String UPSERT_GAME_STATE = "insert into saved_game_state "
+            + "(campaign_id, current_turn_player_id, last_dice_roll, map_markers, marker_seq, fog_exploration, "
+            + "undo_depth, updated_at) values (?, ?, ?, ?, ?, ?, ?, ?) on conflict (campaign_id) do update set "
+            + "current_turn_player_id = excluded.current_turn_player_id, last_dice_roll = excluded.last_dice_roll, "
+            + "map_markers = excluded.map_markers, marker_seq = excluded.marker_seq, "
+            + "fog_exploration = excluded.fog_exploration, undo_depth = excluded.undo_depth, "
+            + "updated_at = excluded.updated_at";
+    private static final String UPSERT_PLAYER_STATE = "insert into saved_player_state "
+            + "(campaign_id, player_id, hp, max_hp, active) values (?, ?, ?, ?, ?) "
+            + "on conflict (campaign_id, player_id) do update set "
+            + "hp = excluded.hp, max_hp = excluded.max_hp, active = excluded.active";
+    private static final String DELETE_PLAYER_STATE =
+            "delete from saved_player_state where campaign_id = ? and player_id = ?";
+    private static final String DELETE_CAMPAIGN_PLAYERS = "delete from saved_player_state where campaign_id = ?";
+    private static final String SELECT_GAME_STATE = "select current_turn_player_id, last_dice_roll, map_markers, "
+            + "marker_seq, fog_exploration, undo_depth from saved_game_state where campaign_id = ?";
+    private static final String SELECT_PLAYER_STATES =
+            "select player_id, hp, max_hp, active from saved_player_state where campaign_id = ?";
+
+    @Inject
+    GameState gameState;
+
+    @Inject
+    AgroalDataSource dataSource;
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    @Inject
+    Vertx vertx;
+
+    @ConfigProperty(name = "dicekeeper.game-state.write-behind.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @ConfigProperty(name = "dicekeeper.game-state.write-behind.interval-ms", defaultValue = "2000")
+    long intervalMs;
+
+    @ConfigProperty(name = "dicekeeper.game-state.write-behind.batch-size", defaultValue = "500")
+    int batchSize;
+
+    @ConfigProperty(name = "dicekeeper.game-state.write-behind.max-lag-ms", defaultValue = "10000")
+    long maxLagMs;
+
+    record PlayerKey(Long campaignId, Long playerId) {
+    }
+
+    // Guarded by this; a flush takes all three sets at once so a reset never overtakes later writes.
+    private final Set<Long> dirtyCampaigns = new HashSet<>();
+    private final Set<Long> resetCampaigns = new HashSet<>();
+    private final Set<PlayerKey> dirtyPlayers = new HashSet<>();
+    /** Time of the oldest change not yet written, or 0 when everything is flushed. */
+    private final AtomicLong oldestPendingAt = new AtomicLong();
+    private final AtomicBoolean flushing = new AtomicBoolean();
+
+    void onStart(@Observes StartupEvent event) {
+        if (!enabled) {
+            return;
+        }
+        gameState.addMutationListener(this::onMutation);
+        Gauge.builder("dicekeeper.game-state.write-behind.pending", this, GameStatePersister::pendingCount)
+                .description("Game state rows waiting to be written to the database")
+                .register(meterRegistry);
+        Gauge.builder("dicekeeper.game-state.write-behind.lag", this, GameStatePersister::lagMillis)
+                .description("Age of the oldest game state change not yet in the database")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+        vertx.setPeriodic(intervalMs, id -> scheduleFlush());
+    }
+
+    // Runs after campaigns were handed over and before the journal is closed.
+    void onStop(@Observes @Priority(4000) ShutdownEvent event) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            for (int i = 0; i < 100 && flushing.get(); i++) {
+                Thread.sleep(50);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    synchronized void onMutation(Long campaignId, long sequence, GameStateOp op) {
+        switch (op.type()) {
+            case HP, ACTIVE -> dirtyPlayers.add(new PlayerKey(campaignId, op.playerId()));
+            case RESET -> {
+                resetCampaigns.add(campaignId);
+                dirtyCampaigns.add(campaignId);
+                dirtyPlayers.removeIf(key -> key.campaignId().equals(campaignId));
+            }
+            case INSTALL -> {
+                resetCampaigns.add(campaignId);
+                dirtyCampaigns.add(campaignId);
+                if (op.state().playerHp() != null) {
+                    op.state().playerHp().keySet().forEach(p -> dirtyPlayers.add(new PlayerKey(campaignId, p)));
+                }
+                if (op.state().playerActive() != null) {
+                    op.state().playerActive().keySet().forEach(p -> dirtyPlayers.add(new PlayerKey(campaignId, p)));
+                }
+            }
+            // The state moved to another node or the campaign was deleted; nothing left to write.
+            case REMOVE -> forget(campaignId);
+            // Evicted campaigns have nothing pending (see GameStateEvictor) and keep their rows.
+            case UNDO_PUSH, EVICT -> {
+                return;
+            }
+            default -> dirtyCampaigns.add(campaignId);
+        }
+        oldestPendingAt.compareAndSet(0, System.currentTimeMillis());
+        if (pendingCount() >= batchSize) {
+            scheduleFlush();
+        }
+    }
+
+    /** Drops pending writes of a campaign, e.g. when it is deleted. */
+    public synchronized void forget(Long campaignId) {
+        dirtyCampaigns.remove(campaignId);
+        resetCampaigns.remove(campaignId);
+        dirtyPlayers.removeIf(key -> key.campaignId().equals(campaignId));
+    }
+
+    public synchronized boolean hasPending(Long campaignId) {
+        return dirtyCampaigns.contains(campaignId) || resetCampaigns.contains(campaignId)
+                || dirtyPlayers.stream().anyMatch(key -> key.campaignId().equals(campaignId));
+    }
+
+    /** Reads a campaign's saved state back, or returns null if none was written. */
+    public GameState.StateTransfer load(Long campaignId) {
+        if (!enabled) {
+            return null;
+        }
+        try (Connection connection = dataSource.getConnection()) {
+            GameState.StateTransfer saved;
+            try (PreparedStatement select = connection.prepareStatement(SELECT_GAME_STATE)) {
+                select.setLong(1, campaignId);
+                try (ResultSet rs = select.executeQuery()) {
+                    if (!rs.next()) {
+                        return null;
+                    }
+                    String dice = rs.getString("last_dice_roll");
+                    String markers = rs.getString("map_markers");
+                    saved = new GameState.StateTransfer(
+                            (Long) rs.getObject("current_turn_player_id"),
+                            new HashMap<>(), new HashMap<>(), new HashMap<>(),
+                            dice != null ? objectMapper.readValue(dice, GameState.DiceRollInfo.class) : null,
+                            rs.getString("fog_exploration"),
+                            markers != null ? objectMapper.readValue(markers, new TypeReference<List<GameState.MapMarker>>() {})
+                                    : new ArrayList<>(),
+                            rs.getLong("marker_seq"),
+                            List.of(),
+                            0,
+                            (Integer) rs.getObject("undo_depth"));
+                }
+            }
+            try (PreparedStatement select = connection.prepareStatement(SELECT_PLAYER_STATES)) {
+                select.setLong(1, campaignId);
+                try (ResultSet rs = select.executeQuery()) {
+                    while (rs.next()) {
+                        long playerId = rs.getLong("player_id");
+                        Integer hp = (Integer) rs.getObject("hp");
+                        Integer maxHp = (Integer) rs.getObject("max_hp");
+                        Boolean active = (Boolean) rs.getObject("active");
+                        if (hp != null) saved.playerHp().put(playerId, hp);
+                        if (maxHp != null) saved.playerMaxHp().put(playerId, maxHp);
+                        if (active != null) saved.playerActive().put(playerId, active);
+                    }
+                }
+            }
+            return saved;
+        } catch (Exception e) {
+            LOG.errorf(e, "Could not load saved game state: campaign=%d", campaignId);
+            return null;
+        }
+    }
+
+    private void scheduleFlush() {
+        if (pendingCount() == 0 || flushing.get()) {
+            return;
+        }
+        vertx.executeBlocking(() -> {
+            flush();
+            return null;
+        }, false);
+    }
+
+    /** Writes all pending changes in one transaction; on failure they stay pending. */
+    void flush() {
+        if (!flushing.compareAndSet(false, true)) {
+            return;
+        }
+        long startedAt = System.currentTimeMillis();
+        List<Long> campaigns;
+        List<Long> resets;
+        List<PlayerKey> players;
+        synchronized (this) {
+            campaigns = drain(dirtyCampaigns);
+            resets = drain(resetCampaigns);
+            players = drain(dirtyPlayers);
+        }
+        try {
+            if (campaigns.isEmpty() && resets.isEmpty() && players.isEmpty()) {
+                return;
+            }
+            long lag = lagMillis();
+            write(campaigns, resets, players);
+            if (lag > maxLagMs) {
+                LOG.warnv("Game state write-behind fell {0} ms behind", lag);
+            }
+            LOG.debugv("Flushed game state: {0} campaigns, {1} players in {2} ms",
+                    campaigns.size(), players.size(), System.currentTimeMillis() - startedAt);
+            oldestPendingAt.set(pendingCount() == 0 ? 0 : startedAt);
+        } catch (Exception e) {
+            LOG.error("Game state write-behind flush failed, retrying on the next tick", e);
+            synchronized (this) {
+                // A retried reset runs before the upserts of the same flush, so newer writes survive it.
+                resetCampaigns.addAll(resets);
+                dirtyCampaigns.addAll(campaigns);
+                dirtyPlayers.addAll(players);
+            }
+        } finally {
+            flushing.set(false);
+        }
+    }
+
+    private void write(List<Long> campaigns, List<Long> resets, List<PlayerKey> players) throws Exception {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                try (PreparedStatement delete = connection.prepareStatement(DELETE_CAMPAIGN_PLAYERS)) {
+                    for (Long campaignId : resets) {
+                        delete.setLong(1, campaignId);
+                        delete.addBatch();
+                    }
+                    delete.executeBatch();
+                }
+                writeCampaigns(connection, campaigns);
+                writePlayers(connection, players);
+                connection.commit();
+            } catch (Exception e) {
+                connection.rollback();
+                throw e;
+            }
+        }
+    }
+
+    private void writeCampaigns(Connection connection, List<Long> campaigns) throws Exception {
+        try (PreparedStatement upsert = connection.prepareStatement(UPSERT_GAME_STATE)) {
+            for (Long campaignId : campaigns) {
+                GameState.CampaignGameState state = gameState.find(campaignId);
+                if (state == null) {
+                    continue;
+                }
+                GameState.StateTransfer values = state.export();
+                upsert.setLong(1, campaignId);
+                setNullableLong(upsert, 2, values.currentTurnPlayerId());
+                upsert.setString(3, values.lastDiceRoll() != null
+                        ? objectMapper.writeValueAsString(values.lastDiceRoll()) : null);
+                upsert.setString(4, objectMapper.writeValueAsString(values.mapMarkers()));
+                upsert.setLong(5, values.markerSeq());
+                upsert.setString(6, values.fogExploration());
+                if (values.undoDepth() != null) {
+                    upsert.setInt(7, values.undoDepth());
+                } else {
+                    upsert.setNull(7, Types.INTEGER);
+                }
+                upsert.setLong(8, System.currentTimeMillis());
+                upsert.addBatch();
+            }
+            upsert.executeBatch();
+        }
+    }
+
+    private void writePlayers(Connection connection, List<PlayerKey> players) throws SQLException {
+        try (PreparedStatement upsert = connection.prepareStatement(UPSERT_PLAYER_STATE);
+             PreparedStatement delete = connection.prepareStatement(DELETE_PLAYER_STATE)) {
+            for (PlayerKey key : players) {
+                GameState.CampaignGameState state = gameState.find(key.campaignId());
+                if (state == null) {
+                    continue;
+                }
+                Integer hp = state.playerHp.get(key.playerId());
+                Integer maxHp = state.playerMaxHp.get(key.playerId());
+                Boolean active = state.playerActive.get(key.playerId());
+                if (hp == null && maxHp == null && active == null) {
+                    delete.setLong(1, key.campaignId());
+                    delete.setLong(2, key.playerId());
+                    delete.addBatch();
+                    continue;
+                }
+                upsert.setLong(1, key.campaignId());
+                upsert.setLong(2, key.playerId());
+                setNullableInt(upsert, 3, hp);
+                setNullableInt(upsert, 4, maxHp);
+                if (active != null) {
+                    upsert.setBoolean(5, active);
+                } else {
+                    upsert.setNull(5, Types.BOOLEAN);
+                }
+                upsert.addBatch();
+            }
+            delete.executeBatch();
+            upsert.executeBatch();
+        }
+    }
+
+    private static <T> List<T> drain(Set<T> dirty) {
+        List<T> drained = new ArrayList<>(dirty);
+        dirty.clear();
+        return drained;
+    }
+
+    private static void setNullableLong(PreparedStatement statement, int index, Long value) throws SQLException {
+        if (value != null) {
+            statement.setLong(index, value);
+        } else {
+            statement.setNull(index, Types.BIGINT);
+        }
+    }
+
+    private static void setNullableInt(PreparedStatement statement, int index, Integer value) throws SQLException {
+        if (value != null) {
+            statement.setInt(index, value);
+        } else {
+            statement.setNull(index, Types.INTEGER);
+        }
+    }
+
+    synchronized int pendingCount() {
+        return dirtyCampaigns.size() + dirtyPlayers.size() + resetCampaigns.size();
+    }
+
+    long lagMillis() {
+        long oldest = oldestPendingAt.get();
+        return oldest == 0 || pendingCount() == 0 ? 0 : System.currentTimeMillis() - oldest;
+    }
+}
@@ -4,11 +4,35 @@ import io.quarkus.hibernate.orm.panache.PanacheEntity;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Table;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 @Entity
 @Table(name = "group_decision")
 public class GroupDecision extends PanacheEntity {
 
+    /** Options of a decision created without any: a yes/no vote. */
+    public static final List<String> YES_NO = List.of("Ja", "Nein");
+    public static final int MAX_OPTIONS = 10;
+
+    // The SET expressions read the row before this vote; array subscripts are 1-based.
+    private static final String COUNT_VOTE = """
+            update group_decision set
+                option_votes[?3] = option_votes[?3] + 1,
+                vote_count = vote_count + 1,
+                status = case when total_players > 0 and vote_count + 1 >= total_players
+                    then 'RESOLVED' else status end,
+                resolved_at = case when total_players > 0 and vote_count + 1 >= total_players
+                    then ?4 else resolved_at end
+            where id = ?1 and campaign_id = ?2 and status = 'PENDING'
+                and ?3 between 1 and cardinality(option_votes)
+            returning array_to_string(option_votes, ','), status""";
+
     @Column(name = "campaign_id", nullable = false)
     public Long campaignId;
 
@@ -34,19 +58,22 @@ public class GroupDecision extends PanacheEntity {
     @Column(name = "order_index")
     public Integer orderIndex;
 
-    @Column(name = "yes_votes", nullable = false)
-    public int yesVotes = 0;
+    // Labels of the options players choose from
+    @JdbcTypeCode(SqlTypes.ARRAY)
+    @Column(name = "options", nullable = false, updatable = false)
+    public String[] options = YES_NO.toArray(String[]::new);
+
+    // Votes per option, in the order of options; only changed by countVote, atomically in the database
+    @JdbcTypeCode(SqlTypes.ARRAY)
+    @Column(name = "option_votes", nullable = false, updatable = false)
+    public int[] optionVotes = new int[YES_NO.size()];
 
-    @Column(name = "no_votes", nullable = false)
-    public int noVotes = 0;
+    @Column(name = "vote_count", nullable = false, updatable = false)
+    public int voteCount = 0;
 
     @Column(name = "total_players", nullable = false)
     public int totalPlayers = 0;
 
-    // Comma-separated list of player IDs that have voted
-    @Column(name = "voted_player_ids", length = 2000)
-    public String votedPlayerIds = "";
-
     public GroupDecision() {}
 
     public GroupDecision(Long campaignId, String title, String description, int totalPlayers) {
@@ -58,24 +85,84 @@ public class GroupDecision extends PanacheEntity {
         this.totalPlayers = totalPlayers;
     }
 
-    public boolean hasPlayerVoted(Long playerId) {
-        if (votedPlayerIds == null || votedPlayerIds.isEmpty()) return false;
-        return ("," + votedPlayerIds + ",").contains("," + playerId + ",");
+    static final String INVALID_OPTIONS = "options must be 2 to " + MAX_OPTIONS + " non-empty labels";
+
+    /** Trimmed option labels from a request, or null unless they are 2 to {@value #MAX_OPTIONS} non-empty ones. */
+    public static List<String> parseOptions(Object labels) {
+        if (!(labels instanceof List<?> list) || list.size() < 2 || list.size() > MAX_OPTIONS) {
+            return null;
+        }
+        List<String> options = list.stream()
+                .map(label -> label != null ? label.toString().trim() : "")
+                .toList();
+        return options.contains("") ? null : options;
+    }
+
+    /** Replaces the default yes/no options; only before the decision is persisted. */
+    public void setOptions(List<String> labels) {
+        this.options = labels.toArray(String[]::new);
+        this.optionVotes = new int[labels.size()];
+    }
+
+    /** Counts after a vote; {@code resolved} if that vote was the last one missing. */
+    public record Tally(int[] optionVotes, boolean resolved) {
     }
 
-    public void addVote(Long playerId, String voteType) {
-        if (hasPlayerVoted(playerId)) return;
-        if ("yes".equals(voteType)) yesVotes++;
-        else if ("no".equals(voteType)) noVotes++;
-        if (votedPlayerIds == null || votedPlayerIds.isEmpty()) {
-            votedPlayerIds = String.valueOf(playerId);
-        } else {
-            votedPlayerIds += "," + playerId;
+    /**
+     * Adds a vote (recorded with {@link DecisionVote#record}) to the count of its option and
+     * resolves the decision once every player voted, in one statement. The row lock serializes
+     * concurrent votes, so none is lost and exactly one of them resolves the decision.
+     * Returns null if the campaign has no such pending decision or the decision no such option.
+     */
+    public static Tally countVote(Long decisionId, Long campaignId, int option) {
+        List<?> rows = getEntityManager().createNativeQuery(COUNT_VOTE)
+                .setParameter(1, decisionId)
+                .setParameter(2, campaignId)
+                .setParameter(3, option + 1)
+                .setParameter(4, System.currentTimeMillis())
+                .getResultList();
+        if (rows.isEmpty()) {
+            return null;
+        }
+        Object[] row = (Object[]) rows.get(0);
+        String[] counts = ((String) row[0]).split(",");
+        int[] optionVotes = new int[counts.length];
+        for (int i = 0; i < counts.length; i++) {
+            optionVotes[i] = Integer.parseInt(counts[i]);
         }
+        return new Tally(optionVotes, "RESOLVED".equals(row[1]));
     }
 
-    public boolean allVoted() {
-        return totalPlayers > 0 && (yesVotes + noVotes) >= totalPlayers;
+    /** Index of the option with the most votes; the earlier option wins a tie. */
+    public static int winningOption(int[] optionVotes) {
+        int winner = 0;
+        for (int i = 1; i < optionVotes.length; i++) {
+            if (optionVotes[i] > optionVotes[winner]) {
+                winner = i;
+            }
+        }
+        return winner;
     }
-}
 
+    /** E.g. "Ja (3 Ja / 1 Nein)". */
+    public static String describeResult(String[] options, int[] optionVotes) {
+        List<String> counts = new ArrayList<>(options.length);
+        for (int i = 0; i < options.length; i++) {
+            counts.add(optionVotes[i] + " " + options[i]);
+        }
+        return options[winningOption(optionVotes)] + " (" + String.join(" / ", counts) + ")";
+    }
+
+    /**
+     * Vote fields of the game API: the options with their counts, and for clients that only
+     * know yes/no polls the first two counts as {@code yes} and {@code no}.
+     */
+    public static Map<String, Object> tallyFields(String[] options, int[] optionVotes) {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("yes", optionVotes.length > 0 ? optionVotes[0] : 0);
+        fields.put("no", optionVotes.length > 1 ? optionVotes[1] : 0);
+        fields.put("options", options);
+        fields.put("votes", optionVotes);
+        return fields;
+    }
+}
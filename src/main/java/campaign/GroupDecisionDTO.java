@@ -1,5 +1,7 @@
 package campaign;
 
+import java.util.List;
+
 public class GroupDecisionDTO {
     public Long id;
     public Long campaignId;
@@ -10,6 +12,8 @@ public class GroupDecisionDTO {
     public Long resolvedAt;
     public String status;
     public Integer orderIndex;
+    public List<String> options;
+    public int[] optionVotes;
     public int yesVotes;
     public int noVotes;
     public int totalPlayers;
@@ -26,8 +30,11 @@ public class GroupDecisionDTO {
         this.resolvedAt = decision.resolvedAt;
         this.status = decision.status;
         this.orderIndex = decision.orderIndex;
-        this.yesVotes = decision.yesVotes;
-        this.noVotes = decision.noVotes;
+        this.options = List.of(decision.options);
+        this.optionVotes = decision.optionVotes;
+        // The first two counts, for clients that only know yes/no decisions
+        this.yesVotes = decision.optionVotes.length > 0 ? decision.optionVotes[0] : 0;
+        this.noVotes = decision.optionVotes.length > 1 ? decision.optionVotes[1] : 0;
         this.totalPlayers = decision.totalPlayers;
     }
 }
@@ -71,8 +71,21 @@ public class GroupDecisionResource {
                     .build();
         }
 
+        List<String> options = null;
+        if (dto.options != null) {
+            options = GroupDecision.parseOptions(dto.options);
+            if (options == null) {
+                return Response.status(Response.Status.BAD_REQUEST)
+                        .entity(GroupDecision.INVALID_OPTIONS)
+                        .build();
+            }
+        }
+
         long playerCount = CampaignPlayer.find("campaignId = ?1 and role = 'PLAYER'", campaignId).count();
         GroupDecision decision = new GroupDecision(campaignId, dto.title.trim(), dto.description, (int) playerCount);
+        if (options != null) {
+            decision.setOptions(options);
+        }
         if (dto.orderIndex != null) {
             decision.orderIndex = dto.orderIndex;
         }
@@ -161,6 +174,7 @@ public class GroupDecisionResource {
                     .build();
         }
 
+        DecisionVote.delete("decisionId", decisionId);
         decision.delete();
         return Response.noContent().build();
     }
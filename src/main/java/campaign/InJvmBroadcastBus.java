@@ -0,0 +1,84 @@
+package campaign;
+
+import io.quarkus.arc.lookup.LookupIfProperty;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Bus for a single JVM. Every instance is a node; events reach all other instances in the
+ * same JVM. With one application instance (the default deployment) publishing is a no-op,
+ * and tests can wire several instances to simulate a cluster.
+ */
+@ApplicationScoped
+@LookupIfProperty(name = "dicekeeper.sse.bus", stringValue = "local", lookupIfMissing = true)
+public class InJvmBroadcastBus implements BroadcastBus {
+
+    private static final List<InJvmBroadcastBus> NODES = new CopyOnWriteArrayList<>();
+
+    private volatile Listener listener;
+    private volatile Listener playerListener;
+    private final List<NodeListener> nodeListeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish(Long campaignId, String eventName, String json) {
+        for (InJvmBroadcastBus node : NODES) {
+            Listener receiver = node.listener;
+            if (node != this && receiver != null) {
+                receiver.onEvent(campaignId, eventName, json);
+            }
+        }
+    }
+
+    @Override
+    public void subscribe(Listener listener) {
+        this.listener = listener;
+        if (!NODES.contains(this)) {
+            NODES.add(this);
+        }
+    }
+
+    @Override
+    public void publishToPlayer(Long playerId, String eventName, String json) {
+        for (InJvmBroadcastBus node : NODES) {
+            Listener receiver = node.playerListener;
+            if (node != this && receiver != null) {
+                receiver.onEvent(playerId, eventName, json);
+            }
+        }
+    }
+
+    @Override
+    public void subscribePlayers(Listener listener) {
+        this.playerListener = listener;
+        if (!NODES.contains(this)) {
+            NODES.add(this);
+        }
+    }
+
+    @Override
+    public void publishToNodes(String type, String json) {
+        for (InJvmBroadcastBus node : NODES) {
+            if (node != this) {
+                for (NodeListener receiver : node.nodeListeners) {
+                    receiver.onMessage(type, json);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void subscribeNodes(NodeListener listener) {
+        nodeListeners.add(listener);
+        if (!NODES.contains(this)) {
+            NODES.add(this);
+        }
+    }
+
+    @PreDestroy
+    void leave() {
+        NODES.remove(this);
+    }
+}
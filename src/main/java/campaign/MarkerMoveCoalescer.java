@@ -0,0 +1,114 @@
+package campaign;
+
+import io.vertx.core.Vertx;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shapes marker_move broadcasts while a marker is dragged. The first move of a marker is
+ * broadcast at once and opens a window of {@code dicekeeper.map.marker-move-window-ms};
+ * further moves of that marker within the window only replace the pending position, which is
+ * broadcast when the window closes, so a marker in motion is broadcast once per window.
+ * Also tracks drags declared by the client, so a drag from pick-up to drop costs a single
+ * undo entry.
+ * <p>
+ * Must be called from the campaign's {@link CampaignMailbox}; window timers post back to it.
+ */
+@ApplicationScoped
+public class MarkerMoveCoalescer {
+
+    @Inject
+    SseBroadcaster broadcaster;
+
+    @Inject
+    CampaignMailbox mailbox;
+
+    @Inject
+    Vertx vertx;
+
+    @ConfigProperty(name = "dicekeeper.map.marker-move-window-ms", defaultValue = "50")
+    long windowMs;
+
+    // campaignId -> markerId -> position waiting for the window to close (null = none yet)
+    private final Map<Long, Map<String, GameState.MapMarker>> windows = new ConcurrentHashMap<>();
+    // campaignId -> marker whose drag owns the campaign's latest undo entry
+    private final Map<Long, String> dragging = new ConcurrentHashMap<>();
+
+    /**
+     * True if this move continues a drag of the same marker with no other map change in
+     * between, so the drag's undo entry is still the latest one.
+     */
+    public boolean continuesDrag(Long campaignId, String markerId) {
+        return markerId != null && markerId.equals(dragging.get(campaignId));
+    }
+
+    /**
+     * Broadcasts a move now or at the end of the marker's window. {@code drag} is true while
+     * the client still holds the marker; a move without it is the drop. A move of another
+     * marker took a new undo entry, so it ends the open drag.
+     */
+    public void moved(Long campaignId, GameState.MapMarker marker, boolean drag) {
+        if (drag) {
+            dragging.put(campaignId, marker.id);
+        } else {
+            dragging.remove(campaignId);
+        }
+        if (windowMs <= 0) {
+            broadcaster.broadcast(campaignId, "marker_move", marker.toMap());
+            return;
+        }
+        Map<String, GameState.MapMarker> open = windows.computeIfAbsent(campaignId, id -> new HashMap<>());
+        if (open.containsKey(marker.id)) {
+            open.put(marker.id, marker);
+            return;
+        }
+        open.put(marker.id, null);
+        broadcaster.broadcast(campaignId, "marker_move", marker.toMap());
+        scheduleClose(campaignId, marker.id);
+    }
+
+    /**
+     * Broadcasts pending moves and ends any drag, before another map change of the campaign is
+     * broadcast, so clients never receive a stale move after it.
+     */
+    public void flush(Long campaignId) {
+        dragging.remove(campaignId);
+        Map<String, GameState.MapMarker> open = windows.remove(campaignId);
+        if (open == null) {
+            return;
+        }
+        for (GameState.MapMarker pending : open.values()) {
+            if (pending != null) {
+                broadcaster.broadcast(campaignId, "marker_move", pending.toMap());
+            }
+        }
+    }
+
+    private void closeWindow(Long campaignId, String markerId) {
+        Map<String, GameState.MapMarker> open = windows.get(campaignId);
+        if (open == null || !open.containsKey(markerId)) {
+            // Flushed in the meantime
+            return;
+        }
+        GameState.MapMarker pending = open.remove(markerId);
+        if (pending == null) {
+            if (open.isEmpty()) {
+                windows.remove(campaignId);
+            }
+            return;
+        }
+        // Still moving: keep the marker at one broadcast per window
+        broadcaster.broadcast(campaignId, "marker_move", pending.toMap());
+        open.put(markerId, null);
+        scheduleClose(campaignId, markerId);
+    }
+
+    private void scheduleClose(Long campaignId, String markerId) {
+        vertx.setTimer(windowMs, timer -> mailbox.post(campaignId, () -> closeWindow(campaignId, markerId)));
+    }
+}
@@ -0,0 +1,254 @@
+package campaign;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.agroal.api.AgroalDataSource;
+import io.quarkus.arc.lookup.LookupIfProperty;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bus over PostgreSQL LISTEN/NOTIFY on the application datasource. Publishing happens on a
+ * single background thread, so events keep their order and request threads never wait for
+ * the database. Payloads above the NOTIFY size limit are stored in {@code sse_bus_message}
+ * (created by migration V8) and only their id is sent.
+ */
+@ApplicationScoped
+@LookupIfProperty(name = "dicekeeper.sse.bus", stringValue = "postgres")
+public class PostgresBroadcastBus implements BroadcastBus {
+
+    private static final Logger LOG = Logger.getLogger(PostgresBroadcastBus.class);
+    // NOTIFY payloads must stay below 8000 bytes.
+    private static final int MAX_INLINE_PAYLOAD_BYTES = 7_500;
+    private static final long MESSAGE_RETENTION_MS = 5 * 60_000;
+
+    @Inject
+    AgroalDataSource dataSource;
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    @ConfigProperty(name = "dicekeeper.sse.bus.channel", defaultValue = "dicekeeper_events")
+    String channel;
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final ExecutorService publisher = Executors.newSingleThreadExecutor(
+            runnable -> Thread.ofPlatform().name("sse-bus-publisher").daemon().unstarted(runnable));
+    private volatile Listener listener;
+    private volatile Listener playerListener;
+    private final List<NodeListener> nodeListeners = new CopyOnWriteArrayList<>();
+    private volatile boolean running = true;
+    private Thread listenerThread;
+
+    @PostConstruct
+    void start() {
+        listenerThread = Thread.ofPlatform().name("sse-bus-listener").daemon().start(this::listen);
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        publisher.shutdown();
+        try {
+            publisher.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (listenerThread != null) {
+            listenerThread.interrupt();
+        }
+    }
+
+    @Override
+    public void publish(Long campaignId, String eventName, String json) {
+        publish("campaignId", campaignId, eventName, json);
+    }
+
+    @Override
+    public void subscribe(Listener listener) {
+        this.listener = listener;
+    }
+
+    @Override
+    public void publishToPlayer(Long playerId, String eventName, String json) {
+        publish("playerId", playerId, eventName, json);
+    }
+
+    @Override
+    public void subscribePlayers(Listener listener) {
+        this.playerListener = listener;
+    }
+
+    @Override
+    public void publishToNodes(String type, String json) {
+        publish("nodes", null, type, json);
+    }
+
+    @Override
+    public void subscribeNodes(NodeListener listener) {
+        nodeListeners.add(listener);
+    }
+
+    /**
+     * {@code targetField} tells receivers whether the target is a campaign, a player, or
+     * ({@code nodes}, without an id) the nodes themselves.
+     */
+    private void publish(String targetField, Long targetId, String eventName, String json) {
+        if (!running) {
+            return;
+        }
+        publisher.execute(() -> {
+            try {
+                notifyNodes(targetField, targetId, eventName, json);
+            } catch (Exception e) {
+                LOG.errorf(e, "Could not publish SSE event to other nodes: %s=%d event=%s",
+                        targetField, targetId, eventName);
+            }
+        });
+    }
+
+    private void notifyNodes(String targetField, Long targetId, String eventName, String json) throws Exception {
+        ObjectNode message = objectMapper.createObjectNode()
+                .put("node", nodeId)
+                .put(targetField, targetId)
+                .put("event", eventName)
+                .put("data", json);
+        String payload = objectMapper.writeValueAsString(message);
+
+        try (Connection connection = dataSource.getConnection()) {
+            if (payload.getBytes(StandardCharsets.UTF_8).length > MAX_INLINE_PAYLOAD_BYTES) {
+                long messageId;
+                try (PreparedStatement insert = connection.prepareStatement(
+                        "insert into sse_bus_message (payload) values (?) returning id")) {
+                    insert.setString(1, payload);
+                    try (ResultSet rs = insert.executeQuery()) {
+                        rs.next();
+                        messageId = rs.getLong(1);
+                    }
+                }
+                payload = objectMapper.writeValueAsString(objectMapper.createObjectNode()
+                        .put("node", nodeId)
+                        .put("ref", messageId));
+            }
+            try (PreparedStatement notify = connection.prepareStatement("select pg_notify(?, ?)")) {
+                notify.setString(1, channel);
+                notify.setString(2, payload);
+                notify.execute();
+            }
+        }
+    }
+
+    /**
+     * Keeps one pooled connection checked out for LISTEN, reconnecting with a short back-off.
+     * Notifications are only delivered to the session that issued LISTEN, so the connection
+     * must not go back to the pool while listening.
+     */
+    private void listen() {
+        long lastCleanup = 0;
+        while (running) {
+            try (Connection connection = dataSource.getConnection()) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + channel);
+                }
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                LOG.infov("SSE bus listening on channel {0} as node {1}", channel, nodeId);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(1_000);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            receive(connection, notification.getParameter());
+                        }
+                    }
+                    long now = System.currentTimeMillis();
+                    if (now - lastCleanup > 60_000) {
+                        deleteExpiredMessages(connection);
+                        lastCleanup = now;
+                    }
+                }
+            } catch (Exception e) {
+                if (!running) {
+                    return;
+                }
+                LOG.warn("SSE bus connection lost, reconnecting", e);
+                try {
+                    Thread.sleep(2_000);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void receive(Connection connection, String payload) {
+        try {
+            JsonNode message = objectMapper.readTree(payload);
+            if (nodeId.equals(message.path("node").asText())) {
+                return;
+            }
+            if (message.has("ref")) {
+                message = loadStoredMessage(connection, message.get("ref").asLong());
+                if (message == null) {
+                    return;
+                }
+            }
+            if (message.has("nodes")) {
+                for (NodeListener receiver : nodeListeners) {
+                    receiver.onMessage(message.get("event").asText(), message.get("data").asText());
+                }
+                return;
+            }
+            boolean forPlayer = message.has("playerId");
+            Listener receiver = forPlayer ? playerListener : listener;
+            if (receiver == null) {
+                return;
+            }
+            receiver.onEvent(message.get(forPlayer ? "playerId" : "campaignId").asLong(),
+                    message.get("event").asText(),
+                    message.get("data").asText());
+        } catch (Exception e) {
+            LOG.errorf(e, "Ignoring malformed SSE bus message");
+        }
+    }
+
+    private JsonNode loadStoredMessage(Connection connection, long messageId) throws Exception {
+        try (PreparedStatement select = connection.prepareStatement(
+                "select payload from sse_bus_message where id = ?")) {
+            select.setLong(1, messageId);
+            try (ResultSet rs = select.executeQuery()) {
+                if (!rs.next()) {
+                    LOG.warnv("SSE bus message {0} expired before it was read", messageId);
+                    return null;
+                }
+                return objectMapper.readTree(rs.getString(1));
+            }
+        }
+    }
+
+    private void deleteExpiredMessages(Connection connection) throws SQLException {
+        try (PreparedStatement delete = connection.prepareStatement(
+                "delete from sse_bus_message where created_at < now() - make_interval(secs => ?)")) {
+            delete.setLong(1, MESSAGE_RETENTION_MS / 1000);
+            delete.executeUpdate();
+        }
+    }
+}
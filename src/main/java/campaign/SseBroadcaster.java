@@ -1,31 +1,53 @@
 package campaign;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Instance;
 import jakarta.inject.Inject;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import jakarta.transaction.Status;
 import jakarta.transaction.Synchronization;
 import jakarta.transaction.TransactionSynchronizationRegistry;
-import jakarta.ws.rs.sse.OutboundSseEvent;
-import jakarta.ws.rs.sse.Sse;
 import jakarta.ws.rs.sse.SseEventSink;
 import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpServerResponse;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.jboss.logging.Logger;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 /**
  * Manages SSE connections per campaign and broadcasts events.
+ * Every connection owns a bounded outbound queue so a slow client cannot grow the heap;
+ * what happens on overflow is decided by the configured {@link SlowConsumerPolicy}.
+ * Each event is encoded once into a complete SSE frame that is written as-is to every
+ * subscriber's HTTP response. Event ids are per-campaign sequence numbers, and recent
+ * frames are kept per campaign so a reconnecting client only receives the events it missed;
+ * they are dropped together with the campaign's idle game state.
+ * Broadcasts are also published on the {@link BroadcastBus}, so clients connected to other
+ * nodes receive them too; sequences and replay buffers stay local to each node.
+ * Other transports (the WebSocket channel) receive the same events as {@link EventListener}s.
  */
 @ApplicationScoped
 public class SseBroadcaster {
 
     private static final Logger LOG = Logger.getLogger(SseBroadcaster.class);
+    private static final int RECONNECT_DELAY_MS = 2_000;
 
     @Inject
     ObjectMapper objectMapper;
@@ -36,27 +58,414 @@ public class SseBroadcaster {
     @Inject
     TransactionSynchronizationRegistry transactionRegistry;
 
+    @Inject
+    MeterRegistry meterRegistry;
+
+    @ConfigProperty(name = "dicekeeper.sse.queue-capacity", defaultValue = "64")
+    int queueCapacity;
+
+    @ConfigProperty(name = "dicekeeper.sse.slow-consumer-policy", defaultValue = "drop-oldest")
+    SlowConsumerPolicy slowConsumerPolicy;
+
+    @ConfigProperty(name = "dicekeeper.sse.replay-buffer-size", defaultValue = "128")
+    int replayBufferSize;
+
+    @Inject
+    GameState gameState;
+
+    @Inject
+    Instance<BroadcastBus> buses;
+
+    private BroadcastBus bus;
+
     // campaignId → set of active SSE sinks
     private final ConcurrentHashMap<Long, Set<SseConnection>> connections = new ConcurrentHashMap<>();
-    private final AtomicLong eventSequence = new AtomicLong();
+    // campaignId → listeners of other transports
+    private final ConcurrentHashMap<Long, Set<EventListener>> listeners = new ConcurrentHashMap<>();
+    // campaignId → sequence and recently broadcast frames; created by the first subscriber of a
+    // campaign and retired once the campaign has been idle without subscribers
+    private final ConcurrentHashMap<Long, SseCampaignStream> streams = new ConcurrentHashMap<>();
+    // Above the sequence of every retired stream; new streams start here, so no id is reused and
+    // ids from before a retirement are never resumed across the events missed in between
+    private final AtomicLong retiredSequence = new AtomicLong();
+    /**
+     * Prefix of every event id, unique per node and start, so ids from before a restart or
+     * from another node are never mistaken for current ones.
+     */
+    private final String streamEpoch = Long.toString(System.currentTimeMillis(), 36)
+            + Integer.toString(ThreadLocalRandom.current().nextInt(36 * 36 * 36), 36);
     private long heartbeatTimerId;
+    private Counter droppedEvents;
+    private Counter slowDisconnects;
+
+    /** What to do when a connection's outbound queue is full. */
+    public enum SlowConsumerPolicy {
+        /** Discard the oldest queued event. */
+        DROP_OLDEST,
+        /** Replace a queued event with the same name (newest wins), otherwise discard the oldest. */
+        COALESCE,
+        /** Close the connection; the client reconnects and reloads the full state. */
+        DISCONNECT
+    }
+
+    /**
+     * Receives a campaign's events in the same order and with the same ids as its SSE clients.
+     * Called while the campaign's stream is locked, so implementations must not block.
+     */
+    public interface EventListener {
+        /** {@code eventId} is null for events of a campaign that was deleted meanwhile. */
+        void onEvent(String eventId, String eventName, String json);
+    }
 
     public static class SseConnection {
         public final SseEventSink sink;
-        public final Sse sse;
+        /** The underlying response; frames are written here once the sink has sent the headers. */
+        public final HttpServerResponse response;
+
+        private final Deque<QueuedEvent> queue = new ArrayDeque<>();
+        private boolean started;
+        private boolean sending;
+        private long delivered;
+        private long dropped;
+        private boolean resumed;
+        private String openedAtEventId;
+
+        public SseConnection(SseEventSink sink, HttpServerResponse response) {
+            this(sink, response, true);
+        }
 
-        public SseConnection(SseEventSink sink, Sse sse) {
+        /** A connection that is not {@code started} queues events but writes none yet. */
+        SseConnection(SseEventSink sink, HttpServerResponse response, boolean started) {
             this.sink = sink;
-            this.sse = sse;
+            this.response = response;
+            this.started = started;
+        }
+
+        public boolean isClosed() {
+            return sink.isClosed() || response.closed();
+        }
+
+        /** Whether the events missed since the client's Last-Event-ID were queued for replay. */
+        public boolean resumed() {
+            return resumed;
+        }
+
+        /** Id of the last event broadcast before this connection was opened. */
+        public String openedAtEventId() {
+            return openedAtEventId;
+        }
+
+        /** Events waiting to be written to this client (excluding the one in flight). */
+        public synchronized int queuedEvents() {
+            return queue.size();
+        }
+
+        /** How long the oldest queued event has been waiting, in milliseconds. */
+        public synchronized long lagMillis() {
+            QueuedEvent oldest = queue.peekFirst();
+            return oldest == null ? 0 : System.currentTimeMillis() - oldest.enqueuedAt;
+        }
+
+        public synchronized long deliveredEvents() {
+            return delivered;
+        }
+
+        public synchronized long droppedEvents() {
+            return dropped;
+        }
+
+        /**
+         * Queues an event, applying the policy if the queue is full.
+         * Returns the number of events dropped, or -1 if the connection must be closed.
+         */
+        synchronized int offer(QueuedEvent event, int capacity, SlowConsumerPolicy policy) {
+            int droppedNow = 0;
+            if (queue.size() >= capacity) {
+                if (policy == SlowConsumerPolicy.DISCONNECT) {
+                    return -1;
+                }
+                if (policy != SlowConsumerPolicy.COALESCE || !removeQueued(event.name)) {
+                    queue.pollFirst();
+                }
+                droppedNow = 1;
+                dropped++;
+            }
+            queue.addLast(event);
+            return droppedNow;
+        }
+
+        /** Claims the next event to write, or null if a write is already in flight or nothing is queued. */
+        synchronized QueuedEvent claimNext() {
+            if (sending || !started) {
+                return null;
+            }
+            QueuedEvent next = queue.pollFirst();
+            sending = next != null;
+            return next;
+        }
+
+        synchronized void start() {
+            started = true;
+        }
+
+        synchronized void sent() {
+            sending = false;
+            delivered++;
+        }
+
+        private boolean removeQueued(String eventName) {
+            Iterator<QueuedEvent> it = queue.iterator();
+            while (it.hasNext()) {
+                if (it.next().name.equals(eventName)) {
+                    it.remove();
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    static final class QueuedEvent {
+        final String name;
+        /** Pre-encoded frame shared by every connection; never modified after creation. */
+        final Buffer frame;
+        final long enqueuedAt = System.currentTimeMillis();
+
+        QueuedEvent(String name, Buffer frame) {
+            this.name = name;
+            this.frame = frame;
+        }
+    }
+
+    /**
+     * Opens a connection that queues the campaign's events from now on. With a
+     * {@code lastEventId} whose missed events are still buffered, those are queued first and
+     * the connection is {@link SseConnection#resumed() resumed}; otherwise the client reloads
+     * the state over REST and continues from {@link SseConnection#openedAtEventId()}. The
+     * decision is made under the stream's monitor, so no event can slip between it and the
+     * replay. Nothing is written until {@link #start} is called once the headers were sent.
+     */
+    public SseConnection open(Long campaignId, SseEventSink sink, HttpServerResponse response, String lastEventId) {
+        SseConnection connection = new SseConnection(sink, response, false);
+        Set<SseConnection> campaignConnections;
+        int replayed = 0;
+        while (true) {
+            SseCampaignStream stream = stream(campaignId);
+            synchronized (stream) {
+                if (streams.get(campaignId) != stream) {
+                    continue; // retired meanwhile
+                }
+                List<QueuedEvent> missed = lastEventId != null ? missedEvents(stream, lastEventId) : null;
+                if (missed != null) {
+                    for (QueuedEvent event : missed) {
+                        connection.offer(new QueuedEvent(event.name, event.frame), queueCapacity, slowConsumerPolicy);
+                    }
+                    replayed = missed.size();
+                    connection.resumed = true;
+                }
+                connection.openedAtEventId = formatEventId(stream.sequence());
+                stream.touch();
+                campaignConnections = connections.computeIfAbsent(campaignId, id -> new CopyOnWriteArraySet<>());
+                campaignConnections.add(connection);
+                break;
+            }
+        }
+        LOG.debugv("SSE client connected: campaign={0} clients={1} replayed={2}",
+                campaignId, campaignConnections.size(), replayed);
+        return connection;
+    }
+
+    /**
+     * Starts writing to a connection whose headers were already sent through the sink
+     * (e.g. by the welcome event), so raw frames can be appended to the response.
+     */
+    public void start(Long campaignId, SseConnection connection) {
+        connection.start();
+        Set<SseConnection> campaignConnections = connections.get(campaignId);
+        if (campaignConnections != null && campaignConnections.contains(connection)) {
+            drain(campaignId, campaignConnections, connection);
+        }
+    }
+
+    /** Drops a connection that failed before {@link #start}. */
+    public void discard(Long campaignId, SseConnection connection) {
+        Set<SseConnection> campaignConnections = connections.get(campaignId);
+        if (campaignConnections != null) {
+            removeConnection(campaignId, campaignConnections, connection, null);
+        }
+    }
+
+    private SseCampaignStream stream(Long campaignId) {
+        return streams.computeIfAbsent(campaignId,
+                id -> new SseCampaignStream(replayBufferSize, retiredSequence.get()));
+    }
+
+    /** Registers a listener for the events broadcast to a campaign from now on. */
+    public void addListener(Long campaignId, EventListener listener) {
+        while (true) {
+            SseCampaignStream stream = stream(campaignId);
+            synchronized (stream) {
+                if (streams.get(campaignId) != stream) {
+                    continue; // retired meanwhile
+                }
+                listeners.computeIfAbsent(campaignId, id -> new CopyOnWriteArraySet<>()).add(listener);
+                stream.touch();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Hands {@code receiver} a {@code snapshot} event with the full game state while the
+     * campaign's stream is locked, so a client that starts listening in the callback receives
+     * exactly the events that follow the snapshot.
+     */
+    public void snapshot(Long campaignId, EventListener receiver) {
+        atCurrentEvent(campaignId, eventId -> {
+            String json = snapshotJson(campaignId);
+            if (json != null) {
+                receiver.onEvent(eventId, "snapshot", json);
+            }
+        });
+    }
+
+    /**
+     * Runs {@code action} with the id of the campaign's last event while its stream is locked,
+     * so no event is broadcast between reading the id and the action.
+     */
+    public void atCurrentEvent(Long campaignId, Consumer<String> action) {
+        SseCampaignStream stream = stream(campaignId);
+        synchronized (stream) {
+            action.accept(formatEventId(stream.sequence()));
+        }
+    }
+
+    public void removeListener(Long campaignId, EventListener listener) {
+        listeners.computeIfPresent(campaignId, (id, campaignListeners) -> {
+            campaignListeners.remove(listener);
+            return campaignListeners.isEmpty() ? null : campaignListeners;
+        });
+        touch(campaignId);
+    }
+
+    /**
+     * Id of the last event broadcast to a campaign, in the same format as the SSE {@code id}
+     * field; clients compare it with the last id they received to detect missed events.
+     */
+    public String currentEventId(Long campaignId) {
+        return formatEventId(currentSequence(campaignId));
+    }
+
+    /** Number of open SSE connections and listeners of a campaign on this node. */
+    public int subscriberCount(Long campaignId) {
+        Set<SseConnection> campaignConnections = connections.get(campaignId);
+        Set<EventListener> campaignListeners = listeners.get(campaignId);
+        return (campaignConnections != null ? campaignConnections.size() : 0)
+                + (campaignListeners != null ? campaignListeners.size() : 0);
+    }
+
+    /** Sequence number of the last event broadcast to a campaign; 0 if none since startup. */
+    public long currentSequence(Long campaignId) {
+        SseCampaignStream stream = streams.get(campaignId);
+        if (stream == null) {
+            return 0;
+        }
+        synchronized (stream) {
+            return stream.sequence();
+        }
+    }
+
+    /** Drops the event stream of a deleted campaign. */
+    public void forget(Long campaignId) {
+        if (campaignId != null) {
+            streams.remove(campaignId);
+        }
+    }
+
+    /**
+     * Drops the replay buffer of a campaign without subscribers, e.g. when its game state is
+     * evicted. Clients that reconnect later reload the state instead of resuming. Returns
+     * false if the campaign has subscribers again.
+     */
+    public boolean retire(Long campaignId) {
+        SseCampaignStream stream = streams.get(campaignId);
+        if (stream == null) {
+            return true;
+        }
+        synchronized (stream) {
+            if (subscriberCount(campaignId) > 0) {
+                return false;
+            }
+            retiredSequence.accumulateAndGet(stream.sequence() + 1, Math::max);
+            streams.remove(campaignId, stream);
+            return true;
+        }
+    }
+
+    /** Retires the streams of campaigns that have had neither events nor subscribers since {@code idleBefore}. */
+    public int retireIdle(long idleBefore) {
+        int retired = 0;
+        for (var entry : streams.entrySet()) {
+            boolean idle;
+            synchronized (entry.getValue()) {
+                idle = entry.getValue().lastActiveAt() < idleBefore;
+            }
+            if (idle && retire(entry.getKey())) {
+                retired++;
+            }
+        }
+        return retired;
+    }
+
+    private void touch(Long campaignId) {
+        SseCampaignStream stream = streams.get(campaignId);
+        if (stream != null) {
+            synchronized (stream) {
+                stream.touch();
+            }
+        }
+    }
+
+    private List<QueuedEvent> missedEvents(SseCampaignStream stream, String lastEventId) {
+        long sequence = parseEventId(lastEventId);
+        if (sequence < 0) {
+            return null;
         }
+        List<QueuedEvent> missed = stream.since(sequence);
+        return missed != null && missed.size() <= queueCapacity ? missed : null;
     }
 
-    public void register(Long campaignId, SseEventSink sink, Sse sse) {
-        Set<SseConnection> campaignConnections =
-                connections.computeIfAbsent(campaignId, id -> new CopyOnWriteArraySet<>());
-        campaignConnections.add(new SseConnection(sink, sse));
-        LOG.debugv("SSE client connected: campaign={0} clients={1}",
-                campaignId, campaignConnections.size());
+    /** Never creates state: on a node that does not own the campaign it would shadow the owner's. */
+    private GameState.CampaignGameState snapshotState(Long campaignId) {
+        GameState.CampaignGameState state = gameState.find(campaignId);
+        return state != null ? state : new GameState.CampaignGameState();
+    }
+
+    private String snapshotJson(Long campaignId) {
+        try {
+            return objectMapper.writeValueAsString(snapshotState(campaignId).snapshot());
+        } catch (Exception e) {
+            LOG.errorf(e, "Could not serialize SSE snapshot: campaign=%d", campaignId);
+            return null;
+        }
+    }
+
+    String formatEventId(long sequence) {
+        return streamEpoch + "-" + sequence;
+    }
+
+    /** Returns the sequence of an id issued by this stream, or -1 for foreign or malformed ids. */
+    long parseEventId(String eventId) {
+        int separator = eventId.lastIndexOf('-');
+        if (separator <= 0 || !eventId.regionMatches(0, streamEpoch, 0, separator)
+                || separator != streamEpoch.length()) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(eventId.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
     }
 
     public void broadcast(Long campaignId, String eventName, Object data) {
@@ -87,12 +496,6 @@ public class SseBroadcaster {
     }
 
     private void broadcastNow(Long campaignId, String eventName, Object data) {
-        Set<SseConnection> sinks = connections.get(campaignId);
-        if (sinks == null || sinks.isEmpty()) {
-            LOG.debugv("SSE event has no subscribers: campaign={0} event={1}", campaignId, eventName);
-            return;
-        }
-
         String json;
         try {
             json = objectMapper.writeValueAsString(data);
@@ -101,32 +504,125 @@ public class SseBroadcaster {
             return;
         }
 
-        long eventId = eventSequence.incrementAndGet();
+        bus.publish(campaignId, eventName, json);
+        deliver(campaignId, eventName, json);
+    }
+
+    /**
+     * Delivers a serialized event to the clients connected to this node. Events published
+     * by other nodes arrive here through the {@link BroadcastBus}.
+     */
+    void deliver(Long campaignId, String eventName, String json) {
+        // Campaigns that were subscribed to keep recording while all clients are away, until
+        // the stream is retired, so those clients can resume; campaigns nobody watches are skipped.
+        SseCampaignStream stream = streams.get(campaignId);
+        Set<SseConnection> sinks = connections.get(campaignId);
+        Set<EventListener> campaignListeners = listeners.get(campaignId);
+        if (stream == null && (sinks == null || sinks.isEmpty()) && campaignListeners == null) {
+            LOG.debugv("SSE event has no subscribers: campaign={0} event={1}", campaignId, eventName);
+            return;
+        }
+
+        if (stream == null) {
+            // The campaign was forgotten (deleted) but clients are still attached; no id to resume from.
+            if (sinks != null) {
+                enqueue(campaignId, sinks, new QueuedEvent(eventName, encodeFrame(null, eventName, json)));
+            }
+            notifyListeners(campaignId, null, eventName, json);
+            return;
+        }
+        // The stream monitor orders sequence numbers, the replay ring and every client queue alike.
+        synchronized (stream) {
+            long eventId = stream.nextSequence();
+            QueuedEvent event = new QueuedEvent(eventName, encodeFrame(formatEventId(eventId), eventName, json));
+            stream.add(eventId, event);
+            sinks = connections.get(campaignId);
+            if (sinks != null) {
+                enqueue(campaignId, sinks, event);
+            }
+            notifyListeners(campaignId, formatEventId(eventId), eventName, json);
+        }
+    }
+
+    private void notifyListeners(Long campaignId, String eventId, String eventName, String json) {
+        Set<EventListener> campaignListeners = listeners.get(campaignId);
+        if (campaignListeners == null) {
+            return;
+        }
+        for (EventListener listener : campaignListeners) {
+            try {
+                listener.onEvent(eventId, eventName, json);
+            } catch (RuntimeException e) {
+                LOG.errorf(e, "Event listener failed: campaign=%d event=%s", campaignId, eventName);
+            }
+        }
+    }
+
+    private void enqueue(Long campaignId, Set<SseConnection> sinks, QueuedEvent event) {
         for (SseConnection conn : sinks) {
-            if (conn.sink.isClosed()) {
+            if (conn.isClosed()) {
                 removeConnection(campaignId, sinks, conn, null);
                 continue;
             }
-            try {
-                OutboundSseEvent event = conn.sse.newEventBuilder()
-                        .id(Long.toString(eventId))
-                        .name(eventName)
-                        .reconnectDelay(2_000)
-                        .data(String.class, json)
-                        .build();
-                conn.sink.send(event).whenComplete((ignored, failure) -> {
-                    if (failure != null) {
-                        removeConnection(campaignId, sinks, conn, failure);
-                    }
-                });
-            } catch (Exception e) {
-                removeConnection(campaignId, sinks, conn, e);
+            int dropped = conn.offer(event, queueCapacity, slowConsumerPolicy);
+            if (dropped < 0) {
+                slowDisconnects.increment();
+                LOG.warnv("Disconnecting slow SSE client: campaign={0} queued={1} lagMs={2}",
+                        campaignId, conn.queuedEvents(), conn.lagMillis());
+                removeConnection(campaignId, sinks, conn, null);
+                continue;
             }
+            if (dropped > 0) {
+                droppedEvents.increment(dropped);
+                LOG.debugv("SSE queue full, dropped event: campaign={0} policy={1} lagMs={2}",
+                        campaignId, slowConsumerPolicy, conn.lagMillis());
+            }
+            drain(campaignId, sinks, conn);
+        }
+    }
+
+    /** Writes queued events one at a time; the next write starts when the previous one completed. */
+    private void drain(Long campaignId, Set<SseConnection> sinks, SseConnection conn) {
+        QueuedEvent next = conn.claimNext();
+        if (next == null) {
+            return;
+        }
+        try {
+            conn.response.write(next.frame).onComplete(result -> {
+                if (result.failed()) {
+                    removeConnection(campaignId, sinks, conn, result.cause());
+                    return;
+                }
+                conn.sent();
+                drain(campaignId, sinks, conn);
+            });
+        } catch (Exception e) {
+            removeConnection(campaignId, sinks, conn, e);
         }
     }
 
     @PostConstruct
     void startHeartbeat() {
+        bus = buses.get();
+        bus.subscribe(this::deliver);
+
+        droppedEvents = Counter.builder("dicekeeper.sse.events.dropped")
+                .description("SSE events discarded because a client queue was full")
+                .register(meterRegistry);
+        slowDisconnects = Counter.builder("dicekeeper.sse.slow.disconnects")
+                .description("SSE clients disconnected for falling behind")
+                .register(meterRegistry);
+        Gauge.builder("dicekeeper.sse.connections", this, SseBroadcaster::connectionCount)
+                .description("Open SSE connections")
+                .register(meterRegistry);
+        Gauge.builder("dicekeeper.sse.queue.depth", this, SseBroadcaster::queuedEventCount)
+                .description("Events queued across all SSE connections")
+                .register(meterRegistry);
+        Gauge.builder("dicekeeper.sse.lag.max", this, SseBroadcaster::maxLagMillis)
+                .description("Age of the oldest undelivered SSE event")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+
         heartbeatTimerId = vertx.setPeriodic(20_000, ignored -> sendHeartbeat());
     }
 
@@ -135,10 +631,54 @@ public class SseBroadcaster {
         vertx.cancelTimer(heartbeatTimerId);
     }
 
+    /**
+     * Sends each campaign one shared heartbeat frame carrying the campaign's current event id,
+     * so idle clients notice dropped events. It has no id itself and never moves Last-Event-ID.
+     */
     void sendHeartbeat() {
-        for (Long campaignId : connections.keySet()) {
-            broadcast(campaignId, "heartbeat", java.util.Map.of("timestamp", System.currentTimeMillis()));
+        long timestamp = System.currentTimeMillis();
+        connections.forEach((campaignId, sinks) -> {
+            String json = "{\"timestamp\":" + timestamp
+                    + ",\"lastEventId\":\"" + currentEventId(campaignId) + "\"}";
+            enqueue(campaignId, sinks, new QueuedEvent("heartbeat", encodeFrame(null, "heartbeat", json)));
+        });
+    }
+
+    /** Renders a complete {@code id/event/retry/data} frame; multi-line data gets one data line each. */
+    static Buffer encodeFrame(String eventId, String eventName, String data) {
+        StringBuilder frame = new StringBuilder(data.length() + eventName.length() + 48);
+        if (eventId != null) {
+            frame.append("id: ").append(eventId).append('\n');
         }
+        frame.append("event: ").append(eventName).append('\n');
+        frame.append("retry: ").append(RECONNECT_DELAY_MS).append('\n');
+        int start = 0;
+        int newline;
+        while ((newline = data.indexOf('\n', start)) >= 0) {
+            frame.append("data: ").append(data, start, newline).append('\n');
+            start = newline + 1;
+        }
+        frame.append("data: ").append(data, start, data.length()).append("\n\n");
+        return Buffer.buffer(frame.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    double connectionCount() {
+        return connections.values().stream().mapToInt(Set::size).sum();
+    }
+
+    double queuedEventCount() {
+        return connections.values().stream()
+                .flatMap(Set::stream)
+                .mapToInt(SseConnection::queuedEvents)
+                .sum();
+    }
+
+    double maxLagMillis() {
+        return connections.values().stream()
+                .flatMap(Set::stream)
+                .mapToLong(SseConnection::lagMillis)
+                .max()
+                .orElse(0);
     }
 
     private void removeConnection(Long campaignId, Set<SseConnection> sinks,
@@ -149,6 +689,7 @@ public class SseBroadcaster {
         if (sinks.isEmpty()) {
             connections.remove(campaignId, sinks);
         }
+        touch(campaignId);
         if (failure == null) {
             LOG.debugv("SSE client disconnected: campaign={0} clients={1}",
                     campaignId, sinks.size());
@@ -0,0 +1,86 @@
+package campaign;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Event stream state of one campaign: its monotonic sequence and a bounded ring of the
+ * most recent frames, used to replay missed events to clients that reconnect with a
+ * Last-Event-ID. Not thread-safe; {@link SseBroadcaster} guards each stream with its monitor.
+ */
+final class SseCampaignStream {
+
+    private final long[] ids;
+    private final SseBroadcaster.QueuedEvent[] events;
+    private int head;
+    private int size;
+    private long evictedThrough;
+    private long sequence;
+    private long lastActiveAt = System.currentTimeMillis();
+
+    SseCampaignStream(int capacity) {
+        this(capacity, 0);
+    }
+
+    /**
+     * A stream whose ids continue after {@code startSequence}; older ids count as evicted,
+     * so clients holding them reload instead of resuming.
+     */
+    SseCampaignStream(int capacity, long startSequence) {
+        this.ids = new long[capacity];
+        this.events = new SseBroadcaster.QueuedEvent[capacity];
+        this.sequence = startSequence;
+        this.evictedThrough = startSequence;
+    }
+
+    /** Sequence of the last event broadcast to this campaign; 0 before the first one. */
+    long sequence() {
+        return sequence;
+    }
+
+    long nextSequence() {
+        return ++sequence;
+    }
+
+    /** When an event was last recorded or a subscriber last came or went. */
+    long lastActiveAt() {
+        return lastActiveAt;
+    }
+
+    void touch() {
+        lastActiveAt = System.currentTimeMillis();
+    }
+
+    void add(long id, SseBroadcaster.QueuedEvent event) {
+        touch();
+        if (ids.length == 0) {
+            evictedThrough = id;
+            return;
+        }
+        if (size == ids.length) {
+            evictedThrough = ids[head];
+            events[head] = null;
+            head = (head + 1) % ids.length;
+            size--;
+        }
+        int tail = (head + size) % ids.length;
+        ids[tail] = id;
+        events[tail] = event;
+        size++;
+    }
+
+    /** Events broadcast after {@code lastEventId}, oldest first, or null if some were already evicted. */
+    List<SseBroadcaster.QueuedEvent> since(long lastEventId) {
+        if (lastEventId < evictedThrough || lastEventId > sequence) {
+            return null;
+        }
+        List<SseBroadcaster.QueuedEvent> missed = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            int index = (head + i) % ids.length;
+            if (ids[index] > lastEventId) {
+                missed.add(events[index]);
+            }
+        }
+        return missed;
+    }
+}
@@ -0,0 +1,79 @@
+package character;
+
+import background.Background;
+import character.ability.CharacterAbility;
+import characterclass.CharacterClass;
+import jakarta.enterprise.context.ApplicationScoped;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Builds full {@link CharacterDTO}s for many characters with a constant number of queries:
+ * one each for their classes, backgrounds and ability scores, instead of three per character.
+ */
+@ApplicationScoped
+public class CharacterLoader {
+
+    /** The characters with the given ids, in that order; unknown ids are skipped. */
+    public List<CharacterDTO> loadByIds(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, Character> byId = Character.<Character>list("id in ?1", ids).stream()
+                .collect(Collectors.toMap(character -> character.id, Function.identity()));
+        List<Character> characters = ids.stream()
+                .distinct()
+                .map(byId::get)
+                .filter(Objects::nonNull)
+                .toList();
+        return load(characters);
+    }
+
+    public List<CharacterDTO> load(List<Character> characters) {
+        if (characters.isEmpty()) {
+            return List.of();
+        }
+        List<Long> classIds = characters.stream()
+                .map(character -> character.classId)
+                .filter(id -> id != 0)
+                .distinct()
+                .toList();
+        List<Long> backgroundIds = characters.stream()
+                .filter(character -> character.backgroundId != 0)
+                .map(character -> (long) character.backgroundId)
+                .distinct()
+                .toList();
+        List<Long> characterIds = characters.stream().map(character -> character.id).toList();
+
+        Map<Long, CharacterClass> classes = classIds.isEmpty() ? Map.of()
+                : CharacterClass.<CharacterClass>list("id in ?1", classIds).stream()
+                .collect(Collectors.toMap(clazz -> clazz.id, Function.identity()));
+        Map<Long, Background> backgrounds = backgroundIds.isEmpty() ? Map.of()
+                : Background.<Background>list("id in ?1", backgroundIds).stream()
+                .collect(Collectors.toMap(background -> background.id, Function.identity()));
+
+        // The ability is fetched in the same query; its eager association would otherwise
+        // load each one separately.
+        Map<Long, List<CharacterAbility>> abilityScores = new HashMap<>();
+        CharacterAbility.<CharacterAbility>list(
+                        "from CharacterAbility ca join fetch ca.ability where ca.character.id in ?1 order by ca.id",
+                        characterIds)
+                .forEach(score -> abilityScores
+                        .computeIfAbsent(score.character.id, id -> new ArrayList<>())
+                        .add(score));
+
+        return characters.stream()
+                .map(character -> CharacterDTO.fromEntityWithRelations(
+                        character,
+                        classes.get(character.classId),
+                        backgrounds.get((long) character.backgroundId),
+                        abilityScores.getOrDefault(character.id, List.of())))
+                .collect(Collectors.toList());
+    }
+}
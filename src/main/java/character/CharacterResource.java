@@ -2,14 +2,13 @@ package character;
 
 import character.ability.AbilityScoreDTO;
 import character.ability.CharacterAbility;
-import background.Background;
-import characterclass.CharacterClass;
 import io.quarkus.security.Authenticated;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import org.jboss.resteasy.reactive.Separator;
 
 import java.util.List;
 import java.util.stream.Collectors;
@@ -20,9 +19,14 @@ import java.util.stream.Collectors;
 @Authenticated
 public class CharacterResource {
 
+    private static final int MAX_BATCH_SIZE = 100;
+
     @Inject
     CharacterDeletionService characterDeletionService;
 
+    @Inject
+    CharacterLoader characterLoader;
+
     /**
      * Create a new empty character for the character creation flow.
      */
@@ -44,10 +48,24 @@ public class CharacterResource {
     @Path("/all")
     public Response getAllCharacters() {
         List<Character> characters = Character.listAll();
-        List<CharacterDTO> dtos = characters.stream()
-            .map(this::toFullDTO)
-            .collect(Collectors.toList());
-        return Response.ok(dtos).build();
+        return Response.ok(characterLoader.load(characters)).build();
+    }
+
+    /**
+     * Get several characters with all related data, e.g. a campaign's party:
+     * {@code /batch?ids=1,2,3}. Unknown ids are skipped.
+     */
+    @GET
+    @Path("/batch")
+    public Response getCharacters(@QueryParam("ids") @Separator(",") List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return Response.ok(List.of()).build();
+        }
+        if (ids.size() > MAX_BATCH_SIZE) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                .entity("At most " + MAX_BATCH_SIZE + " ids per request").build();
+        }
+        return Response.ok(characterLoader.loadByIds(ids)).build();
     }
 
     /**
@@ -155,18 +173,6 @@ public class CharacterResource {
     }
 
     private CharacterDTO toFullDTO(Character character) {
-        CharacterClass clazz = null;
-        if (character.classId != 0) {
-            clazz = CharacterClass.findById(character.classId);
-        }
-
-        Background background = null;
-        if (character.backgroundId != 0) {
-            background = Background.findById((long) character.backgroundId);
-        }
-
-        List<CharacterAbility> abilityScores = CharacterAbility.list("character", character);
-
-        return CharacterDTO.fromEntityWithRelations(character, clazz, background, abilityScores);
+        return characterLoader.load(List.of(character)).get(0);
     }
 }
@@ -0,0 +1,63 @@
+package database;
+
+import io.agroal.api.AgroalDataSource;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.jboss.logging.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Refuses to start when an index the hot queries depend on is missing, e.g. because the
+ * migrations did not run against this database. Without them those lookups degrade to
+ * sequential scans that only show once the tables have grown.
+ */
+@ApplicationScoped
+public class RequiredIndexCheck {
+
+    private static final Logger LOG = Logger.getLogger(RequiredIndexCheck.class);
+
+    /** Created by the migrations in db/migration. */
+    static final List<String> REQUIRED_INDEXES = List.of(
+            "player_email_lower_key",
+            "campaign_player_campaign_player_idx",
+            "campaign_player_player_idx",
+            "notification_player_created_idx",
+            "notification_player_unread_idx",
+            "notification_read_created_idx",
+            "group_decision_campaign_order_idx",
+            "decision_vote_decision_player_key"
+    );
+
+    @Inject
+    AgroalDataSource dataSource;
+
+    void onStart(@Observes StartupEvent event) {
+        Set<String> missing = new LinkedHashSet<>(REQUIRED_INDEXES);
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "select indexname from pg_indexes where schemaname = current_schema() and indexname = any(?)")) {
+            statement.setArray(1, connection.createArrayOf("text", REQUIRED_INDEXES.toArray()));
+            try (ResultSet result = statement.executeQuery()) {
+                while (result.next()) {
+                    missing.remove(result.getString(1));
+                }
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not check the database indexes", e);
+        }
+        if (!missing.isEmpty()) {
+            throw new IllegalStateException("Database indexes missing: " + missing
+                    + "; run the schema migrations (quarkus.flyway.migrate-at-start)");
+        }
+        LOG.debugv("Required database indexes present: {0}", REQUIRED_INDEXES.size());
+    }
+}
@@ -0,0 +1,183 @@
+package notification;
+
+import campaign.BroadcastBus;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.vertx.core.Vertx;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Instance;
+import jakarta.inject.Inject;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+import jakarta.ws.rs.sse.Sse;
+import jakarta.ws.rs.sse.SseEventSink;
+import org.jboss.logging.Logger;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+/**
+ * Pushes new notifications to the player's open notification streams, so clients no longer
+ * poll the unread count. Like campaign events, a notification is sent only once the
+ * transaction that stored it committed, and is published on the {@link BroadcastBus} for
+ * streams connected to other nodes. Notifications are rare, so each one is written
+ * directly to the player's few sinks without a per-connection queue.
+ */
+@ApplicationScoped
+public class NotificationBroadcaster {
+
+    private static final Logger LOG = Logger.getLogger(NotificationBroadcaster.class);
+    static final String EVENT_NAME = "notification";
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    @Inject
+    Vertx vertx;
+
+    @Inject
+    TransactionSynchronizationRegistry transactionRegistry;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    @Inject
+    Instance<BroadcastBus> buses;
+
+    private BroadcastBus bus;
+
+    // playerId → open notification streams
+    private final ConcurrentHashMap<Long, Set<Stream>> streams = new ConcurrentHashMap<>();
+    private long heartbeatTimerId;
+
+    private record Stream(SseEventSink sink, Sse sse) {
+    }
+
+    @PostConstruct
+    void start() {
+        bus = buses.get();
+        bus.subscribePlayers(this::deliver);
+
+        Gauge.builder("dicekeeper.notification.streams", this, NotificationBroadcaster::streamCount)
+                .description("Open notification streams")
+                .register(meterRegistry);
+
+        heartbeatTimerId = vertx.setPeriodic(20_000, ignored -> sendHeartbeat());
+    }
+
+    @PreDestroy
+    void stop() {
+        vertx.cancelTimer(heartbeatTimerId);
+    }
+
+    /** Registers a stream; its {@code connected} event may still be on the way. */
+    public void register(Long playerId, SseEventSink sink, Sse sse) {
+        Set<Stream> playerStreams = streams.computeIfAbsent(playerId, id -> new CopyOnWriteArraySet<>());
+        playerStreams.add(new Stream(sink, sse));
+        LOG.debugv("Notification stream connected: player={0} streams={1}", playerId, playerStreams.size());
+    }
+
+    /** Sends a persisted notification to its player once the current transaction committed. */
+    public void publish(Notification notification) {
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(notification);
+        } catch (Exception e) {
+            LOG.errorf(e, "Could not serialize notification: player=%d", notification.playerId);
+            return;
+        }
+        Long playerId = notification.playerId;
+
+        int transactionStatus = transactionRegistry.getTransactionStatus();
+        if (transactionStatus == Status.STATUS_ACTIVE) {
+            transactionRegistry.registerInterposedSynchronization(new Synchronization() {
+                @Override
+                public void beforeCompletion() {
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == Status.STATUS_COMMITTED) {
+                        publishNow(playerId, json);
+                    }
+                }
+            });
+            return;
+        }
+        if (transactionStatus == Status.STATUS_MARKED_ROLLBACK
+                || transactionStatus == Status.STATUS_ROLLEDBACK
+                || transactionStatus == Status.STATUS_ROLLING_BACK) {
+            return;
+        }
+        publishNow(playerId, json);
+    }
+
+    private void publishNow(Long playerId, String json) {
+        bus.publishToPlayer(playerId, EVENT_NAME, json);
+        deliver(playerId, EVENT_NAME, json);
+    }
+
+    /** Writes an event to the player's streams on this node; other nodes' events arrive through the bus. */
+    void deliver(Long playerId, String eventName, String json) {
+        Set<Stream> playerStreams = streams.get(playerId);
+        if (playerStreams == null) {
+            return;
+        }
+        for (Stream stream : playerStreams) {
+            send(playerId, playerStreams, stream, eventName, json);
+        }
+    }
+
+    void sendHeartbeat() {
+        String json = "{\"timestamp\":" + System.currentTimeMillis() + "}";
+        streams.forEach((playerId, playerStreams) -> {
+            for (Stream stream : playerStreams) {
+                send(playerId, playerStreams, stream, "heartbeat", json);
+            }
+        });
+    }
+
+    private void send(Long playerId, Set<Stream> playerStreams, Stream stream, String eventName, String json) {
+        if (stream.sink().isClosed()) {
+            remove(playerId, playerStreams, stream);
+            return;
+        }
+        try {
+            stream.sink().send(stream.sse().newEventBuilder()
+                            .name(eventName)
+                            .data(String.class, json)
+                            .build())
+                    .whenComplete((ignored, failure) -> {
+                        if (failure != null) {
+                            LOG.debugv(failure, "Notification delivery failed: player={0}", playerId);
+                            remove(playerId, playerStreams, stream);
+                        }
+                    });
+        } catch (Exception e) {
+            remove(playerId, playerStreams, stream);
+        }
+    }
+
+    private void remove(Long playerId, Set<Stream> playerStreams, Stream stream) {
+        if (!playerStreams.remove(stream)) {
+            return;
+        }
+        if (playerStreams.isEmpty()) {
+            streams.remove(playerId, playerStreams);
+        }
+        try {
+            stream.sink().close();
+        } catch (Exception ignored) {
+            // The transport is already closed.
+        }
+    }
+
+    double streamCount() {
+        return streams.values().stream().mapToInt(Set::size).sum();
+    }
+}
@@ -2,52 +2,67 @@ package notification;
 
 import io.quarkus.security.Authenticated;
 import io.quarkus.security.identity.SecurityIdentity;
+import io.quarkus.hibernate.orm.panache.PanacheQuery;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
 import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.Context;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.sse.Sse;
+import jakarta.ws.rs.sse.SseEventSink;
 import security.SecurityIdentityService;
 
 import java.util.List;
 
+/**
+ * Notification lists are paged newest first: at most {@code limit} notifications per response,
+ * and an {@value #NEXT_CURSOR_HEADER} header with the cursor to pass as {@code before} for the
+ * next page when there are more.
+ */
 @Path("/api/notification")
 @Produces(MediaType.APPLICATION_JSON)
 @Consumes(MediaType.APPLICATION_JSON)
 @Authenticated
 public class NotificationResource {
 
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 200;
+
     @Inject
     SecurityIdentityService securityIdentityService;
 
     @Inject
     SecurityIdentity securityIdentity;
 
+    @Inject
+    NotificationBroadcaster broadcaster;
+
     @GET
     @Path("/player/{playerId}")
-    public Response getPlayerNotifications(@PathParam("playerId") Long playerId) {
+    public Response getPlayerNotifications(@PathParam("playerId") Long playerId,
+                                           @QueryParam("limit") Integer limit,
+                                           @QueryParam("before") String before) {
         Response authorizationError = securityIdentityService.requireCurrentPlayer(securityIdentity, playerId);
         if (authorizationError != null) {
             return authorizationError;
         }
 
-        List<Notification> notifications = Notification.find("playerId = ?1 order by createdAt desc", playerId).list();
-        return Response.ok(notifications).build();
+        return page("playerId = ?1", playerId, limit, before);
     }
 
     @GET
     @Path("/player/{playerId}/unread")
-    public Response getUnreadNotifications(@PathParam("playerId") Long playerId) {
+    public Response getUnreadNotifications(@PathParam("playerId") Long playerId,
+                                           @QueryParam("limit") Integer limit,
+                                           @QueryParam("before") String before) {
         Response authorizationError = securityIdentityService.requireCurrentPlayer(securityIdentity, playerId);
         if (authorizationError != null) {
             return authorizationError;
         }
 
-        List<Notification> notifications = Notification.find(
-                "playerId = ?1 and isRead = false order by createdAt desc",
-                playerId
-        ).list();
-        return Response.ok(notifications).build();
+        return page("playerId = ?1 and isRead = false", playerId, limit, before);
     }
 
     @GET
@@ -58,10 +73,40 @@ public class NotificationResource {
             return authorizationError;
         }
 
+        // Answered from the partial index of unread notifications
         long count = Notification.count("playerId = ?1 and isRead = false", playerId);
         return Response.ok(count).build();
     }
 
+    /**
+     * Stream of the player's new notifications. The {@code connected} event carries the
+     * unread count, so a reconnecting client also catches up on what it missed meanwhile.
+     */
+    @GET
+    @Path("/player/{playerId}/stream")
+    @Produces(MediaType.SERVER_SENT_EVENTS)
+    public void stream(@PathParam("playerId") Long playerId,
+                       @Context SseEventSink sink,
+                       @Context Sse sse) {
+        Response authorizationError = securityIdentityService.requireCurrentPlayer(securityIdentity, playerId);
+        if (authorizationError != null) {
+            throw new WebApplicationException(authorizationError);
+        }
+
+        // Registered before counting, so a notification committed meanwhile is at least pushed;
+        // the client fetches the count again for every notification, so pushing one twice is harmless.
+        broadcaster.register(playerId, sink, sse);
+        long count = Notification.count("playerId = ?1 and isRead = false", playerId);
+        try {
+            sink.send(sse.newEventBuilder()
+                    .name("connected")
+                    .data(String.class, "{\"status\":\"connected\",\"unreadCount\":" + count + "}")
+                    .build());
+        } catch (Exception e) {
+            // sink already closed; the broadcaster drops it with the next event
+        }
+    }
+
     @GET
     @Path("/{id}")
     public Response getNotification(@PathParam("id") Long id) {
@@ -142,4 +187,52 @@ public class NotificationResource {
         Notification.delete("playerId", playerId);
         return Response.noContent().build();
     }
+
+    /** Keyset page: continues after the (createdAt, id) of the previous page's last notification. */
+    private Response page(String filter, Long playerId, Integer limit, String before) {
+        int pageSize = limit != null ? limit : DEFAULT_PAGE_SIZE;
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("limit must be between 1 and " + MAX_PAGE_SIZE)
+                    .build();
+        }
+        PanacheQuery<Notification> query;
+        if (before == null || before.isBlank()) {
+            query = Notification.find(filter + " order by createdAt desc, id desc", playerId);
+        } else {
+            long[] cursor = parseCursor(before);
+            if (cursor == null) {
+                return Response.status(Response.Status.BAD_REQUEST).entity("Invalid cursor").build();
+            }
+            query = Notification.find(filter + " and (createdAt < ?2 or (createdAt = ?2 and id < ?3))"
+                    + " order by createdAt desc, id desc", playerId, cursor[0], cursor[1]);
+        }
+
+        // One more than requested tells whether there is a next page
+        List<Notification> notifications = query.range(0, pageSize).list();
+        Response.ResponseBuilder response;
+        if (notifications.size() > pageSize) {
+            notifications = notifications.subList(0, pageSize);
+            Notification last = notifications.get(pageSize - 1);
+            response = Response.ok(notifications).header(NEXT_CURSOR_HEADER, last.createdAt + "." + last.id);
+        } else {
+            response = Response.ok(notifications);
+        }
+        return response.build();
+    }
+
+    private static long[] parseCursor(String cursor) {
+        int separator = cursor.indexOf('.');
+        if (separator <= 0) {
+            return null;
+        }
+        try {
+            return new long[]{
+                    Long.parseLong(cursor.substring(0, separator)),
+                    Long.parseLong(cursor.substring(separator + 1))
+            };
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
 }
@@ -0,0 +1,75 @@
+package notification;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.runtime.StartupEvent;
+import io.vertx.core.Vertx;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+/**
+ * Deletes read notifications older than {@code dicekeeper.notification.retention-days}, in
+ * batches of {@code dicekeeper.notification.purge-batch-size} rows, each in its own
+ * transaction so a large backlog never holds locks for long. Unread notifications are kept.
+ */
+@ApplicationScoped
+public class NotificationRetention {
+
+    private static final Logger LOG = Logger.getLogger(NotificationRetention.class);
+    private static final String PURGE_BATCH = "delete from notification where id in ("
+            + "select id from notification where is_read = true and created_at < ?1 "
+            + "order by created_at limit ?2)";
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    @Inject
+    Vertx vertx;
+
+    @ConfigProperty(name = "dicekeeper.notification.retention-days", defaultValue = "90")
+    int retentionDays;
+
+    @ConfigProperty(name = "dicekeeper.notification.purge-batch-size", defaultValue = "1000")
+    int batchSize;
+
+    @ConfigProperty(name = "dicekeeper.notification.purge-interval-minutes", defaultValue = "60")
+    long intervalMinutes;
+
+    private Counter purged;
+
+    void onStart(@Observes StartupEvent event) {
+        purged = Counter.builder("dicekeeper.notification.purged")
+                .description("Read notifications deleted after the retention period")
+                .register(meterRegistry);
+        if (retentionDays <= 0) {
+            return;
+        }
+        vertx.setPeriodic(intervalMinutes * 60_000, id -> vertx.executeBlocking(() -> {
+            purge();
+            return null;
+        }, false));
+    }
+
+    /** Deletes expired read notifications until a batch comes back short. */
+    void purge() {
+        long cutoff = System.currentTimeMillis() - retentionDays * 86_400_000L;
+        long total = 0;
+        int deleted;
+        do {
+            deleted = QuarkusTransaction.requiringNew().call(() -> Notification.getEntityManager()
+                    .createNativeQuery(PURGE_BATCH)
+                    .setParameter(1, cutoff)
+                    .setParameter(2, batchSize)
+                    .executeUpdate());
+            total += deleted;
+            purged.increment(deleted);
+        } while (deleted >= batchSize);
+        if (total > 0) {
+            LOG.infov("Purged {0} read notifications older than {1} days", total, retentionDays);
+        }
+    }
+}
@@ -2,13 +2,16 @@ package player;
 
 import campaign.Campaign;
 import campaign.CampaignDeletionService;
+import campaign.CampaignMembershipCache;
 import campaign.CampaignPlayer;
+import campaign.DecisionVote;
 import character.CharacterDeletionService;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
 import notification.Notification;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
+import security.SecurityIdentityService;
 
 import java.io.IOException;
 import java.nio.file.Files;
@@ -28,6 +31,12 @@ public class PlayerDeletionService {
     @Inject
     CharacterDeletionService characterDeletionService;
 
+    @Inject
+    CampaignMembershipCache memberships;
+
+    @Inject
+    SecurityIdentityService securityIdentityService;
+
     @Transactional
     public void deleteLocalPlayerAccount(Long playerId) {
         Player player = Player.findById(playerId);
@@ -55,10 +64,12 @@ public class PlayerDeletionService {
             Notification.delete("secondaryReferenceId in ?1", membershipIds);
         }
         Notification.delete("playerId", playerId);
+        DecisionVote.delete("playerId", playerId);
 
         for (CampaignPlayer membership : remainingMemberships) {
             membership.delete();
         }
+        memberships.invalidatePlayer(playerId);
 
         for (Long characterId : characterIds) {
             if (CampaignPlayer.count("characterId", characterId) == 0) {
@@ -68,6 +79,7 @@ public class PlayerDeletionService {
 
         deleteUploadedFile(player.profilePicture);
         player.delete();
+        securityIdentityService.forgetPlayer(playerId);
     }
 
     private void deleteUploadedFile(String filePath) {
@@ -1,8 +1,14 @@
 package security;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import io.quarkus.oidc.UserInfo;
+import io.quarkus.runtime.StartupEvent;
 import io.quarkus.security.identity.SecurityIdentity;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
 import jakarta.json.JsonArray;
 import jakarta.json.JsonNumber;
 import jakarta.json.JsonObject;
@@ -11,23 +17,65 @@ import jakarta.json.JsonValue;
 import jakarta.transaction.Transactional;
 import jakarta.ws.rs.WebApplicationException;
 import jakarta.ws.rs.core.Response;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.eclipse.microprofile.jwt.JsonWebToken;
 import player.Player;
 
 import java.security.Principal;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.Locale;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.regex.Pattern;
 
 @ApplicationScoped
 public class SecurityIdentityService {
 
+    private static final String INSERT_PLAYER = "insert into player (id, email, username, name) "
+            + "values (nextval('player_seq'), ?1, ?2, ?3) on conflict ((lower(email))) do nothing";
     private static final Pattern EMAIL_PATTERN = Pattern.compile("^[^@\\s]+@[^@\\s]+\\.[^@\\s]+$");
 
+    @Inject
+    MeterRegistry meterRegistry;
+
+    @ConfigProperty(name = "dicekeeper.identity-cache.max-entries", defaultValue = "10000")
+    int identityCacheMaxEntries;
+
+    /**
+     * Token subject and claims → player id, least recently used first. A changed profile
+     * (email, username, display name) gives a new key, so the player is updated once more.
+     */
+    private final Map<IdentityKey, Long> playerIds = Collections.synchronizedMap(
+            new LinkedHashMap<>(256, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<IdentityKey, Long> eldest) {
+                    return size() > identityCacheMaxEntries;
+                }
+            });
+    private Counter identityCacheHits;
+    private Counter identityCacheMisses;
+
+    private record IdentityKey(String subject, int claimsHash) {
+    }
+
+    void onStart(@Observes StartupEvent event) {
+        identityCacheHits = Counter.builder("dicekeeper.identity-cache.requests")
+                .tag("result", "hit")
+                .description("Player lookups for a token answered from the identity cache")
+                .register(meterRegistry);
+        identityCacheMisses = Counter.builder("dicekeeper.identity-cache.requests")
+                .tag("result", "miss")
+                .description("Player lookups for a token that had to query the database")
+                .register(meterRegistry);
+        Gauge.builder("dicekeeper.identity-cache.size", playerIds, Map::size)
+                .description("Token identities with a cached player id")
+                .register(meterRegistry);
+    }
+
     @Transactional
     public Player getOrCreateCurrentPlayer(SecurityIdentity identity) {
         String realEmail = resolveEmail(identity);
@@ -47,12 +95,7 @@ public class SecurityIdentityService {
         String resolvedName = resolveDisplayName(identity, explicitDisplayName, resolvedUsername, resolvedIdentityEmail);
 
         if (player == null) {
-            player = new Player();
-            player.email = resolvedIdentityEmail;
-            player.username = resolvedUsername;
-            player.name = resolvedName;
-            player.persist();
-            return player;
+            return insertPlayer(resolvedIdentityEmail, resolvedUsername, resolvedName);
         }
 
         boolean changed = false;
@@ -103,9 +146,54 @@ public class SecurityIdentityService {
         return player;
     }
 
-    @Transactional
+    /**
+     * Creates the player unless a concurrent first login of the same identity already did;
+     * either way returns the one row the unique index on lower(email) allows. Each nextval
+     * reserves a block of ids for Hibernate's pooled optimizer; the insert takes the block's
+     * last id and leaves the others unused.
+     */
+    private Player insertPlayer(String email, String username, String name) {
+        Player.getEntityManager().createNativeQuery(INSERT_PLAYER)
+                .setParameter(1, email)
+                .setParameter(2, username)
+                .setParameter(3, name)
+                .executeUpdate();
+        return Player.find("lower(email) = ?1", email.toLowerCase(Locale.ROOT)).firstResult();
+    }
+
+    /**
+     * Resolves the player from the identity cache; only the first request of a token subject,
+     * or one with changed claims, creates or updates the player in the database.
+     */
     public Long getCurrentPlayerId(SecurityIdentity identity) {
-        return getOrCreateCurrentPlayer(identity).id;
+        IdentityKey key = identityKey(identity);
+        Long playerId = playerIds.get(key);
+        if (playerId != null) {
+            identityCacheHits.increment();
+            return playerId;
+        }
+        identityCacheMisses.increment();
+        playerId = getOrCreateCurrentPlayer(identity).id;
+        playerIds.put(key, playerId);
+        return playerId;
+    }
+
+    /** Drops cached identities of a deleted player, so a new login creates a new one. */
+    public void forgetPlayer(Long playerId) {
+        synchronized (playerIds) {
+            playerIds.values().removeIf(playerId::equals);
+        }
+    }
+
+    private IdentityKey identityKey(SecurityIdentity identity) {
+        String realEmail = resolveEmail(identity);
+        String fallbackEmail = resolveFallbackEmail(identity);
+        return new IdentityKey(getCurrentSubject(identity), Objects.hash(
+                realEmail,
+                fallbackEmail,
+                claimString(identity, "preferred_username", "preferredUserName", "username", "nickname"),
+                resolveExplicitDisplayName(identity)
+        ));
     }
 
     public String getCurrentSubject(SecurityIdentity identity) {
@@ -150,7 +238,6 @@ public class SecurityIdentityService {
         return debug;
     }
 
-    @Transactional
     public Response requireCurrentPlayer(SecurityIdentity identity, Long requestedPlayerId) {
         Long currentPlayerId = getCurrentPlayerId(identity);
         if (!currentPlayerId.equals(requestedPlayerId)) {
@@ -6,7 +6,7 @@ import { esc, playerLoginName, renderAvatarPicture, timeAgo } from '../services/
 import { navigate } from '../router.js';
 import { getTheme, toggleTheme } from '../services/theme.js';
 
-let pollInterval = null;
+let notificationSource = null;
 
 function getNotificationIcon(type) {
   switch (type) {
@@ -119,18 +119,35 @@ export function initHeader() {
         `/api/notification/player/${player.id}/unread/count`,
         suppressAuthRedirect({ cache: 'no-store' })
       );
-      if (res.ok) {
-        const count = await res.json();
-        if (count > 0) {
-          notificationBadge.textContent = count > 99 ? '99+' : count;
-          notificationBadge.classList.remove('hidden');
-        } else {
-          notificationBadge.classList.add('hidden');
-        }
-      }
+      if (res.ok) showNotificationCount(await res.json());
     } catch (err) { /* ignore */ }
   }
 
+  function showNotificationCount(count) {
+    if (count > 0) {
+      notificationBadge.textContent = count > 99 ? '99+' : count;
+      notificationBadge.classList.remove('hidden');
+    } else {
+      notificationBadge.classList.add('hidden');
+    }
+  }
+
+  // New notifications are pushed by the server; "connected" carries the unread count,
+  // also after the EventSource reconnected, so nothing is missed while it was away.
+  function connectNotifications() {
+    if (notificationSource) notificationSource.close();
+    notificationSource = new EventSource(`/api/notification/player/${player.id}/stream`);
+    notificationSource.addEventListener('connected', event => {
+      try {
+        showNotificationCount(JSON.parse(event.data).unreadCount);
+      } catch (err) { /* ignore */ }
+    });
+    notificationSource.addEventListener('notification', () => {
+      loadNotificationCount();
+      if (notificationSidebar.classList.contains('open')) loadNotifications();
+    });
+  }
+
   async function loadNotifications() {
     try {
       const res = await fetch(`/api/notification/player/${player.id}`, { cache: 'no-store' });
@@ -193,12 +210,10 @@ export function initHeader() {
     } catch (err) { /* ignore */ }
   });
 
-  loadNotificationCount();
-  if (pollInterval) clearInterval(pollInterval);
-  pollInterval = setInterval(loadNotificationCount, 30000);
+  connectNotifications();
 }
 export function destroyHeader() {
-  if (pollInterval) { clearInterval(pollInterval); pollInterval = null; }
+  if (notificationSource) { notificationSource.close(); notificationSource = null; }
   // remove theme listener if present
   const headerToggle = document.getElementById('headerThemeToggle');
   if (headerToggle && headerToggle._onThemeChanged) {
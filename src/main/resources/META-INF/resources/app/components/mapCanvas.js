@@ -19,6 +19,7 @@ export function createMapCanvas(container, opts = {}) {
     mapFallbackImageUrl = '',
     markers: initialMarkers = [],
     onMarkerMove = null,
+    onMarkerDrag = null, // callback(marker) on every position change while a marker is dragged
     onMarkerAdd = null,
     onMarkerRemove = null,
     readOnly = false,
@@ -30,6 +31,7 @@ export function createMapCanvas(container, opts = {}) {
     fogRadius = 0.225, // reveal radius as fraction of map size
     initialExplorationData = null, // base64 data URL of a previously saved 256×256 exploration PNG
     onExplorationChange = null, // callback(dataUrl) called when exploration map changes (debounced)
+    onExplorationDelta = null, // callback(runs) with newly explored cells as flat [y, x, length, ...] triples (debounced)
     gameStarted: initialGameStarted = false // exploration only tracked when game has started
   } = opts;
 
@@ -58,6 +60,8 @@ export function createMapCanvas(container, opts = {}) {
   let fogMemoryCanvas = null;
   let fogMemoryCtx = null;
   let explorationSaveTimer = null;
+  // Cells the server already knows as explored, so only new ones are sent as deltas
+  const fogSynced = new Uint8Array(FOG_MEM_SIZE * FOG_MEM_SIZE);
   if (fogOfWar) {
     fogMemoryCanvas = document.createElement('canvas');
     fogMemoryCanvas.width = FOG_MEM_SIZE;
@@ -68,7 +72,11 @@ export function createMapCanvas(container, opts = {}) {
     if (initialExplorationData) {
       const restoreImg = new Image();
       restoreImg.onload = () => {
+        // The server keeps one bit per cell, so soften the restored edges here
+        fogMemoryCtx.filter = 'blur(1px)';
         fogMemoryCtx.drawImage(restoreImg, 0, 0, FOG_MEM_SIZE, FOG_MEM_SIZE);
+        fogMemoryCtx.filter = 'none';
+        markExplorationSynced();
         // Now stamp current positions on top
         stampExploration(initialFogPositions);
         const initialPlayerPositions = initialMarkers
@@ -112,13 +120,49 @@ export function createMapCanvas(container, opts = {}) {
   }
 
   function scheduleExplorationSave() {
-    if (!onExplorationChange || !fogMemoryCanvas) return;
+    if ((!onExplorationChange && !onExplorationDelta) || !fogMemoryCanvas) return;
     clearTimeout(explorationSaveTimer);
     explorationSaveTimer = setTimeout(() => {
-      onExplorationChange(fogMemoryCanvas.toDataURL('image/png'));
+      if (onExplorationDelta) {
+        const runs = collectExplorationRuns();
+        if (runs.length > 0) onExplorationDelta(runs);
+      } else {
+        onExplorationChange(fogMemoryCanvas.toDataURL('image/png'));
+      }
     }, 2000); // save 2s after last change
   }
 
+  // Same threshold the server uses when it reads an exploration PNG
+  const EXPLORED_ALPHA = 128;
+
+  function markExplorationSynced() {
+    const data = fogMemoryCtx.getImageData(0, 0, FOG_MEM_SIZE, FOG_MEM_SIZE).data;
+    for (let i = 0; i < fogSynced.length; i++) {
+      fogSynced[i] = data[i * 4 + 3] >= EXPLORED_ALPHA ? 1 : 0;
+    }
+  }
+
+  // Newly explored cells as horizontal runs; marks them as synced
+  function collectExplorationRuns() {
+    const data = fogMemoryCtx.getImageData(0, 0, FOG_MEM_SIZE, FOG_MEM_SIZE).data;
+    const runs = [];
+    for (let y = 0; y < FOG_MEM_SIZE; y++) {
+      let start = -1;
+      for (let x = 0; x <= FOG_MEM_SIZE; x++) {
+        const i = y * FOG_MEM_SIZE + x;
+        const fresh = x < FOG_MEM_SIZE && !fogSynced[i] && data[i * 4 + 3] >= EXPLORED_ALPHA;
+        if (fresh) {
+          fogSynced[i] = 1;
+          if (start < 0) start = x;
+        } else if (start >= 0) {
+          runs.push(y, start, x - start);
+          start = -1;
+        }
+      }
+    }
+    return runs;
+  }
+
   // Create DOM
   const wrap = document.createElement('div');
   wrap.className = 'map-canvas-wrap' + (isMaximized ? ' maximized' : '');
@@ -930,6 +974,7 @@ export function createMapCanvas(container, opts = {}) {
       const newY = (pos.y - dragOffset.y - y) / size;
       draggingMarker.x = Math.max(0, Math.min(1, newX));
       draggingMarker.y = Math.max(0, Math.min(1, newY));
+      if (onMarkerDrag) onMarkerDrag(draggingMarker);
       draw();
       return;
     }
@@ -1025,6 +1070,7 @@ export function createMapCanvas(container, opts = {}) {
       const { x, y, size } = getMapRect();
       draggingMarker.x = Math.max(0, Math.min(1, (pos.x - dragOffset.x - x) / size));
       draggingMarker.y = Math.max(0, Math.min(1, (pos.y - dragOffset.y - y) / size));
+      if (onMarkerDrag) onMarkerDrag(draggingMarker);
       draw();
     } else if (isPanning) {
       panX = panStart.px + (t.clientX - panStart.x);
@@ -1090,6 +1136,7 @@ export function createMapCanvas(container, opts = {}) {
       loadMapImage(nextMapImageUrl, nextFallbackImageUrl);
     },
     getMarkers() { return markers; },
+    getDraggingMarkerId() { return draggingMarker ? draggingMarker.id : null; },
     getZoom() { return zoom; },
     setZoom(z) { zoom = z; draw(); },
     resetView() { zoom = 1; panX = 0; panY = 0; draw(); },
@@ -1107,11 +1154,28 @@ export function createMapCanvas(container, opts = {}) {
     loadExplorationData(dataUrl) {
       if (!fogMemoryCanvas) return;
       fogMemoryCtx.clearRect(0, 0, FOG_MEM_SIZE, FOG_MEM_SIZE);
-      if (!dataUrl) { draw(); return; }
+      if (!dataUrl) { fogSynced.fill(0); draw(); return; }
       const img = new Image();
-      img.onload = () => { fogMemoryCtx.drawImage(img, 0, 0, FOG_MEM_SIZE, FOG_MEM_SIZE); draw(); };
+      img.onload = () => {
+        fogMemoryCtx.filter = 'blur(1px)';
+        fogMemoryCtx.drawImage(img, 0, 0, FOG_MEM_SIZE, FOG_MEM_SIZE);
+        fogMemoryCtx.filter = 'none';
+        markExplorationSynced();
+        draw();
+      };
       img.src = dataUrl;
     },
+    // Merges cells another client explored, as flat [y, x, length, ...] triples
+    applyExplorationDelta(runs) {
+      if (!fogMemoryCanvas || !runs) return;
+      fogMemoryCtx.fillStyle = 'rgba(255,255,255,1)';
+      for (let i = 0; i + 2 < runs.length; i += 3) {
+        const y = runs[i], x = runs[i + 1], length = runs[i + 2];
+        fogMemoryCtx.fillRect(x, y, length, 1);
+        fogSynced.fill(1, y * FOG_MEM_SIZE + x, y * FOG_MEM_SIZE + x + length);
+      }
+      draw();
+    },
     draw,
     resize,
     destroy() {
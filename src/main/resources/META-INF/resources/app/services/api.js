@@ -36,3 +36,18 @@ export async function apiDelete(path) {
   return api(path, { method: 'DELETE' });
 }
 
+
+/**
+ * Loads full characters in one request; resolves to a Map from character id to character.
+ * Unknown ids and failed requests are simply missing from the map.
+ */
+export async function loadCharacters(ids) {
+  const unique = [...new Set(ids.filter(Boolean))];
+  if (unique.length === 0) return new Map();
+  try {
+    const list = await apiJson('/api/character/batch?ids=' + unique.join(','));
+    return new Map(list.map(ch => [ch.id, ch]));
+  } catch (e) {
+    return new Map();
+  }
+}
@@ -1,5 +1,22 @@
 const RECONNECT_LOG_DELAY_MS = 1000;
 
+// Every sequenced event the server broadcasts to a campaign. Each one is tracked even if the
+// view has no handler for it, so a jump in event ids really means events were dropped.
+const SEQUENCED_EVENTS = [
+  'turn', 'dice', 'hp', 'player_active', 'decision', 'vote', 'decision_resolved',
+  'marker_add', 'marker_move', 'marker_remove', 'marker_group', 'fog_updated', 'fog_delta', 'undo',
+  'state_reset', 'roster_updated', 'campaign_updated', 'campaign_started', 'campaign_deleted'
+];
+
+// Event ids look like "<epoch>-<sequence>"; the sequence grows by one per campaign event.
+function parseEventId(eventId) {
+  if (!eventId) return null;
+  const separator = eventId.lastIndexOf('-');
+  const sequence = Number(eventId.slice(separator + 1));
+  if (separator <= 0 || !Number.isInteger(sequence)) return null;
+  return { epoch: eventId.slice(0, separator), sequence };
+}
+
 export function connectCampaignEvents(campaignId, handlers, options = {}) {
   const url = '/api/campaign/' + encodeURIComponent(campaignId) + '/sse';
   const source = new EventSource(url);
@@ -8,21 +25,62 @@ export function connectCampaignEvents(campaignId, handlers, options = {}) {
   let lastErrorLog = 0;
 
   const logPrefix = '[campaign-sse ' + campaignId + ']';
+  let lastSeen = null;
+
+  // Reports a gap when the server is ahead of the last event this client received,
+  // e.g. because a slow connection had events dropped.
+  function trackEventId(eventId, { expectNext = true } = {}) {
+    const current = parseEventId(eventId);
+    if (!current) return;
+    const previous = lastSeen;
+    if (!previous || previous.epoch !== current.epoch || current.sequence >= previous.sequence) {
+      lastSeen = current;
+    }
+    if (!previous || previous.epoch !== current.epoch) return;
+    const expected = expectNext ? previous.sequence + 1 : previous.sequence;
+    if (current.sequence > expected) {
+      console.warn(logPrefix, 'missed events', { after: previous.sequence, next: current.sequence });
+      options.onGap?.({ after: previous.sequence, next: current.sequence });
+    }
+  }
+
+  SEQUENCED_EVENTS.forEach(eventName => {
+    source.addEventListener(eventName, event => trackEventId(event.lastEventId));
+  });
 
   source.addEventListener('connected', async event => {
     const reconnect = connectedOnce;
     connectedOnce = true;
+    // resumed = the server replays the events missed while disconnected
+    let resumed = false;
+    let data = null;
+    try {
+      data = event.data ? JSON.parse(event.data) : null;
+      resumed = Boolean(data?.resumed);
+    } catch (error) {
+      resumed = false;
+    }
+    // Without a replay the view reloads the state, which already includes everything up to
+    // the server's last event id, so counting restarts there instead of reporting a gap.
+    if (!resumed) lastSeen = parseEventId(data?.lastEventId) || lastSeen;
     console.info(logPrefix, reconnect ? 'reconnected' : 'connected', {
-      lastEventId: event.lastEventId || null
+      lastEventId: event.lastEventId || null,
+      resumed
     });
     try {
-      await options.onConnected?.({ reconnect, event });
+      await options.onConnected?.({ reconnect, resumed, event });
     } catch (error) {
       console.error(logPrefix, 'state reconciliation failed', error);
     }
   });
 
-  source.addEventListener('heartbeat', () => {
+  source.addEventListener('heartbeat', event => {
+    try {
+      const data = event.data ? JSON.parse(event.data) : null;
+      trackEventId(data?.lastEventId, { expectNext: false });
+    } catch (error) {
+      // Heartbeats without a parsable body are still heartbeats.
+    }
     options.onHeartbeat?.();
   });
 
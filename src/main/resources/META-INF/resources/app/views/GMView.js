@@ -4,6 +4,7 @@
 import { requirePlayer } from '../services/auth.js';
 import { esc, calcMod, fmtMod, getActiveCampaignMap, getCampaignMaps, playerLoginName, resolveMapUrl, resolveOriginalImageUrl } from '../services/utils.js';
 import { connectCampaignEvents } from '../services/campaignEvents.js';
+import { loadCharacters } from '../services/api.js';
 import { renderHeader, initHeader, destroyHeader } from '../components/header.js';
 import { createMapCanvas } from '../components/mapCanvas.js';
 
@@ -217,6 +218,26 @@ export default async function GMView({ id }) {
     }
   }
 
+  // Live positions while the DM drags a marker: at most one request in flight, and the drop
+  // waits for it so the final position always arrives last.
+  let markerDragRequest = null;
+
+  function sendMarkerDrag(m) {
+    if (markerDragRequest) return;
+    markerDragRequest = fetch('/api/campaign/' + campaignId + '/game/map-marker', {
+      method: 'POST', headers: { 'Content-Type': 'application/json' },
+      body: JSON.stringify({ id: m.id, x: m.x, y: m.y, drag: true })
+    }).catch(() => {}).finally(() => { markerDragRequest = null; });
+  }
+
+  async function sendMarkerDrop(m) {
+    if (markerDragRequest) await markerDragRequest;
+    return fetch('/api/campaign/' + campaignId + '/game/map-marker', {
+      method: 'POST', headers: { 'Content-Type': 'application/json' },
+      body: JSON.stringify({ id: m.id, x: m.x, y: m.y })
+    });
+  }
+
   function initMiniMap() {
     const box = document.getElementById('gmMapBox');
     if (!mapImageUrl) {
@@ -230,11 +251,9 @@ export default async function GMView({ id }) {
       readOnly: false,
       isMaximized: false,
       players: players.map(p => ({ id: p.id, name: p.name })),
+      onMarkerDrag: sendMarkerDrag,
       onMarkerMove: (m) => {
-        fetch('/api/campaign/' + campaignId + '/game/map-marker', {
-          method: 'POST', headers: { 'Content-Type': 'application/json' },
-          body: JSON.stringify({ id: m.id, x: m.x, y: m.y })
-        });
+        sendMarkerDrop(m);
       }
     });
   }
@@ -248,11 +267,9 @@ export default async function GMView({ id }) {
       readOnly: false,
       isMaximized: true,
       players: players.map(p => ({ id: p.id, name: p.name })),
+      onMarkerDrag: sendMarkerDrag,
       onMarkerMove: (m) => {
-        fetch('/api/campaign/' + campaignId + '/game/map-marker', {
-          method: 'POST', headers: { 'Content-Type': 'application/json' },
-          body: JSON.stringify({ id: m.id, x: m.x, y: m.y })
-        });
+        sendMarkerDrop(m);
         syncMapCanvases();
       }
     });
@@ -490,44 +507,38 @@ export default async function GMView({ id }) {
   }
 
   // ===== SSE =====
+  // One request for the whole view; "no-cache" revalidates with the ETag, so an
+  // unchanged campaign costs a 304.
   async function reconcileLiveState() {
-    const [stateResult, markersResult, decisionsResult, campaignResult] = await Promise.allSettled([
-      fetch('/api/campaign/' + campaignId + '/game/state', { cache: 'no-store' }),
-      fetch('/api/campaign/' + campaignId + '/game/map-markers', { cache: 'no-store' }),
-      fetch('/api/campaign/' + campaignId + '/game/decisions', { cache: 'no-store' }),
-      fetch('/api/campaign/' + campaignId + '?playerId=' + player.id, { cache: 'no-store' })
-    ]);
-
-    if (stateResult.status === 'fulfilled' && stateResult.value.ok) {
-      const state = await stateResult.value.json();
-      for (const p of players) {
-        if (state.playerHp?.[p.id] !== undefined) p.hp = state.playerHp[p.id];
-        if (state.playerMaxHp?.[p.id] !== undefined) p.maxHp = state.playerMaxHp[p.id];
-        if (state.playerActive?.[p.id] !== undefined) p.active = state.playerActive[p.id];
-      }
-      if (state.currentTurnPlayerId && state.currentTurnPlayerId !== -1) {
-        const index = players.findIndex(p => p.id === state.currentTurnPlayerId);
-        if (index >= 0) currentIndex = index;
-      }
-      renderPlayers();
+    let dashboard;
+    try {
+      const res = await fetch('/api/campaign/' + campaignId + '/game/dashboard', { cache: 'no-cache' });
+      if (!res.ok) return;
+      dashboard = await res.json();
+    } catch (e) { return; }
+
+    const state = dashboard.state;
+    for (const p of players) {
+      if (state.playerHp?.[p.id] !== undefined) p.hp = state.playerHp[p.id];
+      if (state.playerMaxHp?.[p.id] !== undefined) p.maxHp = state.playerMaxHp[p.id];
+      if (state.playerActive?.[p.id] !== undefined) p.active = state.playerActive[p.id];
     }
-
-    if (markersResult.status === 'fulfilled' && markersResult.value.ok) {
-      mapMarkers = await markersResult.value.json();
-      syncMapCanvases();
+    if (state.currentTurnPlayerId && state.currentTurnPlayerId !== -1) {
+      const index = players.findIndex(p => p.id === state.currentTurnPlayerId);
+      if (index >= 0) currentIndex = index;
     }
+    renderPlayers();
 
-    if (decisionsResult.status === 'fulfilled' && decisionsResult.value.ok) {
-      decisions = await decisionsResult.value.json();
-      renderDecisions();
-    }
+    mapMarkers = state.mapMarkers;
+    syncMapCanvases();
 
-    if (campaignResult.status === 'fulfilled' && campaignResult.value.ok) {
-      campaign = await campaignResult.value.json();
-      applyCampaignMap(campaign);
-      renderMapSelectors();
-      updateMapImages();
-    }
+    decisions = dashboard.decisions;
+    renderDecisions();
+
+    campaign = dashboard.campaign;
+    applyCampaignMap(campaign);
+    renderMapSelectors();
+    updateMapImages();
   }
 
   function connectSSE() {
@@ -558,6 +569,8 @@ export default async function GMView({ id }) {
       if (!mapMarkers.find(x => x.id === m.id)) { mapMarkers.push(m); syncMapCanvases(); }
       },
       marker_move: d => {
+      // Our own live drag echoed back; the local position is newer
+      if ([mapCanvas, mapCanvasMax].some(c => c && c.getDraggingMarkerId() === d.id)) return;
       const m = mapMarkers.find(x => x.id === d.id);
       if (m) { m.x = d.x; m.y = d.y; syncMapCanvases(); }
       },
@@ -579,7 +592,8 @@ export default async function GMView({ id }) {
       roster_updated: () => loadPlayers(),
       state_reset: () => reconcileLiveState()
     }, {
-      onConnected: ({ reconnect }) => reconnect ? reconcileLiveState() : undefined
+      onConnected: ({ reconnect, resumed }) => reconnect && !resumed ? reconcileLiveState() : undefined,
+      onGap: () => reconcileLiveState()
     });
   }
 
@@ -599,6 +613,7 @@ export default async function GMView({ id }) {
       const existingTurn = gameStateData?.currentTurnPlayerId;
 
       const cpRes = await fetch('/api/campaign-player/' + campaignId); const cps = await cpRes.json();
+      const characters = await loadCharacters(cps.filter(c => c.role === 'PLAYER').map(c => c.characterId));
       const loaded = [];
       for (const cp of cps.filter(c => c.role === 'PLAYER')) {
         try {
@@ -608,9 +623,8 @@ export default async function GMView({ id }) {
           let hp = 10, maxHp = 10;
           if (cp.characterId) {
             try {
-              const cRes = await fetch('/api/character/' + cp.characterId);
-              if (cRes.ok) {
-                const ch = await cRes.json();
+              const ch = characters.get(cp.characterId);
+              if (ch) {
                 const conScore = ch.abilityScores?.find(a => a.abilityName?.toLowerCase() === 'constitution');
                 const conMod = conScore ? Math.floor((conScore.score - 10) / 2) : 0;
                 const lvl = ch.level || 1;
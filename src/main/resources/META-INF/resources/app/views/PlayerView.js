@@ -5,6 +5,7 @@ import { requirePlayer } from '../services/auth.js';
 import { navigate } from '../router.js';
 import { esc, initials, calcMod, fmtMod, getActiveCampaignMap, playerLoginName, renderAvatarPicture, resolveMapUrl, resolveOriginalImageUrl } from '../services/utils.js';
 import { connectCampaignEvents } from '../services/campaignEvents.js';
+import { loadCharacters } from '../services/api.js';
 import { renderHeader, initHeader, destroyHeader } from '../components/header.js';
 import { createMapCanvas } from '../components/mapCanvas.js';
 import { showToast } from '../components/toast.js';
@@ -168,46 +169,45 @@ export default async function PlayerView({ id }) {
   }
 
   // ===== SSE =====
+  // One request for the whole view; "no-cache" revalidates with the ETag, so an
+  // unchanged campaign costs a 304.
   async function reconcileLiveState() {
-    const [stateResult, decisionsResult, markersResult, campaignResult] = await Promise.allSettled([
-      fetch('/api/campaign/' + campaignId + '/game/state', { cache: 'no-store' }),
-      fetch('/api/campaign/' + campaignId + '/game/decisions', { cache: 'no-store' }),
-      fetch('/api/campaign/' + campaignId + '/game/map-markers', { cache: 'no-store' }),
-      fetch('/api/campaign/' + campaignId + '?playerId=' + currentPlayer.id, { cache: 'no-store' })
-    ]);
-
-    if (stateResult.status === 'fulfilled' && stateResult.value.ok) {
-      const state = await stateResult.value.json();
-      if (state.playerHp?.[currentPlayer.id] !== undefined) currentHP = state.playerHp[currentPlayer.id];
-      if (state.playerMaxHp?.[currentPlayer.id] !== undefined) maxHP = state.playerMaxHp[currentPlayer.id];
-      if (state.currentTurnPlayerId && state.currentTurnPlayerId !== -1) {
-        currentTurnPlayerId = state.currentTurnPlayerId;
-        updateTurnBanner(currentTurnPlayerId, playerNameMap[currentTurnPlayerId] || 'Ein Spieler');
-      }
-      renderCoreStats();
-      renderParty();
-      if (isMobile()) renderMobParty();
+    let dashboard;
+    try {
+      const res = await fetch('/api/campaign/' + campaignId + '/game/dashboard', { cache: 'no-cache' });
+      if (!res.ok) return;
+      dashboard = await res.json();
+    } catch (e) { return; }
+
+    const state = dashboard.state;
+    if (state.playerHp?.[currentPlayer.id] !== undefined) currentHP = state.playerHp[currentPlayer.id];
+    if (state.playerMaxHp?.[currentPlayer.id] !== undefined) maxHP = state.playerMaxHp[currentPlayer.id];
+    if (state.currentTurnPlayerId && state.currentTurnPlayerId !== -1) {
+      currentTurnPlayerId = state.currentTurnPlayerId;
+      updateTurnBanner(currentTurnPlayerId, playerNameMap[currentTurnPlayerId] || 'Ein Spieler');
     }
-
-    if (decisionsResult.status === 'fulfilled' && decisionsResult.value.ok) {
-      decisions = await decisionsResult.value.json();
-      renderDecisions();
-      if (isMobile()) renderMobDecisions();
+    renderCoreStats();
+    renderParty();
+    if (isMobile()) renderMobParty();
+    // Fog deltas may have been missed; the snapshot carries the whole fog
+    if (state.fogExploration) {
+      if (playerMapCanvas) playerMapCanvas.loadExplorationData(state.fogExploration);
+      if (mobileMapCanvas) mobileMapCanvas.loadExplorationData(state.fogExploration);
     }
 
-    if (markersResult.status === 'fulfilled' && markersResult.value.ok) {
-      playerMapMarkers = await markersResult.value.json();
-      syncPlayerMap();
-    }
+    decisions = dashboard.decisions;
+    renderDecisions();
+    if (isMobile()) renderMobDecisions();
 
-    if (campaignResult.status === 'fulfilled' && campaignResult.value.ok) {
-      campaign = await campaignResult.value.json();
-      activeMap = getActiveCampaignMap(campaign);
-      const mapUrl = activeMap ? resolveMapUrl(activeMap.path, { variant: 'canvas' }) : '';
-      const fallbackUrl = activeMap ? resolveOriginalImageUrl(activeMap.path) : '';
-      if (playerMapCanvas) playerMapCanvas.updateMapImage(mapUrl, fallbackUrl);
-      if (mobileMapCanvas) mobileMapCanvas.updateMapImage(mapUrl, fallbackUrl);
-    }
+    playerMapMarkers = state.mapMarkers;
+    syncPlayerMap();
+
+    campaign = dashboard.campaign;
+    activeMap = getActiveCampaignMap(campaign);
+    const mapUrl = activeMap ? resolveMapUrl(activeMap.path, { variant: 'canvas' }) : '';
+    const fallbackUrl = activeMap ? resolveOriginalImageUrl(activeMap.path) : '';
+    if (playerMapCanvas) playerMapCanvas.updateMapImage(mapUrl, fallbackUrl);
+    if (mobileMapCanvas) mobileMapCanvas.updateMapImage(mapUrl, fallbackUrl);
   }
 
   function connectSSE() {
@@ -266,6 +266,10 @@ export default async function PlayerView({ id }) {
         if (playerMapCanvas && d.data) playerMapCanvas.loadExplorationData(d.data);
         if (mobileMapCanvas && d.data) mobileMapCanvas.loadExplorationData(d.data);
       },
+      fog_delta: d => {
+        if (playerMapCanvas) playerMapCanvas.applyExplorationDelta(d.runs);
+        if (mobileMapCanvas) mobileMapCanvas.applyExplorationDelta(d.runs);
+      },
       player_active: () => {
       renderParty();
       if (isMobile()) renderMobParty();
@@ -273,7 +277,8 @@ export default async function PlayerView({ id }) {
       campaign_updated: () => reconcileLiveState(),
       state_reset: () => reconcileLiveState()
     }, {
-      onConnected: ({ reconnect }) => reconnect ? reconcileLiveState() : undefined
+      onConnected: ({ reconnect, resumed }) => reconnect && !resumed ? reconcileLiveState() : undefined,
+      onGap: () => reconcileLiveState()
     });
   }
 
@@ -381,12 +386,14 @@ export default async function PlayerView({ id }) {
       const charRes = await fetch('/api/character/' + myEntry.characterId, { cache: 'no-store' });
       character = await charRes.json();
 
-      await Promise.all(campaignPlayers.map(async cp => {
+      // The party's characters in one request
+      const partyCharacters = campaignPlayers.filter(cp => cp.characterId && cp.playerId !== currentPlayer.id);
+      const charactersRequest = loadCharacters(partyCharacters.map(cp => cp.characterId)).then(characters => {
+        partyCharacters.forEach(cp => { if (characters.has(cp.characterId)) characterMap[cp.playerId] = characters.get(cp.characterId); });
+      });
+      await Promise.all([charactersRequest, ...campaignPlayers.map(async cp => {
         try { const r = await fetch('/api/player/id/' + cp.playerId, { cache: 'no-store' }); if (r.ok) { const p = await r.json(); playerNameMap[cp.playerId] = playerLoginName(p, 'Spieler ' + cp.playerId); } } catch(e){}
-        if (cp.characterId && cp.playerId !== currentPlayer.id) {
-          try { const r = await fetch('/api/character/' + cp.characterId, { cache: 'no-store' }); if (r.ok) characterMap[cp.playerId] = await r.json(); } catch(e){}
-        }
-      }));
+      })]);
       characterMap[currentPlayer.id] = character;
 
       const conMod = calcMod(getScore('Constitution'));
@@ -541,11 +548,11 @@ export default async function PlayerView({ id }) {
       fogSolid: true,
       initialExplorationData: fogExplorationData,
       gameStarted: true,
-      onExplorationChange: (dataUrl) => {
-        fetch('/api/campaign/' + campaignId + '/game/fog-exploration', {
-          method: 'PUT',
+      onExplorationDelta: (runs) => {
+        fetch('/api/campaign/' + campaignId + '/game/fog-exploration/reveal', {
+          method: 'POST',
           headers: { 'Content-Type': 'application/json' },
-          body: JSON.stringify({ data: dataUrl })
+          body: JSON.stringify({ runs })
         }).catch(() => {});
       }
     });
@@ -885,11 +892,11 @@ export default async function PlayerView({ id }) {
       fogSolid: true,
       initialExplorationData: fogExplorationData,
       gameStarted: true,
-      onExplorationChange: (dataUrl) => {
-        fetch('/api/campaign/' + campaignId + '/game/fog-exploration', {
-          method: 'PUT',
+      onExplorationDelta: (runs) => {
+        fetch('/api/campaign/' + campaignId + '/game/fog-exploration/reveal', {
+          method: 'POST',
           headers: { 'Content-Type': 'application/json' },
-          body: JSON.stringify({ data: dataUrl })
+          body: JSON.stringify({ runs })
         }).catch(() => {});
       }
     });
@@ -6,6 +6,7 @@
 import { requirePlayer } from '../services/auth.js';
 import { esc, getActiveCampaignMap, playerLoginName, resolveMapUrl, resolveOriginalImageUrl } from '../services/utils.js';
 import { connectCampaignEvents } from '../services/campaignEvents.js';
+import { loadCharacters } from '../services/api.js';
 import { createMapCanvas } from '../components/mapCanvas.js';
 
 export default async function TableView({ id }) {
@@ -88,6 +89,7 @@ export default async function TableView({ id }) {
   try {
     const cpRes = await fetch('/api/campaign-player/' + campaignId, { cache: 'no-store' });
     const cps = await cpRes.json();
+    const characters = await loadCharacters(cps.filter(c => c.role === 'PLAYER').map(c => c.characterId));
     for (const cp of cps.filter(c => c.role === 'PLAYER')) {
       try {
         const pRes = await fetch('/api/player/id/' + cp.playerId);
@@ -96,9 +98,8 @@ export default async function TableView({ id }) {
         let hp = 10, maxHp = 10;
         if (cp.characterId) {
           try {
-            const cRes = await fetch('/api/character/' + cp.characterId);
-            if (cRes.ok) {
-              const ch = await cRes.json();
+            const ch = characters.get(cp.characterId);
+            if (ch) {
               const conScore = ch.abilityScores?.find(a => a.abilityName?.toLowerCase() === 'constitution');
               const conMod = conScore ? Math.floor((conScore.score - 10) / 2) : 0;
               const lvl = ch.level || 1;
@@ -208,11 +209,11 @@ export default async function TableView({ id }) {
       fogPositions: getPlayerMarkerPositions(),
       initialExplorationData: fogExplorationData,
       gameStarted: true,
-      onExplorationChange: (dataUrl) => {
-        fetch('/api/campaign/' + campaignId + '/game/fog-exploration', {
-          method: 'PUT',
+      onExplorationDelta: (runs) => {
+        fetch('/api/campaign/' + campaignId + '/game/fog-exploration/reveal', {
+          method: 'POST',
           headers: { 'Content-Type': 'application/json' },
-          body: JSON.stringify({ data: dataUrl })
+          body: JSON.stringify({ runs })
         }).catch(() => {});
       }
     });
@@ -276,6 +277,8 @@ export default async function TableView({ id }) {
         if (state.playerActive?.[p.id] !== undefined) p.active = state.playerActive[p.id];
       }
       renderPlayers();
+      // Fog deltas may have been missed; the snapshot carries the whole fog
+      if (mapCanvas && state.fogExploration) mapCanvas.loadExplorationData(state.fogExploration);
     }
 
     if (markersResult.status === 'fulfilled' && markersResult.value.ok) {
@@ -361,11 +364,15 @@ export default async function TableView({ id }) {
       fog_updated: d => {
         if (mapCanvas && d.data) mapCanvas.loadExplorationData(d.data);
       },
+      fog_delta: d => {
+        if (mapCanvas) mapCanvas.applyExplorationDelta(d.runs);
+      },
 
       campaign_updated: () => reconcileLiveState(),
       state_reset: () => reconcileLiveState()
     }, {
-      onConnected: ({ reconnect }) => reconnect ? reconcileLiveState() : undefined
+      onConnected: ({ reconnect, resumed }) => reconnect && !resumed ? reconcileLiveState() : undefined,
+      onGap: () => reconcileLiveState()
     });
   }
 
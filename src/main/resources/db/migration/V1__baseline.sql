@@ -0,0 +1,150 @@
+-- Original schema, as Hibernate's "update" generation created it before migrations existed.
+-- Existing databases are baselined at this version and skip it; new databases start here.
+
+create sequence if not exists ability_seq start with 1 increment by 50;
+create sequence if not exists background_seq start with 1 increment by 50;
+create sequence if not exists campaign_seq start with 1 increment by 50;
+create sequence if not exists campaign_player_seq start with 1 increment by 50;
+create sequence if not exists character_seq start with 1 increment by 50;
+create sequence if not exists character_ability_seq start with 1 increment by 50;
+create sequence if not exists character_skill_seq start with 1 increment by 50;
+create sequence if not exists class_seq start with 1 increment by 50;
+create sequence if not exists group_decision_seq start with 1 increment by 50;
+create sequence if not exists notification_seq start with 1 increment by 50;
+create sequence if not exists player_seq start with 1 increment by 50;
+create sequence if not exists skill_seq start with 1 increment by 50;
+create sequence if not exists skill_proficiency_seq start with 1 increment by 50;
+create sequence if not exists tool_seq start with 1 increment by 50;
+create sequence if not exists tool_proficiency_seq start with 1 increment by 50;
+
+create table if not exists ability (
+    id bigint not null primary key,
+    name varchar(255),
+    description varchar(255)
+);
+
+create table if not exists background (
+    id bigint not null primary key,
+    name varchar(255),
+    description varchar(2000),
+    skills varchar(255),
+    equipment varchar(2000),
+    feat varchar(255)
+);
+
+create table if not exists campaign (
+    id bigint not null primary key,
+    name varchar(255),
+    description varchar(1000),
+    story varchar(1000),
+    player_id bigint,
+    map_image_path varchar(255),
+    map_image_paths varchar(2048),
+    selected_map_index integer,
+    is_public boolean not null,
+    max_player_count integer,
+    started boolean not null
+);
+
+create table if not exists campaign_player (
+    id bigint not null primary key,
+    campaign_id bigint not null,
+    player_id bigint not null,
+    role varchar(255) not null,
+    joined_at bigint not null,
+    character_id bigint,
+    character_status varchar(255),
+    dm_notes varchar(2000)
+);
+
+create table if not exists character (
+    id bigint not null primary key,
+    name varchar(255),
+    classId bigint not null,
+    backgroundId integer not null,
+    level integer not null,
+    isCreated boolean not null,
+    info varchar(255),
+    race varchar(255),
+    alignment varchar(255)
+);
+
+create table if not exists character_ability (
+    id bigint not null primary key,
+    character_Id bigint references character,
+    ability_Id bigint references ability,
+    score integer not null
+);
+
+create table if not exists character_skill (
+    id bigint not null primary key,
+    characterId integer not null,
+    skillId integer not null
+);
+
+create table if not exists class (
+    id bigint not null primary key,
+    name varchar(255),
+    description varchar(1500)
+);
+
+create table if not exists group_decision (
+    id bigint not null primary key,
+    campaign_id bigint not null,
+    title varchar(255) not null,
+    description varchar(2000),
+    decision_made varchar(1000),
+    created_at bigint not null,
+    resolved_at bigint,
+    status varchar(255) not null,
+    order_index integer,
+    yes_votes integer not null,
+    no_votes integer not null,
+    total_players integer not null,
+    voted_player_ids varchar(2000)
+);
+
+create table if not exists notification (
+    id bigint not null primary key,
+    player_id bigint not null,
+    type varchar(255) not null,
+    title varchar(255) not null,
+    message varchar(1000),
+    reference_id bigint,
+    secondary_reference_id bigint,
+    is_read boolean not null,
+    created_at bigint not null
+);
+
+create table if not exists player (
+    id bigint not null primary key,
+    email varchar(255),
+    username varchar(255),
+    name varchar(255),
+    profile_picture varchar(255)
+);
+
+create table if not exists skill (
+    id bigint not null primary key,
+    name varchar(255),
+    description varchar(255)
+);
+
+create table if not exists skill_proficiency (
+    id bigint not null primary key,
+    backgroundId integer not null,
+    skillId integer not null,
+    proficiencyLevel varchar(255)
+);
+
+create table if not exists tool (
+    id bigint not null primary key,
+    name varchar(255),
+    description varchar(255)
+);
+
+create table if not exists tool_proficiency (
+    id bigint not null primary key,
+    toolId integer not null,
+    proficiencyLevel varchar(255)
+);
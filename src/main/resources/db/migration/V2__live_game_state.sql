@@ -0,0 +1,21 @@
+-- Write-behind copy of the live game state (GameStatePersister).
+
+create table saved_game_state (
+    campaign_id bigint not null primary key,
+    current_turn_player_id bigint,
+    last_dice_roll text,
+    map_markers text,
+    marker_seq bigint not null,
+    fog_exploration text,
+    undo_depth integer,
+    updated_at bigint not null
+);
+
+create table saved_player_state (
+    campaign_id bigint not null,
+    player_id bigint not null,
+    hp integer,
+    max_hp integer,
+    active boolean,
+    primary key (campaign_id, player_id)
+);
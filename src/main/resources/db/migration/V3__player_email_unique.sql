@@ -0,0 +1,11 @@
+-- Login looks players up by lower(email). Concurrent first logins could create the same
+-- player twice; the oldest row keeps the address, later ones are renamed so the unique
+-- index can be built without deleting anything.
+update player p
+set email = 'duplicate-' || p.id || '-' || p.email
+where exists (
+    select 1 from player older
+    where lower(older.email) = lower(p.email) and older.id < p.id
+);
+
+create unique index if not exists player_email_lower_key on player (lower(email));
@@ -0,0 +1,13 @@
+-- Indexes for the hot Panache queries; RequiredIndexCheck refuses to start without them.
+
+-- "campaignId = ?1 and playerId = ?2" (membership), "campaignId = ?1 [and role = ...]" (roster)
+create index if not exists campaign_player_campaign_player_idx on campaign_player (campaign_id, player_id);
+-- "playerId" (a player's campaigns, account deletion)
+create index if not exists campaign_player_player_idx on campaign_player (player_id);
+
+-- "playerId = ?1 and isRead = false order by createdAt desc" and the unread count;
+-- "playerId = ?1 order by createdAt desc" uses its prefix
+create index if not exists notification_player_read_created_idx on notification (player_id, is_read, created_at desc);
+
+-- "campaignId = ?1 order by orderIndex asc, createdAt desc"
+create index if not exists group_decision_campaign_order_idx on group_decision (campaign_id, order_index, created_at desc);
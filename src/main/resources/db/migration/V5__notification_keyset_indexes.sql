@@ -0,0 +1,13 @@
+-- Notification pages are read newest first with a (created_at, id) cursor.
+create index if not exists notification_player_created_idx on notification (player_id, created_at desc, id desc);
+
+-- Unread pages and the unread count; only unread rows, so the count is an index-only scan
+-- over the few unread notifications instead of the player's whole history.
+create index if not exists notification_player_unread_idx on notification (player_id, created_at desc, id desc)
+    where is_read = false;
+
+-- Read notifications past retention, purged oldest first by NotificationRetention.
+create index if not exists notification_read_created_idx on notification (created_at) where is_read = true;
+
+-- Superseded by the two player indexes above.
+drop index if exists notification_player_read_created_idx;
@@ -0,0 +1,24 @@
+-- Votes as rows instead of the voted_player_ids list; the unique key rejects a second vote
+-- of the same player even when both arrive at once.
+create sequence if not exists decision_vote_seq start with 1 increment by 50;
+
+create table if not exists decision_vote (
+    id bigint not null primary key,
+    decision_id bigint not null,
+    player_id bigint not null,
+    vote varchar(255),
+    created_at bigint not null
+);
+
+create unique index if not exists decision_vote_decision_player_key on decision_vote (decision_id, player_id);
+create index if not exists decision_vote_player_idx on decision_vote (player_id);
+
+-- Earlier votes only recorded who voted, not the choice; they keep blocking a second vote.
+insert into decision_vote (id, decision_id, player_id, vote, created_at)
+select nextval('decision_vote_seq'), d.id, cast(voter as bigint), null, d.created_at
+from group_decision d
+cross join lateral regexp_split_to_table(d.voted_player_ids, ',') as voter
+where d.voted_player_ids is not null and voter ~ '^[0-9]+$'
+on conflict (decision_id, player_id) do nothing;
+
+alter table group_decision drop column if exists voted_player_ids;
@@ -0,0 +1,24 @@
+-- Decisions with any number of options: labels and per-option counts as arrays in the
+-- decision row, so a vote increments one element in place. Existing decisions are yes/no.
+alter table group_decision add column if not exists options varchar(255)[];
+alter table group_decision add column if not exists option_votes integer[];
+alter table group_decision add column if not exists vote_count integer;
+
+update group_decision
+set options = array['Ja', 'Nein'],
+    option_votes = array[yes_votes, no_votes],
+    vote_count = yes_votes + no_votes
+where options is null;
+
+alter table group_decision alter column options set not null;
+alter table group_decision alter column option_votes set not null;
+alter table group_decision alter column vote_count set not null;
+
+alter table group_decision drop column if exists yes_votes;
+alter table group_decision drop column if exists no_votes;
+
+-- Votes refer to an option by its index instead of "yes" or "no".
+alter table decision_vote add column if not exists option_index integer;
+update decision_vote set option_index = case vote when 'yes' then 0 when 'no' then 1 end
+where vote is not null;
+alter table decision_vote drop column if exists vote;
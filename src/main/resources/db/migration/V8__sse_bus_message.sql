@@ -0,0 +1,7 @@
+-- Oversized cross-node SSE payloads; NOTIFY only carries the row id. Rows are only read
+-- within minutes of being written, so the table is unlogged.
+create unlogged table if not exists sse_bus_message (
+    id bigserial primary key,
+    payload text not null,
+    created_at timestamptz not null default now()
+);
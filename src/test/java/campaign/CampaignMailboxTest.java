@@ -0,0 +1,63 @@
+package campaign;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+class CampaignMailboxTest {
+
+    @Test
+    void commandsOfOneCampaignNeverOverlap() throws Exception {
+        CampaignMailbox mailbox = new CampaignMailbox();
+        int[] counter = new int[1];
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> calls = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                calls.add(callers.submit(() -> {
+                    for (int n = 0; n < 1_000; n++) {
+                        mailbox.call(1L, () -> counter[0]++);
+                    }
+                }));
+            }
+            for (Future<?> call : calls) {
+                call.get();
+            }
+        } finally {
+            callers.shutdown();
+        }
+
+        assertEquals(8_000, mailbox.call(1L, () -> counter[0]));
+    }
+
+    @Test
+    void nestedCallsRunInlineAndFailuresReachTheCaller() {
+        CampaignMailbox mailbox = new CampaignMailbox();
+
+        assertEquals("inner", mailbox.call(1L, () -> mailbox.call(1L, () -> "inner")));
+        assertThrows(IllegalStateException.class, () -> mailbox.call(2L, () -> {
+            throw new IllegalStateException("boom");
+        }));
+        assertEquals(3, mailbox.call(2L, () -> 3));
+    }
+
+    @Test
+    void postedCommandThrowingAnErrorDoesNotStallTheMailbox() {
+        CampaignMailbox mailbox = new CampaignMailbox();
+
+        mailbox.post(1L, () -> {
+            throw new AssertionError("boom");
+        });
+
+        assertEquals(4, assertTimeoutPreemptively(Duration.ofSeconds(5), () -> mailbox.call(1L, () -> 4)));
+    }
+}
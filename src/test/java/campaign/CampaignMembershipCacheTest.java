@@ -0,0 +1,228 @@
+package campaign;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class CampaignMembershipCacheTest {
+
+    private FakeTransactions transactions;
+    private StubbedCache cache;
+    private final List<InJvmBroadcastBus> buses = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        transactions = new FakeTransactions();
+        cache = node(transactions);
+    }
+
+    @AfterEach
+    void tearDown() {
+        buses.forEach(InJvmBroadcastBus::leave);
+    }
+
+    @Test
+    void membershipIsLoadedOnceWhileCached() {
+        cache.rows.put("1/7", "PLAYER");
+
+        cache.find(1L, 7L);
+        cache.find(1L, 7L);
+
+        assertEquals(1, cache.loads);
+    }
+
+    @Test
+    void joiningPlayerIsSeenAtOnce() {
+        assertNull(cache.find(1L, 7L));
+
+        cache.rows.put("1/7", "PLAYER");
+        cache.invalidate(1L, 7L);
+
+        assertEquals("PLAYER", cache.find(1L, 7L).role());
+    }
+
+    @Test
+    void leavingPlayerLosesAccess() {
+        cache.rows.put("1/7", "PLAYER");
+        assertNotNull(cache.find(1L, 7L));
+
+        cache.rows.remove("1/7");
+        cache.invalidate(1L, 7L);
+
+        assertNull(cache.find(1L, 7L));
+    }
+
+    @Test
+    void approvalReloadsTheMembership() {
+        cache.rows.put("1/7", "PLAYER");
+        cache.find(1L, 7L);
+
+        cache.invalidate(1L, 7L);
+
+        assertEquals("PLAYER", cache.find(1L, 7L).role());
+        assertEquals(2, cache.loads);
+    }
+
+    @Test
+    void deletingACampaignOrPlayerDropsOnlyTheirMemberships() {
+        cache.rows.put("1/7", "DM");
+        cache.rows.put("1/8", "PLAYER");
+        cache.rows.put("2/8", "PLAYER");
+        cache.find(1L, 7L);
+        cache.find(1L, 8L);
+        cache.find(2L, 8L);
+
+        cache.rows.remove("1/7");
+        cache.rows.remove("1/8");
+        cache.invalidateCampaign(1L);
+        assertNull(cache.find(1L, 7L));
+        assertNull(cache.find(1L, 8L));
+        assertEquals(5, cache.loads);
+        assertNotNull(cache.find(2L, 8L));
+        assertEquals(5, cache.loads);
+
+        cache.rows.remove("2/8");
+        cache.invalidatePlayer(8L);
+        assertNull(cache.find(2L, 8L));
+    }
+
+    @Test
+    void membershipCachedDuringTheTransactionIsRemovedAgainAfterCommit() {
+        cache.rows.put("1/7", "PLAYER");
+        cache.find(1L, 7L);
+
+        transactions.status = Status.STATUS_ACTIVE;
+        cache.invalidate(1L, 7L);
+        // A concurrent lookup still sees the committed row and caches it again
+        assertEquals("PLAYER", cache.find(1L, 7L).role());
+        cache.rows.remove("1/7");
+        transactions.commit();
+
+        assertNull(cache.find(1L, 7L));
+    }
+
+    @Test
+    void listenersHearAboutInvalidationsOnceCommitted() {
+        List<String> invalidated = new ArrayList<>();
+        cache.addInvalidationListener((campaignId, playerId) -> invalidated.add(campaignId + "/" + playerId));
+
+        cache.invalidate(1L, 7L);
+        transactions.status = Status.STATUS_ACTIVE;
+        cache.invalidateCampaign(2L);
+        assertEquals(List.of("1/7"), invalidated);
+        transactions.commit();
+        cache.invalidatePlayer(8L);
+
+        assertEquals(List.of("1/7", "2/null", "null/8"), invalidated);
+    }
+
+    @Test
+    void otherNodesDropTheMembershipOnceCommitted() {
+        StubbedCache owner = node(new FakeTransactions());
+        List<String> invalidated = new ArrayList<>();
+        owner.addInvalidationListener((campaignId, playerId) -> invalidated.add(campaignId + "/" + playerId));
+        owner.rows.put("1/7", "DM");
+        owner.rows.put("1/8", "PLAYER");
+        owner.find(1L, 7L);
+        owner.find(1L, 8L);
+
+        transactions.status = Status.STATUS_ACTIVE;
+        cache.invalidate(1L, 7L);
+        assertEquals(List.of(), invalidated);
+        owner.rows.put("1/7", "PLAYER");
+        transactions.commit();
+
+        assertEquals(List.of("1/7"), invalidated);
+        assertEquals("PLAYER", owner.find(1L, 7L).role());
+        owner.find(1L, 8L);
+        assertEquals(3, owner.loads);
+
+        cache.invalidateCampaign(1L);
+        assertEquals(List.of("1/7", "1/null"), invalidated);
+        owner.find(1L, 8L);
+        assertEquals(4, owner.loads);
+    }
+
+    private StubbedCache node(FakeTransactions transactions) {
+        InJvmBroadcastBus bus = new InJvmBroadcastBus();
+        buses.add(bus);
+        StubbedCache node = new StubbedCache();
+        node.transactionRegistry = transactions;
+        node.objectMapper = new ObjectMapper();
+        node.ttlSeconds = 300;
+        node.bus = bus;
+        bus.subscribeNodes(node::onNodeMessage);
+        return node;
+    }
+
+    /** Serves memberships from a map of "campaignId/playerId" to role instead of the database. */
+    private static class StubbedCache extends CampaignMembershipCache {
+        final Map<String, String> rows = new HashMap<>();
+        int loads;
+
+        @Override
+        Membership load(Long campaignId, Long playerId) {
+            loads++;
+            String role = rows.get(campaignId + "/" + playerId);
+            return role != null ? new Membership(campaignId, playerId, role, "Player " + playerId) : null;
+        }
+    }
+
+    private static class FakeTransactions implements TransactionSynchronizationRegistry {
+        int status = Status.STATUS_NO_TRANSACTION;
+        final List<Synchronization> synchronizations = new ArrayList<>();
+
+        void commit() {
+            synchronizations.forEach(Synchronization::beforeCompletion);
+            status = Status.STATUS_NO_TRANSACTION;
+            synchronizations.forEach(sync -> sync.afterCompletion(Status.STATUS_COMMITTED));
+            synchronizations.clear();
+        }
+
+        @Override
+        public int getTransactionStatus() {
+            return status;
+        }
+
+        @Override
+        public void registerInterposedSynchronization(Synchronization sync) {
+            synchronizations.add(sync);
+        }
+
+        @Override
+        public Object getTransactionKey() {
+            return null;
+        }
+
+        @Override
+        public void putResource(Object key, Object value) {
+        }
+
+        @Override
+        public Object getResource(Object key) {
+            return null;
+        }
+
+        @Override
+        public void setRollbackOnly() {
+        }
+
+        @Override
+        public boolean getRollbackOnly() {
+            return false;
+        }
+    }
+}
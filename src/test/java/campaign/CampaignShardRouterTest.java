@@ -0,0 +1,32 @@
+package campaign;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpTimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CampaignShardRouterTest {
+
+    @Test
+    void onlyConnectFailuresCountAsNotSent() {
+        assertTrue(CampaignShardRouter.notSent(new ConnectException("refused")));
+        assertTrue(CampaignShardRouter.notSent(new IOException(new ConnectException("refused"))));
+        assertTrue(CampaignShardRouter.notSent(new HttpConnectTimeoutException("connect timed out")));
+
+        assertFalse(CampaignShardRouter.notSent(new HttpTimeoutException("request timed out")));
+        assertFalse(CampaignShardRouter.notSent(new IOException("connection reset")));
+    }
+
+    @Test
+    void requestsThatMayHaveRunAreNotReportedAsUnavailable() {
+        assertEquals(503, CampaignShardRouter.unreachableStatus(new ConnectException("refused")));
+        assertEquals(504, CampaignShardRouter.unreachableStatus(new HttpTimeoutException("request timed out")));
+        assertEquals(502, CampaignShardRouter.unreachableStatus(new IOException("connection reset")));
+    }
+}
@@ -0,0 +1,49 @@
+package campaign;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConsistentHashRingTest {
+
+    private static final List<String> MEMBERS = List.of("http://a:8080", "http://b:8080", "http://c:8080");
+
+    @Test
+    void ownershipIsStableAcrossRingInstances() {
+        ConsistentHashRing first = new ConsistentHashRing(MEMBERS, 64);
+        ConsistentHashRing second = new ConsistentHashRing(List.of("http://c:8080", "http://a:8080", "http://b:8080"), 64);
+
+        for (long campaignId = 1; campaignId <= 200; campaignId++) {
+            assertEquals(first.owner(campaignId, Set.of()), second.owner(campaignId, Set.of()));
+        }
+    }
+
+    @Test
+    void removingAMemberOnlyMovesItsCampaigns() {
+        ConsistentHashRing ring = new ConsistentHashRing(MEMBERS, 64);
+        int moved = 0;
+        for (long campaignId = 1; campaignId <= 300; campaignId++) {
+            String before = ring.owner(campaignId, Set.of());
+            String after = ring.owner(campaignId, Set.of("http://b:8080"));
+            assertNotEquals("http://b:8080", after);
+            if (!before.equals(after)) {
+                assertEquals("http://b:8080", before);
+                moved++;
+            }
+        }
+        assertTrue(moved > 0);
+    }
+
+    @Test
+    void noOwnerWhenAllMembersAreDown() {
+        ConsistentHashRing ring = new ConsistentHashRing(MEMBERS, 8);
+
+        assertNull(ring.owner(1L, Set.copyOf(MEMBERS)));
+    }
+}
@@ -0,0 +1,230 @@
+package campaign;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@QuarkusTest
+class DecisionVoteTest {
+
+    private static final long CAMPAIGN_ID = 900L;
+
+    @Inject
+    DataSource dataSource;
+
+    @Test
+    void votesAreCountedPerOption() {
+        Long decisionId = createDecision(3);
+
+        GroupDecision.Tally first = vote(decisionId, 1L, 1);
+        GroupDecision.Tally second = vote(decisionId, 2L, 0);
+
+        assertArrayEquals(new int[]{0, 1}, first.optionVotes());
+        assertArrayEquals(new int[]{1, 1}, second.optionVotes());
+        assertFalse(second.resolved());
+        GroupDecision decision = QuarkusTransaction.requiringNew().call(() -> GroupDecision.findById(decisionId));
+        assertEquals(2, decision.voteCount);
+        assertEquals("PENDING", decision.status);
+    }
+
+    @Test
+    void secondVoteOfAPlayerIsAConflict() {
+        Long decisionId = createDecision(3);
+
+        assertNotNull(vote(decisionId, 1L, 0));
+        assertNull(vote(decisionId, 1L, 1));
+
+        GroupDecision decision = QuarkusTransaction.requiringNew().call(() -> GroupDecision.findById(decisionId));
+        assertArrayEquals(new int[]{1, 0}, decision.optionVotes);
+        assertEquals(1, decision.voteCount);
+    }
+
+    @Test
+    void concurrentVotesOfOnePlayerCountOnce() throws Exception {
+        Long decisionId = createDecision(3);
+
+        List<GroupDecision.Tally> tallies = voteConcurrently(decisionId, 8, voter -> 1L);
+
+        assertEquals(1, tallies.stream().filter(tally -> tally != null).count());
+        GroupDecision decision = QuarkusTransaction.requiringNew().call(() -> GroupDecision.findById(decisionId));
+        assertEquals(1, decision.voteCount);
+    }
+
+    @Test
+    void exactlyOneOfConcurrentFinalVotesResolves() throws Exception {
+        int players = 8;
+        Long decisionId = createDecision(players);
+
+        List<GroupDecision.Tally> tallies = voteConcurrently(decisionId, players, voter -> voter + 1L);
+
+        assertEquals(1, tallies.stream().filter(GroupDecision.Tally::resolved).count());
+        GroupDecision decision = QuarkusTransaction.requiringNew().call(() -> GroupDecision.findById(decisionId));
+        assertEquals("RESOLVED", decision.status);
+        assertNotNull(decision.resolvedAt);
+        assertEquals(players, decision.voteCount);
+        assertArrayEquals(new int[]{players / 2, players / 2}, decision.optionVotes);
+    }
+
+    @Test
+    void votesOnResolvedDecisionsOrUnknownOptionsAreNotCounted() {
+        Long decisionId = createDecision(1);
+
+        assertNull(vote(decisionId, 1L, 2));
+        assertTrue(vote(decisionId, 1L, 0).resolved());
+        assertNull(vote(decisionId, 2L, 0));
+        assertNull(QuarkusTransaction.requiringNew().call(() -> GroupDecision.countVote(decisionId, CAMPAIGN_ID + 1, 0)));
+    }
+
+    @Test
+    void v6MovesVotedPlayerIdsIntoUniqueVoteRows() throws SQLException {
+        String schema = "decision_v6_test";
+        migrate(schema, "5");
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.executeUpdate("insert into " + schema + ".group_decision (id, campaign_id, title, created_at,"
+                    + " status, yes_votes, no_votes, total_players, voted_player_ids)"
+                    + " values (1, 1, 'Rast', 10, 'PENDING', 1, 1, 3, '7,8,,x,7')");
+
+            migrate(schema, "6");
+
+            List<Long> voters = new ArrayList<>();
+            try (ResultSet rows = statement.executeQuery("select player_id, vote, created_at from " + schema
+                    + ".decision_vote where decision_id = 1 order by player_id")) {
+                while (rows.next()) {
+                    voters.add(rows.getLong("player_id"));
+                    assertNull(rows.getString("vote"));
+                    assertEquals(10, rows.getLong("created_at"));
+                }
+            }
+            assertEquals(List.of(7L, 8L), voters);
+            try (ResultSet columns = statement.executeQuery("select 1 from information_schema.columns where table_schema = '"
+                    + schema + "' and table_name = 'group_decision' and column_name = 'voted_player_ids'")) {
+                assertFalse(columns.next());
+            }
+            assertThrows(SQLException.class, () -> statement.executeUpdate("insert into " + schema
+                    + ".decision_vote (id, decision_id, player_id, created_at) values (999, 1, 8, 20)"));
+        } finally {
+            dropSchema(schema);
+        }
+    }
+
+    @Test
+    void v7TurnsYesAndNoCountsIntoOptions() throws SQLException {
+        String schema = "decision_v7_test";
+        migrate(schema, "6");
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.executeUpdate("insert into " + schema + ".group_decision (id, campaign_id, title, created_at,"
+                    + " status, yes_votes, no_votes, total_players) values (1, 1, 'Rast', 10, 'PENDING', 2, 1, 4)");
+            statement.executeUpdate("insert into " + schema + ".decision_vote (id, decision_id, player_id, vote, created_at)"
+                    + " values (1, 1, 7, 'yes', 10), (2, 1, 8, 'no', 10), (3, 1, 9, null, 10)");
+
+            migrate(schema, "7");
+
+            try (ResultSet row = statement.executeQuery("select options, option_votes, vote_count from " + schema
+                    + ".group_decision where id = 1")) {
+                assertTrue(row.next());
+                assertArrayEquals(new String[]{"Ja", "Nein"}, (String[]) row.getArray("options").getArray());
+                assertArrayEquals(new Integer[]{2, 1}, (Integer[]) row.getArray("option_votes").getArray());
+                assertEquals(3, row.getInt("vote_count"));
+            }
+            List<Integer> optionIndexes = new ArrayList<>();
+            try (ResultSet rows = statement.executeQuery("select option_index from " + schema
+                    + ".decision_vote order by player_id")) {
+                while (rows.next()) {
+                    optionIndexes.add((Integer) rows.getObject("option_index"));
+                }
+            }
+            assertEquals(Arrays.asList(0, 1, null), optionIndexes);
+        } finally {
+            dropSchema(schema);
+        }
+    }
+
+    private Long createDecision(int totalPlayers) {
+        return QuarkusTransaction.requiringNew().call(() -> {
+            GroupDecision decision = new GroupDecision(CAMPAIGN_ID, "Rast", null, totalPlayers);
+            decision.persist();
+            return decision.id;
+        });
+    }
+
+    /** Records and counts a vote like the vote endpoint; null if it was rejected and rolled back. */
+    private static GroupDecision.Tally vote(Long decisionId, Long playerId, int option) {
+        return QuarkusTransaction.requiringNew().call(() -> {
+            if (!DecisionVote.record(decisionId, playerId, option)) {
+                return null;
+            }
+            GroupDecision.Tally tally = GroupDecision.countVote(decisionId, CAMPAIGN_ID, option);
+            if (tally == null) {
+                QuarkusTransaction.setRollbackOnly();
+            }
+            return tally;
+        });
+    }
+
+    /** Starts all votes at once; voter i picks option i % 2. */
+    private static List<GroupDecision.Tally> voteConcurrently(Long decisionId, int voters, IntFunction<Long> players) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(voters);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<GroupDecision.Tally>> futures = new ArrayList<>();
+            for (int i = 0; i < voters; i++) {
+                int voter = i;
+                Callable<GroupDecision.Tally> task = () -> {
+                    start.await();
+                    return vote(decisionId, players.apply(voter), voter % 2);
+                };
+                futures.add(executor.submit(task));
+            }
+            start.countDown();
+            List<GroupDecision.Tally> tallies = new ArrayList<>();
+            for (Future<GroupDecision.Tally> future : futures) {
+                tallies.add(future.get());
+            }
+            return tallies;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /** Migrates a scratch schema up to {@code target}, to check a migration against old rows. */
+    private void migrate(String schema, String target) {
+        Flyway.configure()
+                .dataSource(dataSource)
+                .schemas(schema)
+                .locations("classpath:db/migration")
+                .target(target)
+                .load()
+                .migrate();
+    }
+
+    private void dropSchema(String schema) throws SQLException {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.executeUpdate("drop schema if exists " + schema + " cascade");
+        }
+    }
+}
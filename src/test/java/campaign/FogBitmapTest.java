@@ -0,0 +1,71 @@
+package campaign;
+
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FogBitmapTest {
+
+    @Test
+    void pngCellsAreExploredFromHalfAlpha() throws Exception {
+        BufferedImage image = new BufferedImage(FogBitmap.SIZE, FogBitmap.SIZE, BufferedImage.TYPE_INT_ARGB);
+        image.setRGB(10, 20, 0xFFFFFFFF);
+        image.setRGB(11, 20, 0x80FFFFFF);
+        image.setRGB(12, 20, 0x7FFFFFFF);
+
+        FogBitmap fog = FogBitmap.decode(dataUrl(image));
+
+        assertTrue(fog.isExplored(10, 20));
+        assertTrue(fog.isExplored(11, 20));
+        assertFalse(fog.isExplored(12, 20));
+        assertFalse(fog.isExplored(20, 10));
+    }
+
+    @Test
+    void oversizedPngIsRejectedBeforeDecoding() throws Exception {
+        BufferedImage image = new BufferedImage(FogBitmap.MAX_PNG_SIDE + 1, 1, BufferedImage.TYPE_BYTE_BINARY);
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> FogBitmap.decode(dataUrl(image)));
+        assertTrue(e.getMessage().startsWith("Fog image too large"));
+    }
+
+    @Test
+    void encodedBitsAndRenderedPngRoundTrip() {
+        byte[] bits = new byte[FogBitmap.BYTES];
+        bits[5] = (byte) 0b1010_0001;
+        bits[FogBitmap.BYTES - 1] = 1;
+        FogBitmap fog = FogBitmap.fromBytes(bits);
+
+        assertArrayEquals(bits, FogBitmap.decode(fog.encode()).toBytes());
+        assertArrayEquals(bits, FogBitmap.decode(fog.toPngDataUrl()).toBytes());
+    }
+
+    @Test
+    void revealSetsRunsAndReturnsSameInstanceWhenNothingIsNew() {
+        FogBitmap fog = FogBitmap.empty().reveal(new int[]{3, 250, 6, 4, 0, 2});
+
+        assertTrue(fog.isExplored(250, 3));
+        assertTrue(fog.isExplored(255, 3));
+        assertFalse(fog.isExplored(249, 3));
+        assertTrue(fog.isExplored(1, 4));
+        assertFalse(fog.isExplored(2, 4));
+        assertSame(fog, fog.reveal(new int[]{3, 251, 2}));
+        assertThrows(IllegalArgumentException.class, () -> fog.reveal(new int[]{3, 251, 6}));
+    }
+
+    private static String dataUrl(BufferedImage image) throws Exception {
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", png);
+        return "data:image/png;base64," + Base64.getEncoder().encodeToString(png.toByteArray());
+    }
+}
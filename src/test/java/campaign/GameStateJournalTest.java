@@ -0,0 +1,82 @@
+package campaign;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GameStateJournalTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void replaysJournalAfterCrash() throws Exception {
+        GameState before = new GameState();
+        journal(before).open();
+        GameState.CampaignGameState state = before.getOrCreate(1L);
+        state.setHp(7L, 20, 30);
+        state.updateHp(7L, -5);
+        state.pushUndo();
+        state.putMarker(new GameState.MapMarker(state.nextMarkerId(), "quest", "Tower", 0.5, 0.5, null, null, "!"));
+        state.setTurn(7L);
+
+        GameState after = new GameState();
+        journal(after).open();
+        GameState.CampaignGameState restored = after.find(1L);
+
+        assertEquals(15, restored.playerHp.get(7L));
+        assertEquals(30, restored.playerMaxHp.get(7L));
+        assertEquals(7L, restored.currentTurnPlayerId);
+        assertEquals("Tower", restored.mapMarkers.get("m1").label);
+        assertEquals("m2", restored.nextMarkerId());
+        restored.popUndo();
+        assertTrue(restored.mapMarkers.isEmpty());
+    }
+
+    @Test
+    void snapshotAndLaterOpsAreBothRestored() throws Exception {
+        GameState before = new GameState();
+        GameStateJournal journal = journal(before);
+        journal.open();
+        before.getOrCreate(1L).setHp(7L, 10, 10);
+        before.getOrCreate(2L).setFog(FogBitmap.empty());
+        journal.compact();
+        before.getOrCreate(1L).updateHp(7L, -3);
+        before.remove(2L);
+
+        GameState after = new GameState();
+        journal(after).open();
+
+        assertEquals(7, after.find(1L).playerHp.get(7L));
+        assertNull(after.find(2L));
+    }
+
+    @Test
+    void skipsOpsAlreadyInSnapshot() throws Exception {
+        GameState gameState = new GameState();
+        GameStateJournal journal = journal(gameState);
+        journal.open();
+        GameState.CampaignGameState state = gameState.getOrCreate(1L);
+        state.pushUndo();
+
+        assertFalse(journal.replay(new GameStateJournal.Entry(1L, 1, GameStateOp.of(GameStateOp.Type.UNDO_PUSH))));
+        assertTrue(state.hasUndo());
+    }
+
+    private GameStateJournal journal(GameState gameState) {
+        GameStateJournal journal = new GameStateJournal();
+        journal.gameState = gameState;
+        journal.objectMapper = new ObjectMapper();
+        journal.directory = dir.toString();
+        journal.snapshotIntervalSeconds = 3600;
+        journal.maxSegmentBytes = Long.MAX_VALUE;
+        return journal;
+    }
+}
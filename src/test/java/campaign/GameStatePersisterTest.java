@@ -0,0 +1,45 @@
+package campaign;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class GameStatePersisterTest {
+
+    @Test
+    void repeatedHpChangesCoalesceIntoOneRow() {
+        GameStatePersister persister = persister();
+        for (int hp = 10; hp > 0; hp--) {
+            persister.onMutation(1L, 11 - hp, GameStateOp.hp(7L, hp, null));
+        }
+        persister.onMutation(1L, 11, GameStateOp.hp(8L, 5, null));
+
+        assertEquals(2, persister.pendingCount());
+    }
+
+    @Test
+    void resetReplacesPendingPlayerWrites() {
+        GameStatePersister persister = persister();
+        persister.onMutation(1L, 1, GameStateOp.hp(7L, 3, 10));
+        persister.onMutation(1L, 2, GameStateOp.of(GameStateOp.Type.RESET));
+
+        // the campaign row and the reset of its player rows
+        assertEquals(2, persister.pendingCount());
+    }
+
+    @Test
+    void removedCampaignHasNothingPending() {
+        GameStatePersister persister = persister();
+        persister.onMutation(1L, 1, GameStateOp.fog("fog"));
+        persister.onMutation(1L, 2, GameStateOp.active(7L, false));
+        persister.onMutation(1L, 3, GameStateOp.of(GameStateOp.Type.REMOVE));
+
+        assertEquals(0, persister.pendingCount());
+    }
+
+    private static GameStatePersister persister() {
+        GameStatePersister persister = new GameStatePersister();
+        persister.batchSize = Integer.MAX_VALUE;
+        return persister;
+    }
+}
@@ -2,7 +2,21 @@ package campaign;
 
 import org.junit.jupiter.api.Test;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class GameStateTest {
 
@@ -17,4 +31,149 @@ class GameStateTest {
         assertEquals(14, state.playerHp.get(7L));
         assertEquals(20, state.playerMaxHp.get(7L));
     }
+
+    @Test
+    void stateSurvivesExportAndRestore() {
+        GameState.CampaignGameState state = new GameState.CampaignGameState();
+        state.setHp(5L, 12, 20);
+        state.mapMarkers.put("m1", new GameState.MapMarker("m1", "quest", "Cave", 0.2, 0.4, null, null, "!"));
+        state.pushUndo();
+        state.nextMarkerId();
+
+        GameState.CampaignGameState restored = GameState.CampaignGameState.restore(state.export());
+
+        assertEquals(12, restored.playerHp.get(5L));
+        assertEquals("Cave", restored.mapMarkers.get("m1").label);
+        assertTrue(restored.hasUndo());
+        assertEquals("m2", restored.nextMarkerId());
+    }
+
+    @Test
+    void undoRevertsOnlyTheMarkersChangedSinceThePush() {
+        GameState.CampaignGameState state = new GameState.CampaignGameState();
+        state.putMarker(new GameState.MapMarker("m1", "quest", "Cave", 0.2, 0.4, null, null, "!"));
+        state.putMarker(new GameState.MapMarker("m2", "quest", "Tower", 0.5, 0.5, null, null, "!"));
+        GameState.MapMarker untouched = state.mapMarkers.get("m2");
+        state.pushUndo();
+        state.moveMarker("m1", 0.9, 0.9, null);
+        state.putMarker(new GameState.MapMarker("m3", "quest", "Bridge", 0.1, 0.1, null, null, "!"));
+        state.pushUndo();
+        state.removeMarker("m1");
+
+        assertEquals(1, state.popUndo().markers.size());
+        assertEquals(0.9, state.mapMarkers.get("m1").x);
+
+        GameState.CampaignGameState restored = GameState.CampaignGameState.restore(state.export());
+        assertEquals(2, restored.popUndo().markers.size());
+        assertEquals(0.2, restored.mapMarkers.get("m1").x);
+        assertFalse(restored.mapMarkers.containsKey("m3"));
+        assertNull(restored.popUndo());
+
+        state.popUndo();
+        assertSame(untouched, state.mapMarkers.get("m2"));
+    }
+
+    @Test
+    void undoDepthTrimsOldestEntries() {
+        GameState.CampaignGameState state = new GameState.CampaignGameState();
+        for (int i = 0; i < 5; i++) {
+            state.pushUndo();
+        }
+        state.setUndoDepth(2);
+
+        assertNotNull(state.popUndo());
+        assertNotNull(state.popUndo());
+        assertNull(state.popUndo());
+        assertThrows(IllegalArgumentException.class, () -> state.setUndoDepth(GameState.MAX_UNDO_DEPTH + 1));
+    }
+
+    @Test
+    void fullCopyUndoEntriesAreRestoredAsInverses() {
+        GameState.MapMarker cave = new GameState.MapMarker("m1", "quest", "Cave", 0.2, 0.4, null, null, "!");
+        GameState.MapMarker tower = new GameState.MapMarker("m2", "quest", "Tower", 0.5, 0.5, null, null, "!");
+        GameState.StateTransfer legacy = new GameState.StateTransfer(null, null, null, null, null, null,
+                List.of(cave, tower), 3, List.of(
+                        new GameState.UndoTransfer(List.of(cave), null, null),
+                        new GameState.UndoTransfer(List.of(), null, null)), 0, null);
+
+        GameState.CampaignGameState state = GameState.CampaignGameState.restore(legacy);
+
+        state.popUndo();
+        assertEquals(List.of("m1"), List.copyOf(state.mapMarkers.keySet()));
+        state.popUndo();
+        assertTrue(state.mapMarkers.isEmpty());
+    }
+
+    @Test
+    void evictedStateIsLoadedBackOnNextAccess() {
+        GameState gameState = new GameState();
+        byte[] bits = new byte[FogBitmap.BYTES];
+        bits[0] = (byte) 0x80;
+        FogBitmap fog = FogBitmap.fromBytes(bits);
+        gameState.getOrCreate(3L).setFog(fog);
+        Map<Long, GameState.StateTransfer> spilled = new HashMap<>();
+        gameState.setLoader(id -> spilled.containsKey(id)
+                ? GameState.CampaignGameState.restore(spilled.remove(id)) : null);
+
+        assertTrue(gameState.evict(3L, state -> true, state -> spilled.put(3L, state.export())));
+        assertNull(gameState.find(3L));
+
+        assertTrue(gameState.getOrCreate(3L).fog.isExplored(0, 0));
+        assertTrue(spilled.isEmpty());
+    }
+
+    @Test
+    void concurrentCallersShareOneLoad() throws Exception {
+        GameState gameState = new GameState();
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        gameState.setLoader(id -> {
+            if (id != 3L) {
+                return null;
+            }
+            loads.incrementAndGet();
+            loading.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new GameState.CampaignGameState();
+        });
+
+        CompletableFuture<GameState.CampaignGameState> first = CompletableFuture.supplyAsync(() -> gameState.getOrCreate(3L));
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+        CompletableFuture<GameState.CampaignGameState> second = CompletableFuture.supplyAsync(() -> gameState.getOrCreate(3L));
+        // Other campaigns are not held up by the slow load
+        assertNotNull(gameState.getOrCreate(4L));
+        release.countDown();
+
+        assertSame(first.get(5, TimeUnit.SECONDS), second.get(5, TimeUnit.SECONDS));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void campaignInUseIsNotEvicted() {
+        GameState gameState = new GameState();
+        gameState.getOrCreate(3L);
+
+        assertFalse(gameState.evict(3L, state -> false, state -> { throw new AssertionError("spilled"); }));
+        assertNotNull(gameState.find(3L));
+    }
+
+    @Test
+    void campaignUsedWhileSpillingStaysInMemory() {
+        GameState gameState = new GameState();
+        GameState.CampaignGameState resident = gameState.getOrCreate(3L);
+
+        // The spill runs outside the map's locks, so lookups of any campaign go on meanwhile
+        assertFalse(gameState.evict(3L, state -> true, state -> {
+            assertNotNull(gameState.getOrCreate(4L));
+            gameState.getOrCreate(3L).setTurn(7L);
+        }));
+
+        assertSame(resident, gameState.find(3L));
+        assertEquals(7L, resident.currentTurnPlayerId);
+    }
 }
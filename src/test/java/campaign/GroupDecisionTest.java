@@ -0,0 +1,86 @@
+package campaign;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class GroupDecisionTest {
+
+    @Test
+    void optionsAreTrimmedLabels() {
+        assertEquals(List.of("Links", "Rechts", "42"), GroupDecision.parseOptions(List.of(" Links ", "Rechts", 42)));
+    }
+
+    @Test
+    void invalidOptionsAreRejected() {
+        assertNull(GroupDecision.parseOptions(null));
+        assertNull(GroupDecision.parseOptions("Ja,Nein"));
+        assertNull(GroupDecision.parseOptions(List.of("Ja")));
+        assertNull(GroupDecision.parseOptions(Collections.nCopies(GroupDecision.MAX_OPTIONS + 1, "Ja")));
+        assertNull(GroupDecision.parseOptions(List.of("Ja", "  ")));
+        assertNull(GroupDecision.parseOptions(Arrays.asList("Ja", null)));
+
+        assertEquals(GroupDecision.MAX_OPTIONS,
+                GroupDecision.parseOptions(Collections.nCopies(GroupDecision.MAX_OPTIONS, "Ja")).size());
+    }
+
+    @Test
+    void settingOptionsStartsEveryCountAtZero() {
+        GroupDecision decision = new GroupDecision(1L, "Weg", null, 4);
+        assertArrayEquals(new String[]{"Ja", "Nein"}, decision.options);
+
+        decision.setOptions(List.of("Wald", "Fluss", "Berg"));
+
+        assertArrayEquals(new String[]{"Wald", "Fluss", "Berg"}, decision.options);
+        assertArrayEquals(new int[]{0, 0, 0}, decision.optionVotes);
+    }
+
+    @Test
+    void optionWithTheMostVotesWinsAndTheEarlierOneATie() {
+        assertEquals(2, GroupDecision.winningOption(new int[]{1, 0, 3}));
+        assertEquals(0, GroupDecision.winningOption(new int[]{2, 2}));
+        assertEquals(1, GroupDecision.winningOption(new int[]{0, 2, 2}));
+        assertEquals(0, GroupDecision.winningOption(new int[]{0, 0, 0}));
+    }
+
+    @Test
+    void resultNamesTheWinnerAndAllCounts() {
+        assertEquals("Ja (3 Ja / 1 Nein)", GroupDecision.describeResult(new String[]{"Ja", "Nein"}, new int[]{3, 1}));
+        assertEquals("Ja (2 Ja / 2 Nein)",
+                GroupDecision.describeResult(new String[]{"Ja", "Nein"}, new int[]{2, 2}));
+        assertEquals("Berg (0 Wald / 1 Fluss / 2 Berg)",
+                GroupDecision.describeResult(new String[]{"Wald", "Fluss", "Berg"}, new int[]{0, 1, 2}));
+    }
+
+    @Test
+    void firstTwoCountsAreReportedAsYesAndNo() {
+        String[] options = {"Wald", "Fluss", "Berg"};
+        int[] votes = {4, 1, 2};
+
+        Map<String, Object> fields = GroupDecision.tallyFields(options, votes);
+
+        assertEquals(List.of("yes", "no", "options", "votes"), List.copyOf(fields.keySet()));
+        assertEquals(4, fields.get("yes"));
+        assertEquals(1, fields.get("no"));
+        assertEquals(options, fields.get("options"));
+        assertEquals(votes, fields.get("votes"));
+    }
+
+    @Test
+    void missingCountsAreReportedAsZero() {
+        Map<String, Object> one = GroupDecision.tallyFields(new String[]{"Ja"}, new int[]{3});
+        Map<String, Object> none = GroupDecision.tallyFields(new String[0], new int[0]);
+
+        assertEquals(3, one.get("yes"));
+        assertEquals(0, one.get("no"));
+        assertEquals(0, none.get("yes"));
+        assertEquals(0, none.get("no"));
+    }
+}
@@ -0,0 +1,67 @@
+package campaign;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class InJvmBroadcastBusTest {
+
+    @Test
+    void publishReachesOtherNodesOnly() {
+        InJvmBroadcastBus first = new InJvmBroadcastBus();
+        InJvmBroadcastBus second = new InJvmBroadcastBus();
+        List<String> firstReceived = new ArrayList<>();
+        List<String> secondReceived = new ArrayList<>();
+        first.subscribe((campaignId, eventName, json) -> firstReceived.add(campaignId + ":" + eventName));
+        second.subscribe((campaignId, eventName, json) -> secondReceived.add(campaignId + ":" + eventName));
+        try {
+            first.publish(7L, "dice", "{}");
+
+            assertEquals(List.of(), firstReceived);
+            assertEquals(List.of("7:dice"), secondReceived);
+        } finally {
+            first.leave();
+            second.leave();
+        }
+    }
+
+    @Test
+    void playerEventsReachOnlyPlayerListeners() {
+        InJvmBroadcastBus first = new InJvmBroadcastBus();
+        InJvmBroadcastBus second = new InJvmBroadcastBus();
+        List<String> campaignReceived = new ArrayList<>();
+        List<String> playerReceived = new ArrayList<>();
+        second.subscribe((campaignId, eventName, json) -> campaignReceived.add(campaignId + ":" + eventName));
+        second.subscribePlayers((playerId, eventName, json) -> playerReceived.add(playerId + ":" + eventName));
+        try {
+            first.publishToPlayer(3L, "notification", "{}");
+
+            assertEquals(List.of(), campaignReceived);
+            assertEquals(List.of("3:notification"), playerReceived);
+        } finally {
+            first.leave();
+            second.leave();
+        }
+    }
+
+    @Test
+    void nodeMessagesReachEveryNodeListenerOfOtherNodes() {
+        InJvmBroadcastBus first = new InJvmBroadcastBus();
+        InJvmBroadcastBus second = new InJvmBroadcastBus();
+        List<String> received = new ArrayList<>();
+        first.subscribeNodes((type, json) -> received.add("first:" + type));
+        second.subscribeNodes((type, json) -> received.add("second:" + type));
+        second.subscribeNodes((type, json) -> received.add("second again:" + type));
+        try {
+            first.publishToNodes("membership_invalidated", "{}");
+
+            assertEquals(List.of("second:membership_invalidated", "second again:membership_invalidated"), received);
+        } finally {
+            first.leave();
+            second.leave();
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package campaign;
+
+import io.vertx.core.Vertx;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MarkerMoveCoalescerTest {
+
+    private Vertx vertx;
+    private RecordingBroadcaster broadcaster;
+    private CampaignMailbox mailbox;
+    private MarkerMoveCoalescer coalescer;
+
+    @BeforeEach
+    void setUp() {
+        vertx = Vertx.vertx();
+        broadcaster = new RecordingBroadcaster();
+        mailbox = new CampaignMailbox();
+        coalescer = new MarkerMoveCoalescer();
+        coalescer.broadcaster = broadcaster;
+        coalescer.mailbox = mailbox;
+        coalescer.vertx = vertx;
+        coalescer.windowMs = 60_000;
+    }
+
+    @AfterEach
+    void tearDown() {
+        vertx.close().toCompletionStage().toCompletableFuture().join();
+    }
+
+    @Test
+    void movesWithinAWindowAreCoalescedAndTheLastPositionWins() throws Exception {
+        coalescer.windowMs = 200;
+        inMailbox(() -> {
+            coalescer.moved(1L, marker("m1", 0.1), true);
+            coalescer.moved(1L, marker("m1", 0.2), true);
+            coalescer.moved(1L, marker("m1", 0.3), true);
+        });
+
+        // The first move goes out at once, the last one when the window closes
+        assertEquals(List.of("marker_move m1 0.1"), broadcaster.events);
+        waitForEvents(2);
+        Thread.sleep(300);
+        assertEquals(List.of("marker_move m1 0.1", "marker_move m1 0.3"), broadcaster.events);
+    }
+
+    @Test
+    void flushBroadcastsPendingMovesBeforeTheNextChange() {
+        inMailbox(() -> {
+            coalescer.moved(1L, marker("m1", 0.1), false);
+            coalescer.moved(1L, marker("m1", 0.2), false);
+            coalescer.moved(1L, marker("m2", 0.5), false);
+            coalescer.flush(1L);
+            broadcaster.broadcast(1L, "marker_remove", Map.of("id", "m2"));
+        });
+
+        assertEquals(List.of("marker_move m1 0.1", "marker_move m2 0.5", "marker_move m1 0.2", "marker_remove"),
+                broadcaster.events);
+    }
+
+    @Test
+    void windowClosingAfterAFlushBroadcastsNothing() throws Exception {
+        coalescer.windowMs = 20;
+        inMailbox(() -> {
+            coalescer.moved(1L, marker("m1", 0.1), true);
+            coalescer.moved(1L, marker("m1", 0.2), true);
+            coalescer.flush(1L);
+        });
+        Thread.sleep(150);
+        mailbox.call(1L, () -> null);
+
+        assertEquals(List.of("marker_move m1 0.1", "marker_move m1 0.2"), broadcaster.events);
+    }
+
+    @Test
+    void dragKeepsOneUndoEntryUntilTheDrop() {
+        inMailbox(() -> {
+            assertFalse(coalescer.continuesDrag(1L, "m1"));
+            coalescer.moved(1L, marker("m1", 0.1), true);
+            assertTrue(coalescer.continuesDrag(1L, "m1"));
+            assertFalse(coalescer.continuesDrag(1L, "m2"));
+            assertFalse(coalescer.continuesDrag(2L, "m1"));
+
+            coalescer.moved(1L, marker("m1", 0.2), false);
+            assertFalse(coalescer.continuesDrag(1L, "m1"));
+
+            coalescer.moved(1L, marker("m1", 0.3), true);
+            coalescer.flush(1L);
+            assertFalse(coalescer.continuesDrag(1L, "m1"));
+        });
+    }
+
+    @Test
+    void moveOfAnotherMarkerEndsTheDrag() {
+        inMailbox(() -> {
+            coalescer.moved(1L, marker("m1", 0.1), true);
+            coalescer.moved(1L, marker("m2", 0.5), false);
+            assertFalse(coalescer.continuesDrag(1L, "m1"));
+
+            coalescer.moved(1L, marker("m1", 0.2), true);
+            assertTrue(coalescer.continuesDrag(1L, "m1"));
+            coalescer.moved(1L, marker("m2", 0.6), true);
+            assertFalse(coalescer.continuesDrag(1L, "m1"));
+            assertTrue(coalescer.continuesDrag(1L, "m2"));
+        });
+    }
+
+    private void inMailbox(Runnable commands) {
+        mailbox.call(1L, () -> {
+            commands.run();
+            return null;
+        });
+    }
+
+    private void waitForEvents(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (broadcaster.events.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private static GameState.MapMarker marker(String id, double x) {
+        return new GameState.MapMarker(id, "quest", "Cave", x, 0.5, null, null, "!");
+    }
+
+    /** Records broadcasts instead of sending them. */
+    private static class RecordingBroadcaster extends SseBroadcaster {
+        final List<String> events = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void broadcast(Long campaignId, String eventName, Object data) {
+            if (data instanceof Map<?, ?> map && map.containsKey("x")) {
+                events.add(eventName + " " + map.get("id") + " " + map.get("x"));
+            } else {
+                events.add(eventName);
+            }
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package campaign;
+
+import io.vertx.core.buffer.Buffer;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class SseBroadcasterTest {
+
+    @Test
+    void encodesCompleteFrame() {
+        assertEquals("id: k2-7\nevent: dice\nretry: 2000\ndata: {\"result\":12}\n\n",
+                SseBroadcaster.encodeFrame("k2-7", "dice", "{\"result\":12}").toString());
+    }
+
+    @Test
+    void encodesMultiLineDataAndOmitsMissingId() {
+        assertEquals("event: note\nretry: 2000\ndata: a\ndata: b\n\n",
+                SseBroadcaster.encodeFrame(null, "note", "a\nb").toString());
+    }
+
+    @Test
+    void dropOldestKeepsQueueBounded() {
+        SseBroadcaster.SseConnection connection = new SseBroadcaster.SseConnection(null, null);
+        for (int i = 1; i <= 5; i++) {
+            connection.offer(event(i, "hp"), 3, SseBroadcaster.SlowConsumerPolicy.DROP_OLDEST);
+        }
+
+        assertEquals(3, connection.queuedEvents());
+        assertEquals(2, connection.droppedEvents());
+        assertEquals("3", connection.claimNext().frame.toString());
+    }
+
+    @Test
+    void coalesceReplacesQueuedEventWithSameName() {
+        SseBroadcaster.SseConnection connection = new SseBroadcaster.SseConnection(null, null);
+        SseBroadcaster.SlowConsumerPolicy policy = SseBroadcaster.SlowConsumerPolicy.COALESCE;
+        connection.offer(event(1, "dice"), 2, policy);
+        connection.offer(event(2, "marker_move"), 2, policy);
+        connection.offer(event(3, "marker_move"), 2, policy);
+
+        assertEquals("1", connection.claimNext().frame.toString());
+        connection.sent();
+        assertEquals("3", connection.claimNext().frame.toString());
+    }
+
+    @Test
+    void disconnectPolicyRejectsWhenFull() {
+        SseBroadcaster.SseConnection connection = new SseBroadcaster.SseConnection(null, null);
+        SseBroadcaster.SlowConsumerPolicy policy = SseBroadcaster.SlowConsumerPolicy.DISCONNECT;
+        connection.offer(event(1, "hp"), 1, policy);
+
+        assertEquals(-1, connection.offer(event(2, "hp"), 1, policy));
+    }
+
+    @Test
+    void onlyOneWriteIsInFlight() {
+        SseBroadcaster.SseConnection connection = new SseBroadcaster.SseConnection(null, null);
+        SseBroadcaster.SlowConsumerPolicy policy = SseBroadcaster.SlowConsumerPolicy.DROP_OLDEST;
+        connection.offer(event(1, "hp"), 4, policy);
+        connection.offer(event(2, "hp"), 4, policy);
+
+        assertEquals("1", connection.claimNext().frame.toString());
+        assertNull(connection.claimNext());
+        connection.sent();
+        assertEquals("2", connection.claimNext().frame.toString());
+    }
+
+    @Test
+    void streamReplaysOnlyMissedEvents() {
+        SseCampaignStream stream = new SseCampaignStream(3);
+        for (int i = 1; i <= 4; i++) {
+            stream.add(stream.nextSequence(), event(i, "hp"));
+        }
+
+        assertEquals(List.of("3", "4"), frames(stream.since(2)));
+        assertEquals(List.of(), frames(stream.since(4)));
+    }
+
+    @Test
+    void streamReportsEvictedGap() {
+        SseCampaignStream stream = new SseCampaignStream(3);
+        for (int i = 1; i <= 5; i++) {
+            stream.add(stream.nextSequence(), event(i, "hp"));
+        }
+
+        assertNull(stream.since(1));
+        assertEquals(List.of("3", "4", "5"), frames(stream.since(2)));
+    }
+
+    @Test
+    void streamRejectsIdsAheadOfItsSequence() {
+        SseCampaignStream stream = new SseCampaignStream(3);
+        stream.add(stream.nextSequence(), event(1, "hp"));
+
+        assertEquals(1, stream.sequence());
+        assertNull(stream.since(5));
+    }
+
+    @Test
+    void streamAfterRetirementContinuesIdsAndRejectsOldOnes() {
+        SseCampaignStream stream = new SseCampaignStream(3, 8);
+        stream.add(stream.nextSequence(), event(9, "hp"));
+
+        assertEquals(9, stream.sequence());
+        assertNull(stream.since(7));
+        assertEquals(List.of("9"), frames(stream.since(8)));
+    }
+
+    private static List<String> frames(List<SseBroadcaster.QueuedEvent> events) {
+        return events.stream().map(event -> event.frame.toString()).toList();
+    }
+
+    private static SseBroadcaster.QueuedEvent event(int sequence, String name) {
+        return new SseBroadcaster.QueuedEvent(name, Buffer.buffer(Integer.toString(sequence)));
+    }
+}